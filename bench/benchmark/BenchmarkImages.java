@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.util.Random;
+
+import controller.ImageIOHelper;
+import model.image.Pixel;
+import model.image.PixelRaster;
+
+/**
+ * Creates the images the benchmarks run on. A size is given as WIDTHxHEIGHT; the sizes used are
+ * 256x256, 1920x1080 (1080p), 3840x2160 (4K) and 8192x6144 (50 megapixels). A synthetic image is
+ * a smooth gradient with some noise, which compresses and dithers like a photo rather than like
+ * pure noise; a res image is a photo from the res folder tiled to the size.
+ */
+final class BenchmarkImages {
+  /**
+   * The photo tiled to make the res images, relative to the project folder.
+   */
+  static final String RES_IMAGE = "res/manhattan.png";
+
+  private BenchmarkImages() {
+  }
+
+  /**
+   * Creates an image.
+   *
+   * @param size   The size, as WIDTHxHEIGHT.
+   * @param source Either "synthetic" or "res".
+   * @return The raster of the image.
+   * @throws IllegalArgumentException if the size or source is unknown.
+   */
+  static PixelRaster create(String size, String source) throws IllegalArgumentException {
+    String[] dimensions = size.split("x");
+    if (dimensions.length != 2) {
+      throw new IllegalArgumentException("Unknown image size " + size);
+    }
+    int width = Integer.parseInt(dimensions[0]);
+    int height = Integer.parseInt(dimensions[1]);
+    switch (source) {
+      case "synthetic":
+        return synthetic(width, height);
+      case "res":
+        return tiled(ImageIOHelper.readJPGPNGRaster(RES_IMAGE), width, height);
+      default:
+        throw new IllegalArgumentException("Unknown image source " + source);
+    }
+  }
+
+  /**
+   * Creates a gradient with noise.
+   *
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @return The raster of the image.
+   */
+  private static PixelRaster synthetic(int width, int height) {
+    Random random = new Random(42);
+    PixelRaster raster = new PixelRaster(width, height);
+    int[] data = raster.getData();
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int red = (int) (255L * j / width);
+        int green = (int) (255L * i / height);
+        int blue = (red + green) / 2;
+        int noise = random.nextInt(17) - 8;
+        data[i * width + j] = PixelRaster.pack(255, Pixel.clamp(red + noise),
+                Pixel.clamp(green + noise), Pixel.clamp(blue + noise));
+      }
+    }
+    return raster;
+  }
+
+  /**
+   * Repeats an image until it covers the given size.
+   *
+   * @param tile   The image to repeat.
+   * @param width  The width of the result.
+   * @param height The height of the result.
+   * @return The raster of the result.
+   */
+  private static PixelRaster tiled(PixelRaster tile, int width, int height) {
+    PixelRaster raster = new PixelRaster(width, height);
+    int[] data = raster.getData();
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        data[i * width + j] = tile.getArgb(i % tile.getHeight(), j % tile.getWidth());
+      }
+    }
+    return raster;
+  }
+}
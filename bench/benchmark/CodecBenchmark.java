@@ -0,0 +1,122 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.ImageIOHelper;
+import model.image.PixelRaster;
+
+/**
+ * Measures reading and writing images in every format: plain and binary PPM through
+ * ImageIOHelper.readPPM and writePPM, and PNG and JPG through readJPGPNG and writeJPGPNG, for
+ * every image size and source of BenchmarkImages. The files are written to a temporary folder,
+ * which is deleted afterwards.
+ * Run it from the project folder like MethodsBenchmark:
+ * java -cp [class path of the bench module] org.openjdk.jmh.Main CodecBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class CodecBenchmark {
+  @Param({"ppm", "ppm-binary", "png", "jpg"})
+  private String format;
+
+  @Param({"256x256", "1920x1080", "3840x2160", "8192x6144"})
+  private String size;
+
+  @Param({"synthetic", "res"})
+  private String source;
+
+  private PixelRaster raster;
+  private File directory;
+  private String readFile;
+  private String writeFile;
+
+  /**
+   * Creates the image and the file the read benchmark reads.
+   *
+   * @throws IOException if the temporary folder cannot be created.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    raster = BenchmarkImages.create(size, source);
+    directory = Files.createTempDirectory("codec-benchmark").toFile();
+    String extension = format.startsWith("ppm") ? "ppm" : format;
+    readFile = new File(directory, "read." + extension).getPath();
+    writeFile = new File(directory, "write." + extension).getPath();
+    write(readFile);
+  }
+
+  /**
+   * Deletes the temporary folder.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  /**
+   * Reads the image once.
+   *
+   * @return The raster read, consumed by JMH so it is not optimized away.
+   */
+  @Benchmark
+  public PixelRaster read() {
+    if (format.startsWith("ppm")) {
+      return ImageIOHelper.readPPMRaster(readFile);
+    }
+    return ImageIOHelper.readJPGPNGRaster(readFile);
+  }
+
+  /**
+   * Writes the image once.
+   */
+  @Benchmark
+  public void write() {
+    write(writeFile);
+  }
+
+  /**
+   * Writes the image in the format of the benchmark.
+   *
+   * @param fileName The name of the file.
+   */
+  private void write(String fileName) {
+    switch (format) {
+      case "ppm":
+        ImageIOHelper.writePPM(fileName, raster, false);
+        break;
+      case "ppm-binary":
+        ImageIOHelper.writePPM(fileName, raster, true);
+        break;
+      default:
+        ImageIOHelper.writeJPGPNG(fileName, raster);
+        break;
+    }
+  }
+}
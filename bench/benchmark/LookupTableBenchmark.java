@@ -0,0 +1,171 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.image.Pixel;
+import model.image.PixelRaster;
+import model.imagetransformation.ChannelLut;
+import model.imagetransformation.PointOperation;
+import model.imagetransformation.PointPipeline;
+
+/**
+ * Measures the per-channel point operations (brighten, levels adjust and color correct, on their
+ * own and chained) computed pixel by pixel as they used to be and through their lookup tables,
+ * for every image size and source of BenchmarkImages. That both give the same pixels is checked
+ * by the unit tests.
+ * Run it from the project folder like MethodsBenchmark:
+ * java -cp [class path of the bench module] org.openjdk.jmh.Main LookupTableBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class LookupTableBenchmark {
+  // the coefficients of levels-adjust 20 100 255 and some color correct offsets
+  private static final double A = -0.003321894303363075;
+  private static final double B = 1.998627316403569;
+  private static final double C = -38.64378860672615;
+  private static final int BRIGHTNESS = 30;
+  private static final int[] OFFSETS = {12, -7, 4};
+
+  @Param({"brighten", "levels-adjust", "color-correct", "chained"})
+  private String operation;
+
+  @Param({"direct", "lookup-table"})
+  private String implementation;
+
+  @Param({"1920x1080", "3840x2160"})
+  private String size;
+
+  @Param({"synthetic", "res"})
+  private String source;
+
+  private PixelRaster raster;
+  private PointOperation pointOperation;
+
+  /**
+   * Creates the image and the operation.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    raster = BenchmarkImages.create(size, source);
+    boolean table = implementation.equals("lookup-table");
+    switch (operation) {
+      case "brighten":
+        pointOperation = table ? lutBrighten() : directBrighten();
+        break;
+      case "levels-adjust":
+        pointOperation = table ? lutLevels() : directLevels();
+        break;
+      case "color-correct":
+        pointOperation = table ? lutCorrect() : directCorrect();
+        break;
+      case "chained":
+        pointOperation = table ? lutBrighten().then(lutLevels()).then(lutCorrect())
+                : directBrighten().then(directLevels()).then(directCorrect());
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown operation " + operation);
+    }
+  }
+
+  /**
+   * Applies the operation to the whole image once.
+   *
+   * @return The pixels of the result, consumed by JMH so they are not optimized away.
+   */
+  @Benchmark
+  public int[] apply() {
+    return PointPipeline.apply(raster, pointOperation, 0).getData();
+  }
+
+  /**
+   * Creates brighten computed pixel by pixel.
+   *
+   * @return The operation.
+   */
+  private static PointOperation directBrighten() {
+    return argb -> PixelRaster.pack(PixelRaster.alpha(argb),
+            Pixel.clamp(PixelRaster.red(argb) + BRIGHTNESS),
+            Pixel.clamp(PixelRaster.green(argb) + BRIGHTNESS),
+            Pixel.clamp(PixelRaster.blue(argb) + BRIGHTNESS));
+  }
+
+  /**
+   * Creates levels adjust computed pixel by pixel.
+   *
+   * @return The operation.
+   */
+  private static PointOperation directLevels() {
+    return argb -> PixelRaster.pack(255,
+            Pixel.clamp(levels(PixelRaster.red(argb))),
+            Pixel.clamp(levels(PixelRaster.green(argb))),
+            Pixel.clamp(levels(PixelRaster.blue(argb))));
+  }
+
+  /**
+   * Creates color correct computed pixel by pixel.
+   *
+   * @return The operation.
+   */
+  private static PointOperation directCorrect() {
+    return argb -> PixelRaster.pack(255,
+            Pixel.clamp(PixelRaster.red(argb) + OFFSETS[0]),
+            Pixel.clamp(PixelRaster.green(argb) + OFFSETS[1]),
+            Pixel.clamp(PixelRaster.blue(argb) + OFFSETS[2]));
+  }
+
+  /**
+   * Creates the lookup table of brighten.
+   *
+   * @return The operation.
+   */
+  private static ChannelLut lutBrighten() {
+    return ChannelLut.ofRgb(value -> value + BRIGHTNESS);
+  }
+
+  /**
+   * Creates the lookup table of levels adjust.
+   *
+   * @return The operation.
+   */
+  private static ChannelLut lutLevels() {
+    return ChannelLut.ofChannels(value -> 255, LookupTableBenchmark::levels,
+            LookupTableBenchmark::levels, LookupTableBenchmark::levels);
+  }
+
+  /**
+   * Creates the lookup table of color correct.
+   *
+   * @return The operation.
+   */
+  private static ChannelLut lutCorrect() {
+    return ChannelLut.ofChannels(value -> 255, value -> value + OFFSETS[0],
+            value -> value + OFFSETS[1], value -> value + OFFSETS[2]);
+  }
+
+  /**
+   * Evaluates the levels adjustment curve the way LevelsAdjust does.
+   *
+   * @param x The channel value.
+   * @return The adjusted value, not clamped.
+   */
+  private static int levels(int x) {
+    return (int) Math.round((A * x * x) + (B * x) + C);
+  }
+}
@@ -0,0 +1,125 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.image.ImageModel;
+import model.image.ImageStore;
+import model.image.PixelRaster;
+import model.imagetransformation.Methods;
+
+/**
+ * Measures the throughput of every operation of the Methods enum through ImageModel.processImage,
+ * with the parameters the commands pass, for every image size and source of BenchmarkImages.
+ * The result is materialized, so the operations the model defers are measured as well.
+ * The benchmarks live in the ImageProcessor-bench module, which depends on the application and on
+ * the JMH library; its annotation processor generates the benchmark code when the module is
+ * built. Run them from the project folder through the JMH launcher (in IntelliJ, an application
+ * configuration for org.openjdk.jmh.Main using the class path of the bench module), adding the gc
+ * profiler to get the allocation rate:
+ * java -cp [class path of the bench module] org.openjdk.jmh.Main MethodsBenchmark -prof gc
+ * A single operation or size is selected with -p method=BLUR -p size=3840x2160.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class MethodsBenchmark {
+  // all the constants of the enum are used when no values are given
+  @Param
+  private Methods method;
+
+  @Param({"256x256", "1920x1080", "3840x2160", "8192x6144"})
+  private String size;
+
+  @Param({"synthetic", "res"})
+  private String source;
+
+  private ImageModel model;
+  private Object[] otherParams;
+
+  /**
+   * Creates the image and the parameters of the operation.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    PixelRaster raster = BenchmarkImages.create(size, source);
+    model = new ImageModel(new ImageStore());
+    model.putImage("image", raster);
+    otherParams = parametersOf(method, raster);
+  }
+
+  /**
+   * Runs the operation once.
+   *
+   * @return The result, consumed by JMH so it is not optimized away.
+   */
+  @Benchmark
+  public int[] process() {
+    model.processImage("image", "result", method, otherParams);
+    return model.getImage("result").getData();
+  }
+
+  /**
+   * Gets the parameters the commands pass for an operation.
+   *
+   * @param method The operation.
+   * @param raster The image, used as each component by rgb-combine.
+   * @return The parameters.
+   * @throws IllegalArgumentException if the parameters of the operation are not known, so a new
+   *                                  operation fails when the benchmark is set up.
+   */
+  static Object[] parametersOf(Methods method, PixelRaster raster)
+          throws IllegalArgumentException {
+    switch (method) {
+      case VALUE_COMPONENT:
+      case INTENSITY_COMPONENT:
+      case RED_COMPONENT:
+      case GREEN_COMPONENT:
+      case BLUE_COMPONENT:
+      case HORIZONTAL_FLIP:
+      case VERTICAL_FLIP:
+      case HISTOGRAM:
+      case TRANSPOSE:
+        return new Object[0];
+      case GREYSCALE:
+      case SEPIA:
+      case BLUR:
+      case SHARPEN:
+      case LUMA_COMPONENT:
+      case COLOR_CORRECT:
+      case DITHER:
+        return new Object[]{0.0};
+      case BRIGHTEN:
+        return new Object[]{10};
+      case LEVELS_ADJUST:
+        return new Object[]{"20", "100", "255", 0.0};
+      case IMAGE_COMPRESSION:
+        return new Object[]{50};
+      case GAUSSIAN_BLUR:
+        return new Object[]{3, 0.0};
+      case RGB_COMBINE:
+        return new Object[]{raster, raster, raster};
+      case ROTATE:
+        return new Object[]{90};
+      case CROP:
+        return new Object[]{0, 0, raster.getWidth() / 2, raster.getHeight() / 2};
+      default:
+        throw new IllegalArgumentException("No benchmark parameters for " + method);
+    }
+  }
+}
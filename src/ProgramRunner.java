@@ -1,6 +1,7 @@
 import java.io.ByteArrayInputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import controller.ControllerInterface;
 import controller.GUIController;
@@ -35,6 +36,12 @@ public class ProgramRunner {
       imageProcessor = new InputStreamController(new InputStreamReader(
               new ByteArrayInputStream(
                       command.getBytes(StandardCharsets.UTF_8))));
+    } else if ((args.length == 3 || args.length == 4) && args[0].equalsIgnoreCase("-batch")) {
+      // Run a script template for every input image
+      String command = "batch " + String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+      imageProcessor = new InputStreamController(new InputStreamReader(
+              new ByteArrayInputStream(
+                      command.getBytes(StandardCharsets.UTF_8))));
     } else if (args.length == 1 && args[0].equalsIgnoreCase("-text")) {
       // Use InputStreamController with System.in if text input is specified
       imageProcessor = new InputStreamController(new InputStreamReader(System.in));
@@ -0,0 +1,80 @@
+package controller;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the outcome of a batch run: the input images that were processed successfully and,
+ * for every image that failed, the errors reported while processing it.
+ */
+public class BatchReport {
+  private final List<Path> successes;
+  private final Map<Path, String> failures;
+
+  /**
+   * Constructs an empty report.
+   */
+  public BatchReport() {
+    successes = new ArrayList<>();
+    failures = new LinkedHashMap<>();
+  }
+
+  /**
+   * Records an image that was processed successfully.
+   *
+   * @param input The path of the image.
+   */
+  void addSuccess(Path input) {
+    successes.add(input);
+  }
+
+  /**
+   * Records an image that failed.
+   *
+   * @param input  The path of the image.
+   * @param errors The errors reported while processing the image.
+   */
+  void addFailure(Path input, String errors) {
+    failures.put(input, errors);
+  }
+
+  /**
+   * Gets the images that were processed successfully.
+   *
+   * @return The paths of the images, in the order of the inputs.
+   */
+  public List<Path> getSuccesses() {
+    return Collections.unmodifiableList(successes);
+  }
+
+  /**
+   * Gets the images that failed together with their errors.
+   *
+   * @return The errors of every failed image, in the order of the inputs.
+   */
+  public Map<Path, String> getFailures() {
+    return Collections.unmodifiableMap(failures);
+  }
+
+  /**
+   * Prints a summary of the batch: the number of images processed successfully and the errors
+   * of every failed image.
+   *
+   * @param out The stream to print to.
+   */
+  public void print(PrintStream out) {
+    out.println("Batch finished: " + successes.size() + " of "
+            + (successes.size() + failures.size()) + " images processed successfully.");
+    for (Map.Entry<Path, String> failure : failures.entrySet()) {
+      out.println("Failed " + failure.getKey() + ":");
+      for (String line : failure.getValue().split("\\R")) {
+        out.println("  " + line);
+      }
+    }
+  }
+}
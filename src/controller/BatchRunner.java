@@ -0,0 +1,276 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.image.ImageFormats;
+import model.image.ImageModel;
+import model.image.ImageStore;
+
+/**
+ * Runs the same script for many input images on a bounded pool of worker threads. The script is
+ * a template in which ${input} is replaced by the path of the input image and ${name} by its file
+ * name without the extension, for instance:
+ * load ${input} img
+ * greyscale img img-grey
+ * save out/${name}-grey.png img-grey
+ * Every input image is processed in a session of its own, so the scripts of different images
+ * can use the same image names without interfering. The script of an image fails if it throws
+ * or reports an error; the errors reported while processing an image are collected in the
+ * report instead of being printed.
+ */
+public class BatchRunner {
+  /**
+   * The placeholder replaced by the path of the input image.
+   */
+  public static final String INPUT_PLACEHOLDER = "${input}";
+
+  /**
+   * The placeholder replaced by the file name of the input image without its extension.
+   */
+  public static final String NAME_PLACEHOLDER = "${name}";
+
+  private static ErrorRouter errorRouter;
+  private static int runningBatches;
+
+  private final List<String> scriptTemplate;
+  private final int threads;
+
+  /**
+   * Constructs a batch runner for the given script template.
+   *
+   * @param scriptTemplate The lines of the script template.
+   * @param threads        The number of images processed at the same time.
+   * @throws IllegalArgumentException if the number of threads is less than 1.
+   */
+  public BatchRunner(List<String> scriptTemplate, int threads) throws IllegalArgumentException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads must be at least 1.");
+    }
+    this.scriptTemplate = new ArrayList<>(scriptTemplate);
+    this.threads = threads;
+  }
+
+  /**
+   * Finds the input images of a batch. The inputs are either a directory, of which all images
+   * in a supported format are used, or a glob pattern for the file names of a directory, such
+   * as photos/*.jpg.
+   *
+   * @param inputs The directory or glob pattern.
+   * @return The paths of the input images, sorted.
+   * @throws IOException if the directory cannot be read.
+   */
+  public static List<Path> findInputs(String inputs) throws IOException {
+    Path path = Paths.get(inputs);
+    List<Path> images = new ArrayList<>();
+    if (Files.isDirectory(path)) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+        for (Path file : files) {
+          if (Files.isRegularFile(file) && isSupportedImage(file)) {
+            images.add(file);
+          }
+        }
+      }
+    } else {
+      Path directory = path.getParent() == null ? Paths.get(".") : path.getParent();
+      PathMatcher matcher = directory.getFileSystem()
+              .getPathMatcher("glob:" + path.getFileName());
+      if (Files.isDirectory(directory)) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+          for (Path file : files) {
+            if (Files.isRegularFile(file) && matcher.matches(file.getFileName())) {
+              images.add(file);
+            }
+          }
+        }
+      }
+    }
+    Collections.sort(images);
+    return images;
+  }
+
+  /**
+   * Runs the script for every input image and waits until all of them are processed.
+   *
+   * @param inputs The paths of the input images.
+   * @return The report of the batch.
+   */
+  public BatchReport run(List<Path> inputs) {
+    BatchReport report = new BatchReport();
+    ErrorRouter router = installErrorRouter();
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads,
+            Math.max(1, inputs.size())));
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (Path input : inputs) {
+        results.add(pool.submit(() -> process(input, router)));
+      }
+      for (int i = 0; i < inputs.size(); i++) {
+        String errors;
+        try {
+          errors = results.get(i).get();
+        } catch (ExecutionException e) {
+          errors = String.valueOf(e.getCause());
+        }
+        if (errors.isEmpty()) {
+          report.addSuccess(inputs.get(i));
+        } else {
+          report.addFailure(inputs.get(i), errors);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdownNow();
+      uninstallErrorRouter();
+    }
+    return report;
+  }
+
+  /**
+   * Creates the script of an input image out of the template.
+   *
+   * @param input The path of the input image.
+   * @return The lines of the script.
+   */
+  List<String> createScript(Path input) {
+    String fileName = input.getFileName().toString();
+    int extensionStart = fileName.lastIndexOf('.');
+    String name = extensionStart > 0 ? fileName.substring(0, extensionStart) : fileName;
+    List<String> script = new ArrayList<>();
+    for (String line : scriptTemplate) {
+      script.add(line.replace(INPUT_PLACEHOLDER, input.toString())
+              .replace(NAME_PLACEHOLDER, name));
+    }
+    return script;
+  }
+
+  /**
+   * Runs the script of an input image in a session of its own. The images are already processed
+   * in parallel, so the commands of the script run one after the other, and every image the
+   * script creates is removed once the last command reading it has run.
+   *
+   * @param input  The path of the input image.
+   * @param router The router capturing the errors of the worker threads.
+   * @return The errors reported by the script, or an empty string if there were none.
+   */
+  private String process(Path input, ErrorRouter router) {
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    router.capture(errors);
+    try {
+      ImageProcessingCommandHelper helper = new ImageProcessingCommandHelper();
+      helper.create(new ImageModel(new ImageStore()));
+      helper.runScript(createScript(input), 1, true);
+    } catch (ArrayIndexOutOfBoundsException | NullPointerException e) {
+      System.err.println("The script for " + input + " is syntactically not correct.");
+    } catch (RuntimeException e) {
+      System.err.println(e);
+    } finally {
+      router.release();
+    }
+    return new String(errors.toByteArray(), StandardCharsets.UTF_8).trim();
+  }
+
+  /**
+   * Checks whether a file has the extension of a supported image format.
+   *
+   * @param file The file.
+   * @return true if the file is an image this application can load.
+   */
+  private static boolean isSupportedImage(Path file) {
+    String fileName = file.getFileName().toString();
+    String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+    for (ImageFormats format : ImageFormats.values()) {
+      if (format.toString().equalsIgnoreCase(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Routes System.err through an error router while a batch is running. Batches running at the
+   * same time share the router.
+   *
+   * @return The router.
+   */
+  private static synchronized ErrorRouter installErrorRouter() {
+    if (runningBatches++ == 0) {
+      errorRouter = new ErrorRouter(System.err);
+      System.setErr(new PrintStream(errorRouter, true));
+    }
+    return errorRouter;
+  }
+
+  /**
+   * Restores System.err once no batch is running anymore.
+   */
+  private static synchronized void uninstallErrorRouter() {
+    if (--runningBatches == 0) {
+      System.err.flush();
+      System.setErr(errorRouter.getFallback());
+      errorRouter = null;
+    }
+  }
+
+  /**
+   * An output stream that sends what a thread writes to the buffer that thread is capturing to,
+   * or to the fallback stream if it captures nothing.
+   */
+  private static class ErrorRouter extends OutputStream {
+    private final PrintStream fallback;
+    private final ThreadLocal<OutputStream> captured;
+
+    ErrorRouter(PrintStream fallback) {
+      this.fallback = fallback;
+      captured = new ThreadLocal<>();
+    }
+
+    PrintStream getFallback() {
+      return fallback;
+    }
+
+    void capture(OutputStream buffer) {
+      captured.set(buffer);
+    }
+
+    void release() {
+      captured.remove();
+    }
+
+    private OutputStream target() {
+      OutputStream buffer = captured.get();
+      return buffer == null ? fallback : buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      target().write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() {
+      fallback.flush();
+    }
+  }
+}
@@ -13,4 +13,58 @@ public interface Command {
    *                      required for the execution of the command.
    */
   void run(String[] commandParams);
+
+  /**
+   * Gets the names of the images the command reads. Most commands take the form
+   * "command image-name dest-image-name ...", so by default this is the first parameter.
+   *
+   * @param commandParams The parameters of the command, starting with its name.
+   * @return The names of the images read by the command.
+   */
+  default String[] inputNames(String[] commandParams) {
+    return new String[]{commandParams[1]};
+  }
+
+  /**
+   * Gets the names of the images the command creates or replaces. By default this is the second
+   * parameter.
+   *
+   * @param commandParams The parameters of the command, starting with its name.
+   * @return The names of the images written by the command.
+   */
+  default String[] outputNames(String[] commandParams) {
+    return new String[]{commandParams[2]};
+  }
+
+  /**
+   * Gets the paths of the files the command reads.
+   *
+   * @param commandParams The parameters of the command, starting with its name.
+   * @return The paths of the files read by the command.
+   */
+  default String[] inputFiles(String[] commandParams) {
+    return new String[0];
+  }
+
+  /**
+   * Gets the paths of the files the command writes.
+   *
+   * @param commandParams The parameters of the command, starting with its name.
+   * @return The paths of the files written by the command.
+   */
+  default String[] outputFiles(String[] commandParams) {
+    return new String[0];
+  }
+
+  /**
+   * Checks whether the effects of the command are unknown, like those of a command running a
+   * script. Such a command runs only after all the commands before it, and all the commands after
+   * it wait for it.
+   *
+   * @param commandParams The parameters of the command, starting with its name.
+   * @return true if the command has to run on its own.
+   */
+  default boolean isBarrier(String[] commandParams) {
+    return false;
+  }
 }
@@ -3,11 +3,12 @@ package controller;
 import java.awt.image.BufferedImage;
 
 import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * The Features interface defines a set of features for image processing in the application.
- * It provides methods to retrieve pixel matrices, load and save images, process images, and create
- * BufferedImage from pixel matrices.
+ * It provides methods to retrieve rasters, load and save images, process images, and create
+ * BufferedImage from rasters.
  */
 public interface Features {
 
@@ -19,6 +20,14 @@ public interface Features {
    */
   Pixel[][] getPixelMatrixForImage(String imageName);
 
+  /**
+   * Retrieves the raster for the specified image.
+   *
+   * @param imageName The name of the image.
+   * @return The raster representing the image.
+   */
+  PixelRaster getRasterForImage(String imageName);
+
   /**
    * Loads an image based on the provided command parameters.
    *
@@ -52,4 +61,12 @@ public interface Features {
    */
   BufferedImage createImageFromPixels(Pixel[][] pixelMatrix);
 
+  /**
+   * Creates a BufferedImage from the provided raster.
+   *
+   * @param raster The raster representing the image.
+   * @return The BufferedImage created from the raster.
+   */
+  BufferedImage createImageFromRaster(PixelRaster raster);
+
 }
@@ -2,8 +2,10 @@ package controller;
 
 import java.awt.image.BufferedImage;
 
+import model.image.BufferedImageConverter;
 import model.image.ImageModelInterface;
 import model.image.Pixel;
+import model.image.PixelRaster;
 import model.imagetransformation.Methods;
 import view.ViewInterface;
 
@@ -42,7 +44,19 @@ public class GUIController implements ControllerInterface, Features {
    */
   @Override
   public Pixel[][] getPixelMatrixForImage(String imageName) {
-    return this.imageModel.IMAGES_PIXEL_MATRICES.get(imageName);
+    PixelRaster raster = getRasterForImage(imageName);
+    return raster == null ? null : raster.toPixels();
+  }
+
+  /**
+   * Retrieves the raster for the specified image name from the image model.
+   *
+   * @param imageName The name of the image.
+   * @return The raster representing the image.
+   */
+  @Override
+  public PixelRaster getRasterForImage(String imageName) {
+    return this.imageModel.getImage(imageName);
   }
 
 
@@ -103,21 +117,17 @@ public class GUIController implements ControllerInterface, Features {
    */
   @Override
   public BufferedImage createImageFromPixels(Pixel[][] pixelMatrix) {
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-
-    BufferedImage image = new BufferedImage(pixelMatrixCols, pixelMatrixRows,
-            BufferedImage.TYPE_INT_RGB);
+    return createImageFromRaster(PixelRaster.fromPixels(pixelMatrix));
+  }
 
-    Pixel pixel;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        pixel = pixelMatrix[i][j];
-        int pixelVal = (pixel.getAlpha() << 24) | (pixel.getRed() << 16)
-                | (pixel.getGreen() << 8) | pixel.getBlue();
-        image.setRGB(j, i, pixelVal);
-      }
-    }
-    return image;
+  /**
+   * Creates a BufferedImage from the provided raster.
+   *
+   * @param raster The raster representing the image.
+   * @return The BufferedImage created from the raster.
+   */
+  @Override
+  public BufferedImage createImageFromRaster(PixelRaster raster) {
+    return BufferedImageConverter.toBufferedImage(raster, BufferedImage.TYPE_INT_RGB);
   }
 }
@@ -1,21 +1,53 @@
 package controller;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.imageio.ImageIO;
 
+import model.image.BufferedImageConverter;
 import model.image.Pixel;
+import model.image.PixelRaster;
+import model.imagetransformation.WaveletImage;
 
 /**
  * The Helper class contains methods to assist in handling image file operations.
  */
 public class ImageIOHelper {
+  /**
+   * The size of the buffer through which PPM files are written.
+   */
+  private static final int PPM_BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The bytes every HWC file starts with, the last one being the version of the format.
+   */
+  private static final byte[] HWC_MAGIC = {'H', 'W', 'C', 1};
+
+  /**
+   * The version of the HWC files holding the coefficients of lossless images.
+   */
+  private static final int HWC_LOSSLESS_VERSION = 2;
 
   /**
    * Converts an input string to camelCase format.
@@ -39,26 +71,27 @@ public class ImageIOHelper {
    * @return A matrix of Pixel objects representing the image pixels.
    */
   public static Pixel[][] readJPGPNG(String fileName) {
-    Pixel[][] pixelMatrix = null;
+    PixelRaster raster = readJPGPNGRaster(fileName);
+    return raster == null ? null : raster.toPixels();
+  }
+
+  /**
+   * Reads an image in JPG or PNG format and returns its raster.
+   *
+   * @param fileName The name of the image file to be read.
+   * @return A raster representing the image pixels, or null if the image could not be read.
+   */
+  public static PixelRaster readJPGPNGRaster(String fileName) {
+    PixelRaster raster = null;
     try {
       BufferedImage img = ImageIO.read(new File(fileName));
-      pixelMatrix = new Pixel[img.getHeight()][img.getWidth()];
-      for (int i = 0; i < img.getHeight(); i++) {
-        for (int j = 0; j < img.getWidth(); j++) {
-          int pixelVal = img.getRGB(j, i);
-          int alpha = (pixelVal >> 24) & 0xFF;
-          int red = (pixelVal >> 16) & 0xFF;
-          int green = (pixelVal >> 8) & 0xFF;
-          int blue = pixelVal & 0xFF;
-          pixelMatrix[i][j] = new Pixel(red, green, blue, alpha);
-        }
-      }
+      raster = BufferedImageConverter.toRaster(img);
     } catch (FileNotFoundException e) {
       System.err.println("File " + fileName + " not found!");
     } catch (Exception e) {
       System.err.println("Could not open file - " + fileName);
     }
-    return pixelMatrix;
+    return raster;
   }
 
   /**
@@ -68,26 +101,23 @@ public class ImageIOHelper {
    * @param pixelMatrix   The matrix of pixels to be written to the image file.
    */
   public static void writeJPGPNG(String outputImgName, Pixel[][] pixelMatrix) {
+    writeJPGPNG(outputImgName, PixelRaster.fromPixels(pixelMatrix));
+  }
+
+  /**
+   * Writes a raster to a file in JPG or PNG format.
+   *
+   * @param outputImgName The name of the output image file to be written.
+   * @param raster        The raster to be written to the image file.
+   */
+  public static void writeJPGPNG(String outputImgName, PixelRaster raster) {
     try {
-      int pixelMatrixRows = pixelMatrix.length;
-      int pixelMatrixCols = pixelMatrix[0].length;
       String imageFormat = outputImgName.split("\\.")[1];
       BufferedImage img;
       if (imageFormat.equalsIgnoreCase("jpg")) {
-        img = new BufferedImage(pixelMatrixCols, pixelMatrixRows,
-                BufferedImage.TYPE_INT_RGB);
+        img = BufferedImageConverter.toBufferedImage(raster, BufferedImage.TYPE_INT_RGB);
       } else {
-        img = new BufferedImage(pixelMatrixCols, pixelMatrixRows,
-                BufferedImage.TYPE_INT_ARGB);
-      }
-      Pixel pixel;
-      for (int i = 0; i < pixelMatrixRows; i++) {
-        for (int j = 0; j < pixelMatrixCols; j++) {
-          pixel = pixelMatrix[i][j];
-          int pixelVal = (pixel.getAlpha() << 24) | (pixel.getRed() << 16)
-                  | (pixel.getGreen() << 8) | pixel.getBlue();
-          img.setRGB(j, i, pixelVal);
-        }
+        img = BufferedImageConverter.toBufferedImage(raster, BufferedImage.TYPE_INT_ARGB);
       }
       ImageIO.write(img, imageFormat, new File(outputImgName));
       img.flush();
@@ -103,40 +133,81 @@ public class ImageIOHelper {
    * @return A two-dimensional array of pixels representing the PPM image.
    */
   public static Pixel[][] readPPM(String filename) {
-    Scanner sc;
-    try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
+    PixelRaster raster = readPPMRaster(filename);
+    return raster == null ? null : raster.toPixels();
+  }
+
+  /**
+   * Reads a PPM image file and returns its raster. Both plain (P3) and binary (P6) files are
+   * supported; the format is detected from the magic number at the start of the file.
+   *
+   * @param filename The name of the PPM image file to be read.
+   * @return A raster representing the PPM image, or null if the file could not be found.
+   */
+  public static PixelRaster readPPMRaster(String filename) {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      PPMTokenizer tokenizer = new PPMTokenizer(channel);
+      String token = tokenizer.nextToken();
+      boolean binary = token.equals("P6");
+      if (!binary && !token.equals("P3")) {
+        System.out.println("Invalid PPM file: plain RAW file should begin with P3");
+      }
+      int rasterCols = tokenizer.nextInt();
+      int rasterRows = tokenizer.nextInt();
+      PixelRaster raster = new PixelRaster(rasterCols, rasterRows);
+      int maxPixelValue = tokenizer.nextInt();
+      int[] data = raster.getData();
+      if (binary) {
+        if (maxPixelValue < 1 || maxPixelValue > 65535) {
+          System.err.println("Invalid PPM file: the maximum value " + maxPixelValue
+                  + " is not between 1 and 65535");
+          return null;
+        }
+        readBinarySamples(tokenizer, data, maxPixelValue);
+      } else {
+        for (int index = 0; index < data.length; index++) {
+          data[index] = PixelRaster.pack(255, Pixel.clamp(tokenizer.nextInt()),
+                  Pixel.clamp(tokenizer.nextInt()), Pixel.clamp(tokenizer.nextInt()));
+        }
+      }
+      return raster;
+    } catch (NoSuchFileException e) {
       System.err.println("File " + filename + " not found!");
-      return null;
+    } catch (IOException e) {
+      System.err.println("Could not open file - " + filename);
     }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (!s.isEmpty() && s.charAt(0) != '#') {
-        String concat = s + System.lineSeparator();
-        builder.append(concat);
+    return null;
+  }
+
+  /**
+   * Reads the samples of a binary PPM file. Samples take one byte if the maximum value is less
+   * than 256 and two bytes, most significant first, otherwise; unless the maximum value is 255,
+   * samples are scaled to the range of a channel.
+   *
+   * @param tokenizer     The tokenizer positioned at the first sample.
+   * @param data          The array receiving the pixels, row after row.
+   * @param maxPixelValue The maximum sample value given in the header.
+   * @throws IOException if the file cannot be read.
+   */
+  private static void readBinarySamples(PPMTokenizer tokenizer, int[] data, int maxPixelValue)
+          throws IOException {
+    if (maxPixelValue == 255) {
+      for (int index = 0; index < data.length; index++) {
+        data[index] = PixelRaster.pack(255, tokenizer.nextByte(), tokenizer.nextByte(),
+                tokenizer.nextByte());
       }
+      return;
     }
-
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-    String token;
-    token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
-    }
-    int pixelMatrixCols = sc.nextInt();
-    int pixelMatrixRows = sc.nextInt();
-    Pixel[][] pixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    int maxPixelValue = sc.nextInt();
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        pixelMatrix[i][j] = new Pixel(sc.nextInt(), sc.nextInt(), sc.nextInt());
+    boolean twoBytes = maxPixelValue > 255;
+    int[] channels = new int[3];
+    for (int index = 0; index < data.length; index++) {
+      for (int k = 0; k < 3; k++) {
+        int sample = twoBytes ? (tokenizer.nextByte() << 8) | tokenizer.nextByte()
+                : tokenizer.nextByte();
+        channels[k] = Pixel.clamp((sample * 255 + maxPixelValue / 2) / maxPixelValue);
       }
+      data[index] = PixelRaster.pack(255, channels[0], channels[1], channels[2]);
     }
-    return pixelMatrix;
   }
 
 
@@ -147,31 +218,307 @@ public class ImageIOHelper {
    * @param pixelMatrix The pixel matrix representing the PPM image to be written.
    */
   public static void writePPM(String fileName, Pixel[][] pixelMatrix) {
-    FileOutputStream fout;
-    Pixel pixel;
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
+    writePPM(fileName, PixelRaster.fromPixels(pixelMatrix));
+  }
+
+  /**
+   * Writes a plain (P3) PPM image file using the given raster.
+   *
+   * @param fileName The name of the output PPM image file to be written.
+   * @param raster   The raster representing the PPM image to be written.
+   */
+  public static void writePPM(String fileName, PixelRaster raster) {
+    writePPM(fileName, raster, false);
+  }
+
+  /**
+   * Writes a PPM image file using the given raster, either as plain text (P3) with one pixel per
+   * line or in binary (P6) with one byte per sample. The file is written through a buffer, a
+   * block of pixels at a time.
+   *
+   * @param fileName The name of the output PPM image file to be written.
+   * @param raster   The raster representing the PPM image to be written.
+   * @param binary   true to write a binary file, false to write a plain one.
+   */
+  public static void writePPM(String fileName, PixelRaster raster, boolean binary) {
+    FileChannel channel;
+    int rasterRows = raster.getHeight();
+    int rasterCols = raster.getWidth();
     try {
       // open output file to write to
-      fout = new FileOutputStream(fileName, false);
-      // write initial metadata
-      fout.write("P3\n".getBytes());
-      fout.write((pixelMatrixCols + " " + pixelMatrixRows + "\n").getBytes());
-      fout.write(("255\n").getBytes());
+      channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE,
+              StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    try {
-      for (int i = 0; i < pixelMatrixRows; i++) {
-        for (int j = 0; j < pixelMatrixCols; j++) {
-          pixel = pixelMatrix[i][j];
-          fout.write((pixel.getRed() + " " + pixel.getGreen() + " "
-                  + pixel.getBlue() + "\n").getBytes());
+    try (FileChannel out = channel) {
+      ByteBuffer buffer = ByteBuffer.allocate(PPM_BUFFER_SIZE);
+      byte[] bytes = buffer.array();
+      // write initial metadata
+      buffer.put(((binary ? "P6" : "P3") + "\n" + rasterCols + " " + rasterRows + "\n255\n")
+              .getBytes(StandardCharsets.US_ASCII));
+      int position = buffer.position();
+      int[] data = raster.getData();
+      for (int i = 0; i < rasterRows; i++) {
+        int index = raster.rowOffset(i);
+        for (int j = 0; j < rasterCols; j++) {
+          if (position > PPM_BUFFER_SIZE - 12) {
+            flush(out, buffer, position);
+            position = 0;
+          }
+          int argb = data[index++];
+          if (binary) {
+            bytes[position++] = (byte) PixelRaster.red(argb);
+            bytes[position++] = (byte) PixelRaster.green(argb);
+            bytes[position++] = (byte) PixelRaster.blue(argb);
+          } else {
+            position = putSample(bytes, position, PixelRaster.red(argb));
+            bytes[position++] = ' ';
+            position = putSample(bytes, position, PixelRaster.green(argb));
+            bytes[position++] = ' ';
+            position = putSample(bytes, position, PixelRaster.blue(argb));
+            bytes[position++] = '\n';
+          }
         }
       }
-      fout.close();
+      flush(out, buffer, position);
     } catch (IOException e) {
       System.err.println("Error while writing " + fileName);
     }
   }
+
+  /**
+   * Writes the decimal digits of a channel value into a buffer.
+   *
+   * @param bytes    The buffer.
+   * @param position The position of the first digit.
+   * @param value    The channel value, between 0 and 255.
+   * @return The position after the last digit.
+   */
+  private static int putSample(byte[] bytes, int position, int value) {
+    if (value >= 100) {
+      bytes[position++] = (byte) ('0' + value / 100);
+    }
+    if (value >= 10) {
+      bytes[position++] = (byte) ('0' + value / 10 % 10);
+    }
+    bytes[position++] = (byte) ('0' + value % 10);
+    return position;
+  }
+
+  /**
+   * Writes the first bytes of a buffer to a channel.
+   *
+   * @param channel The channel.
+   * @param buffer  The buffer.
+   * @param length  The number of bytes to write.
+   * @throws IOException if the bytes cannot be written.
+   */
+  private static void flush(FileChannel channel, ByteBuffer buffer, int length)
+          throws IOException {
+    buffer.clear();
+    buffer.limit(length);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Writes the wavelet coefficients of an image to an HWC file. After a header with the size of
+   * the image and the number of cycles, the levels of the coefficients follow from the coarsest
+   * to the finest, each as its byte length followed by its coefficients compressed on their own.
+   * The coefficients of a level are run length coded, every value other than 0 being written as
+   * the number of zeros before it and the value itself, and the result is deflated.
+   * Files of lossless images have version 2 instead of 1 and write the values, which may be
+   * negative, as zigzag coded numbers (0, -1, 1, -2, ... as 0, 1, 2, 3, ...) in as few bytes as
+   * needed instead of a single byte.
+   *
+   * @param fileName The name of the output HWC file to be written.
+   * @param image    The coefficients of the image.
+   */
+  public static void writeHWC(String fileName, WaveletImage image) {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName))) {
+      out.write(HWC_MAGIC, 0, HWC_MAGIC.length - 1);
+      out.write(image.isLossless() ? HWC_LOSSLESS_VERSION : HWC_MAGIC[HWC_MAGIC.length - 1]);
+      writeVarInt(out, image.getWidth());
+      writeVarInt(out, image.getHeight());
+      out.write(image.getCycles());
+      for (int level = 0; level <= image.getCycles(); level++) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream levelOut = new BufferedOutputStream(new DeflaterOutputStream(bytes,
+                new Deflater(Deflater.BEST_COMPRESSION)))) {
+          int zeros = 0;
+          for (int value : image.getLevel(level)) {
+            if (value == 0) {
+              zeros++;
+            } else {
+              writeVarInt(levelOut, zeros);
+              if (image.isLossless()) {
+                writeVarInt(levelOut, (value << 1) ^ (value >> 31));
+              } else {
+                levelOut.write(value);
+              }
+              zeros = 0;
+            }
+          }
+        }
+        writeVarInt(out, bytes.size());
+        bytes.writeTo(out);
+      }
+    } catch (IOException e) {
+      System.err.println("Error while writing " + fileName);
+    }
+  }
+
+  /**
+   * Reads an HWC file and returns the image it holds.
+   *
+   * @param fileName The name of the HWC file to be read.
+   * @return A raster representing the image, or null if the file could not be read.
+   */
+  public static PixelRaster readHWCRaster(String fileName) {
+    return readHWCRaster(fileName, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Reads the first levels of an HWC file and returns the image they give, a preview halved in
+   * size for every level left out. Only the levels used are read from the file.
+   *
+   * @param fileName The name of the HWC file to be read.
+   * @param levels   The number of levels after the coarsest one to read, at least 0; all of
+   *                 them give the image saved.
+   * @return A raster representing the image, or null if the number of levels is negative or
+   *         the file could not be read.
+   */
+  public static PixelRaster readHWCRaster(String fileName, int levels) {
+    if (levels < 0) {
+      System.err.println("The number of levels of an HWC file to read cannot be negative.");
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+      for (int i = 0; i < HWC_MAGIC.length - 1; i++) {
+        if (in.read() != HWC_MAGIC[i]) {
+          System.err.println("Invalid HWC file: " + fileName);
+          return null;
+        }
+      }
+      int version = in.read();
+      boolean lossless = version == HWC_LOSSLESS_VERSION;
+      if (!lossless && version != HWC_MAGIC[HWC_MAGIC.length - 1]) {
+        System.err.println("Invalid HWC file: " + fileName);
+        return null;
+      }
+      int width = readVarInt(in);
+      int height = readVarInt(in);
+      int cycles = readByte(in);
+      WaveletImage image = new WaveletImage(width, height, cycles, Math.min(levels, cycles),
+              lossless);
+      for (int level = 0; level <= Math.min(levels, cycles); level++) {
+        byte[] bytes = new byte[readVarInt(in)];
+        readFully(in, bytes);
+        int[] values = new int[3 * image.levelSize(level)];
+        try (InputStream levelIn = new BufferedInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(bytes)))) {
+          int index = 0;
+          int next;
+          // every value read is preceded by the number of zeros before it
+          while ((next = levelIn.read()) != -1) {
+            index += readVarInt(levelIn, next);
+            if (lossless) {
+              int zigzag = readVarInt(levelIn);
+              values[index++] = (zigzag >>> 1) ^ -(zigzag & 1);
+            } else {
+              values[index++] = readByte(levelIn);
+            }
+          }
+        }
+        image.setLevel(level, values);
+      }
+      return image.toRaster();
+    } catch (FileNotFoundException e) {
+      System.err.println("File " + fileName + " not found!");
+    } catch (IOException | ArrayIndexOutOfBoundsException e) {
+      System.err.println("Invalid HWC file: " + fileName);
+    }
+    return null;
+  }
+
+  /**
+   * Writes a non negative number in as few bytes as needed, seven bits at a time starting with
+   * the lowest ones; the highest bit of a byte tells whether more bytes follow.
+   *
+   * @param out   The stream to write to.
+   * @param value The number.
+   * @throws IOException if the number cannot be written.
+   */
+  private static void writeVarInt(OutputStream out, int value) throws IOException {
+    while (value >= 0x80) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  /**
+   * Reads a number written by writeVarInt.
+   *
+   * @param in The stream to read from.
+   * @return The number.
+   * @throws IOException if the number cannot be read.
+   */
+  private static int readVarInt(InputStream in) throws IOException {
+    return readVarInt(in, readByte(in));
+  }
+
+  /**
+   * Reads a number written by writeVarInt whose first byte has already been read.
+   *
+   * @param in    The stream to read the other bytes from.
+   * @param first The first byte.
+   * @return The number.
+   * @throws IOException if the number cannot be read.
+   */
+  private static int readVarInt(InputStream in, int first) throws IOException {
+    int value = first & 0x7F;
+    int shift = 7;
+    while ((first & 0x80) != 0) {
+      first = readByte(in);
+      value |= (first & 0x7F) << shift;
+      shift += 7;
+    }
+    return value;
+  }
+
+  /**
+   * Reads a byte, failing at the end of the stream.
+   *
+   * @param in The stream to read from.
+   * @return The byte, from 0 to 255.
+   * @throws IOException if the stream has ended or cannot be read.
+   */
+  private static int readByte(InputStream in) throws IOException {
+    int value = in.read();
+    if (value == -1) {
+      throw new EOFException();
+    }
+    return value;
+  }
+
+  /**
+   * Fills an array with the next bytes of a stream.
+   *
+   * @param in    The stream to read from.
+   * @param bytes The array.
+   * @throws IOException if the stream ends before the array is full or cannot be read.
+   */
+  private static void readFully(InputStream in, byte[] bytes) throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      int read = in.read(bytes, offset, bytes.length - offset);
+      if (read == -1) {
+        throw new EOFException();
+      }
+      offset += read;
+    }
+  }
 }
@@ -6,14 +6,24 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import model.image.HWCImage;
 import model.image.ImageFormats;
 import model.image.ImageModelInterface;
 import model.image.ImageUtilInterface;
-import model.image.Pixel;
+import model.image.PPMImage;
+import model.image.PixelRaster;
+import model.imagetransformation.DitherMode;
 import model.imagetransformation.Methods;
+import model.metrics.Metrics;
 
 /**
  * The ImageProcessingCommandHelper class assists in executing image processing commands.
@@ -43,14 +53,45 @@ public class ImageProcessingCommandHelper {
       public void run(String[] commandParams) {
         load(commandParams);
       }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[0];
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[2]};
+      }
+
+      @Override
+      public String[] inputFiles(String[] commandParams) {
+        return new String[]{commandParams[1]};
+      }
     });
 
     // Command to save an image
     commandsMap.put("save", new Command() {
       @Override
       public void run(String[] commandParams) {
-        String imageFormat = commandParams[1].split("\\.")[1];
-        fileOperation(imageFormat, FileOperations.WRITE, commandParams);
+        Metrics.OperationTimer timer = Metrics.getDefault().start("save");
+        save(commandParams);
+        timer.stop(getImage(commandParams[2]));
+      }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[2]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[0];
+      }
+
+      @Override
+      public String[] outputFiles(String[] commandParams) {
+        return new String[]{commandParams[1]};
       }
     });
 
@@ -71,6 +112,16 @@ public class ImageProcessingCommandHelper {
         imageModel.processImage(commandParams[2], commandParams[3], Methods.BRIGHTEN,
                 Integer.parseInt(commandParams[1]));
       }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[2]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[3]};
+      }
     });
 
     // Command to vertically flip an image
@@ -89,6 +140,53 @@ public class ImageProcessingCommandHelper {
       }
     });
 
+    // Command to rotate an image clockwise by a multiple of 90 degrees
+    commandsMap.put("rotate", new Command() {
+      @Override
+      public void run(String[] commandParams) {
+        imageModel.processImage(commandParams[2], commandParams[3], Methods.ROTATE,
+                Integer.parseInt(commandParams[1]));
+      }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[2]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[3]};
+      }
+    });
+
+    // Command to transpose an image, its rows becoming its columns
+    commandsMap.put("transpose", new Command() {
+      @Override
+      public void run(String[] commandParams) {
+        imageModel.processImage(commandParams[1], commandParams[2], Methods.TRANSPOSE);
+      }
+    });
+
+    // Command to crop an image to the rectangle of the given size at the given top left corner
+    commandsMap.put("crop", new Command() {
+      @Override
+      public void run(String[] commandParams) {
+        imageModel.processImage(commandParams[5], commandParams[6], Methods.CROP,
+                Integer.parseInt(commandParams[1]), Integer.parseInt(commandParams[2]),
+                Integer.parseInt(commandParams[3]), Integer.parseInt(commandParams[4]));
+      }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[5]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[6]};
+      }
+    });
+
     // Command to convert an image to a value component version of it
     commandsMap.put("value-component", new Command() {
       @Override
@@ -106,6 +204,11 @@ public class ImageProcessingCommandHelper {
         imageModel.processImage(commandParams[1], commandParams[3], Methods.GREEN_COMPONENT);
         imageModel.processImage(commandParams[1], commandParams[4], Methods.BLUE_COMPONENT);
       }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[2], commandParams[3], commandParams[4]};
+      }
     });
 
     // Command to combine red, green, and blue components from three individual images and output
@@ -114,9 +217,19 @@ public class ImageProcessingCommandHelper {
       @Override
       public void run(String[] commandParams) {
         imageModel.processImage(commandParams[2], commandParams[1], Methods.RGB_COMBINE,
-                imageModel.IMAGES_PIXEL_MATRICES.get(commandParams[2]),
-                imageModel.IMAGES_PIXEL_MATRICES.get(commandParams[3]),
-                imageModel.IMAGES_PIXEL_MATRICES.get(commandParams[4]));
+                imageModel.getImage(commandParams[2]),
+                imageModel.getImage(commandParams[3]),
+                imageModel.getImage(commandParams[4]));
+      }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[2], commandParams[3], commandParams[4]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[1]};
       }
     });
 
@@ -148,7 +261,9 @@ public class ImageProcessingCommandHelper {
     commandsMap.put("luma-component", new Command() {
       @Override
       public void run(String[] commandParams) {
-        imageModel.processImage(commandParams[1], commandParams[2], Methods.LUMA_COMPONENT);
+        double splitPercentage = getSplitPercentage(commandParams);
+        imageModel.processImage(commandParams[1], commandParams[2], Methods.LUMA_COMPONENT,
+                splitPercentage);
       }
     });
     // Command to generate an image representing intensity component of that image
@@ -168,6 +283,26 @@ public class ImageProcessingCommandHelper {
       }
     });
 
+    // Command to blur given image with a gaussian kernel of given radius
+    commandsMap.put("gaussian-blur", new Command() {
+      @Override
+      public void run(String[] commandParams) {
+        double splitPercentage = getSplitPercentage(commandParams, 4);
+        imageModel.processImage(commandParams[2], commandParams[3], Methods.GAUSSIAN_BLUR,
+                Integer.parseInt(commandParams[1]), splitPercentage);
+      }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[2]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[3]};
+      }
+    });
+
     // Command to sharpen the given image
     commandsMap.put("sharpen", new Command() {
       @Override
@@ -190,7 +325,29 @@ public class ImageProcessingCommandHelper {
     commandsMap.put("histogram", new Command() {
       @Override
       public void run(String[] commandParams) {
-        imageModel.processImage(commandParams[1], commandParams[2], Methods.HISTOGRAM);
+        // histogram koala koala-histogram [width height] [log] [cumulative]
+        int index = 3;
+        int width = 256;
+        int height = 256;
+        if (index + 1 < commandParams.length && commandParams[index].matches("\\d+")
+                && commandParams[index + 1].matches("\\d+")) {
+          width = Integer.parseInt(commandParams[index++]);
+          height = Integer.parseInt(commandParams[index++]);
+        }
+        boolean logScale = false;
+        boolean cumulative = false;
+        for (; index < commandParams.length; index++) {
+          if (commandParams[index].equals("log")) {
+            logScale = true;
+          } else if (commandParams[index].equals("cumulative")) {
+            cumulative = true;
+          } else {
+            System.err.println("Unknown histogram option: " + commandParams[index]);
+            return;
+          }
+        }
+        imageModel.processImage(commandParams[1], commandParams[2], Methods.HISTOGRAM,
+                width, height, logScale, cumulative);
       }
     });
 
@@ -212,6 +369,16 @@ public class ImageProcessingCommandHelper {
         imageModel.processImage(commandParams[4], commandParams[5], Methods.LEVELS_ADJUST,
                 commandParams[1], commandParams[2], commandParams[3], splitPercentage);
       }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[4]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[5]};
+      }
     });
 
     // command to compress a given image
@@ -221,21 +388,102 @@ public class ImageProcessingCommandHelper {
         imageModel.processImage(commandParams[2], commandParams[3], Methods.IMAGE_COMPRESSION,
                 Integer.parseInt(commandParams[1]));
       }
+
+      @Override
+      public String[] inputNames(String[] commandParams) {
+        return new String[]{commandParams[2]};
+      }
+
+      @Override
+      public String[] outputNames(String[] commandParams) {
+        return new String[]{commandParams[3]};
+      }
     });
 
     // Command to dither an image
     commandsMap.put("dither", new Command() {
       @Override
       public void run(String[] commandParams) {
-        imageModel.processImage(commandParams[1], commandParams[2], Methods.DITHER);
+        // dither koala koala-dither [error-diffusion | bayer [size] | blue-noise]
+        //   [color [levels]] [split p]
+        int index = 3;
+        String mode = DitherMode.ERROR_DIFFUSION.getName();
+        int matrixSize = 4;
+        int colorLevels = 0;
+        if (index < commandParams.length && DitherMode.fromName(commandParams[index]) != null) {
+          mode = commandParams[index++];
+          if (mode.equals(DitherMode.BAYER.getName()) && index < commandParams.length
+                  && commandParams[index].matches("\\d+")) {
+            matrixSize = Integer.parseInt(commandParams[index++]);
+          }
+        }
+        if (index < commandParams.length && commandParams[index].equals("color")) {
+          index++;
+          colorLevels = 2;
+          if (index < commandParams.length && commandParams[index].matches("\\d+")) {
+            colorLevels = Integer.parseInt(commandParams[index++]);
+          }
+        }
+        if (index < commandParams.length && !commandParams[index].equals("split")) {
+          System.err.println("Unknown dither option: " + commandParams[index]);
+          return;
+        }
+        double splitPercentage = getSplitPercentage(commandParams, index);
+        imageModel.processImage(commandParams[1], commandParams[2], Methods.DITHER,
+                splitPercentage, mode, matrixSize, colorLevels);
       }
     });
 
-    // command to run a script file containing various commands
+    // command to run a script file containing various commands, line by line unless a number
+    // of commands run at the same time is given
     commandsMap.put("run", new Command() {
       @Override
       public void run(String[] commandParams) {
-        runScript(commandParams[1]);
+        int threads = commandParams.length > 2 ? Integer.parseInt(commandParams[2]) : 1;
+        if (threads < 1) {
+          System.err.println("The number of threads is invalid. Please enter 1 or more threads.");
+          return;
+        }
+        runScript(commandParams[1], threads);
+      }
+
+      @Override
+      public boolean isBarrier(String[] commandParams) {
+        return true;
+      }
+    });
+
+    // command to print the time taken by every operation so far, or to forget it with
+    // "stats reset"
+    commandsMap.put("stats", new Command() {
+      @Override
+      public void run(String[] commandParams) {
+        if (commandParams.length > 1 && commandParams[1].equals("reset")) {
+          Metrics.getDefault().reset();
+        } else {
+          Metrics.getDefault().printSummary(System.out, imageModel == null
+                  ? ImageModelInterface.IMAGES : imageModel.getStore());
+        }
+      }
+
+      @Override
+      public boolean isBarrier(String[] commandParams) {
+        return true;
+      }
+    });
+
+    // command to run a script file for every image of a directory or glob pattern
+    commandsMap.put("batch", new Command() {
+      @Override
+      public void run(String[] commandParams) {
+        int threads = commandParams.length > 3 ? Integer.parseInt(commandParams[3])
+                : Runtime.getRuntime().availableProcessors();
+        runBatch(commandParams[1], commandParams[2], threads);
+      }
+
+      @Override
+      public boolean isBarrier(String[] commandParams) {
+        return true;
       }
     });
 
@@ -247,10 +495,10 @@ public class ImageProcessingCommandHelper {
    * @param imageFormat   The format of the image to be read or written.
    * @param opName        The operation name (READ or WRITE).
    * @param commandParams Parameters related to the operation.
-   * @return The pixel matrix read from the file, or null in case of a write operation.
+   * @return The raster read from the file, or null in case of a write operation.
    */
-  private Pixel[][] fileOperation(String imageFormat, FileOperations opName,
-                                  String[] commandParams) {
+  private PixelRaster fileOperation(String imageFormat, FileOperations opName,
+                                    String[] commandParams) {
     ImageUtilInterface image = null;
     String className = "model.image." + imageFormat.toUpperCase() + "Image";
     Class<?> imageClass = null;
@@ -268,9 +516,9 @@ public class ImageProcessingCommandHelper {
     }
     if (image != null) {
       if (opName == FileOperations.READ) {
-        return image.readImage(commandParams[1]);
+        return image.readRaster(commandParams[1]);
       } else {
-        image.writeImage(commandParams[1], imageModel.IMAGES_PIXEL_MATRICES.get(commandParams[2]));
+        image.writeRaster(commandParams[1], getImage(commandParams[2]));
       }
     }
     return null;
@@ -283,9 +531,21 @@ public class ImageProcessingCommandHelper {
    * @return The split percentage.
    */
   private double getSplitPercentage(String[] commandParams) {
+    return getSplitPercentage(commandParams, 3);
+  }
+
+  /**
+   * Extracts the split percentage from command parameters in which the "split" keyword may
+   * appear at the given position.
+   *
+   * @param commandParams The command parameters.
+   * @param splitIndex    The position of the "split" keyword.
+   * @return The split percentage.
+   */
+  private double getSplitPercentage(String[] commandParams, int splitIndex) {
     double splitPercentage = 0.0;
-    int indexToCheck = 4;
-    if (indexToCheck < commandParams.length && commandParams[3].equals("split")) {
+    int indexToCheck = splitIndex + 1;
+    if (indexToCheck < commandParams.length && commandParams[splitIndex].equals("split")) {
       double splitVal = Double.parseDouble(commandParams[indexToCheck]);
       if (splitVal > 0 && splitVal < 100) {
         splitPercentage = splitVal / 100;
@@ -303,7 +563,8 @@ public class ImageProcessingCommandHelper {
    */
   private void load(String[] commandParams) {
     // load images/koala.ppm koala
-    Pixel[][] pixelMatrix = null;
+    Metrics.OperationTimer timer = Metrics.getDefault().start("load");
+    PixelRaster raster = null;
     String imageFormat = commandParams[1].split("\\.")[1];
     boolean flag = false;
     for (ImageFormats f : ImageFormats.values()) {
@@ -312,37 +573,174 @@ public class ImageProcessingCommandHelper {
         break;
       }
     }
-    if (flag) {
-      pixelMatrix = fileOperation(imageFormat, FileOperations.READ, commandParams);
-      imageModel.IMAGES_PIXEL_MATRICES.put(commandParams[2], pixelMatrix);
+    if (flag && commandParams.length > 3
+            && imageFormat.equalsIgnoreCase(ImageFormats.HWC.toString())) {
+      // load images/koala.hwc koala-preview 2
+      int levels = Integer.parseInt(commandParams[3]);
+      if (levels >= 0) {
+        raster = new HWCImage().readRaster(commandParams[1], levels);
+        putImage(commandParams[2], raster);
+      } else {
+        System.err.println("The number of levels is invalid. Please enter 0 or more levels.");
+      }
+    } else if (flag) {
+      raster = fileOperation(imageFormat, FileOperations.READ, commandParams);
+      putImage(commandParams[2], raster);
     } else {
       System.err.println(imageFormat + " image format is currently not supported. "
               + "Please load different type of image");
     }
+    timer.stop(raster);
+  }
+
+  /**
+   * Saves an image of the image model to a file.
+   *
+   * @param commandParams The command parameters.
+   */
+  private void save(String[] commandParams) {
+    String imageFormat = commandParams[1].split("\\.")[1];
+    if (commandParams.length > 3 && commandParams[3].equals("binary")) {
+      // save images/koala.ppm koala binary
+      if (imageFormat.equalsIgnoreCase(ImageFormats.PPM.toString())) {
+        new PPMImage(true).writeRaster(commandParams[1], getImage(commandParams[2]));
+      } else {
+        System.err.println("Only PPM images can be saved in binary format.");
+      }
+      return;
+    }
+    if (commandParams.length > 3
+            && imageFormat.equalsIgnoreCase(ImageFormats.HWC.toString())) {
+      // save images/koala.hwc koala 50
+      int percentage = Integer.parseInt(commandParams[3]);
+      if (percentage > 0 && percentage < 100) {
+        new HWCImage(percentage).writeRaster(commandParams[1], getImage(commandParams[2]));
+      } else {
+        System.err.println("The percentage values are invalid. Please enter valid values.");
+      }
+      return;
+    }
+    fileOperation(imageFormat, FileOperations.WRITE, commandParams);
   }
 
   /**
-   * Runs a script containing image processing commands.
+   * Retrieves the raster of the image with the given name. Loading and saving only touch the
+   * image store, so they also work before an image model has been set.
+   *
+   * @param imageName The name of the image.
+   * @return The raster of the image, or null if no image with the given name is loaded.
+   */
+  private PixelRaster getImage(String imageName) {
+    if (imageModel == null) {
+      return ImageModelInterface.IMAGES.get(imageName);
+    }
+    return imageModel.getImage(imageName);
+  }
+
+  /**
+   * Stores the raster of an image under the given name.
+   *
+   * @param imageName The name of the image.
+   * @param raster    The raster of the image.
+   */
+  private void putImage(String imageName, PixelRaster raster) {
+    if (imageModel == null) {
+      ImageModelInterface.IMAGES.put(imageName, raster);
+    } else {
+      imageModel.putImage(imageName, raster);
+    }
+  }
+
+  /**
+   * Removes the image with the given name.
+   *
+   * @param imageName The name of the image.
+   */
+  private void removeImage(String imageName) {
+    if (imageModel == null) {
+      ImageModelInterface.IMAGES.remove(imageName);
+    } else {
+      imageModel.removeImage(imageName);
+    }
+  }
+
+  /**
+   * Runs a script template for every input image, several images at a time, and prints a
+   * summary of the images processed successfully and the errors of those that failed.
+   *
+   * @param filename The name of the script template file.
+   * @param inputs   The directory or glob pattern of the input images.
+   * @param threads  The number of images processed at the same time.
+   */
+  public void runBatch(String filename, String inputs, int threads) {
+    try {
+      List<String> script = Files.readAllLines(Paths.get(filename));
+      List<Path> images = BatchRunner.findInputs(inputs);
+      if (images.isEmpty()) {
+        System.err.println("No images found for " + inputs);
+        return;
+      }
+      new BatchRunner(script, threads).run(images).print(System.out);
+    } catch (NoSuchFileException e) {
+      System.err.println("File " + filename + " not found!");
+    } catch (IOException e) {
+      System.err.println("Error while opening " + filename);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+    }
+  }
+
+  /**
+   * Runs a script containing image processing commands line by line.
    *
    * @param filename The name of the script file containing image processing commands.
    */
   public void runScript(String filename) {
-    try {
-      BufferedReader br = new BufferedReader(new FileReader(filename));
+    runScript(filename, 1);
+  }
+
+  /**
+   * Runs a script containing image processing commands, running commands that do not depend on
+   * each other at the same time if more than one thread is given. If a command fails, later
+   * commands that do not depend on it may already have run.
+   *
+   * @param filename The name of the script file containing image processing commands.
+   * @param threads  The number of commands run at the same time; with 1 the script runs line by
+   *                 line.
+   */
+  public void runScript(String filename, int threads) {
+    List<String> commands = new ArrayList<>();
+    try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
       String line;
       while ((line = br.readLine()) != null) {
-        // skip comments and empty lines
-        if (line.isEmpty() || line.charAt(0) == '#') {
-          continue;
-        }
-        String[] commandParams = line.split(" ");
-        commandsMap.get(commandParams[0]).run(commandParams);
+        commands.add(line);
       }
     } catch (FileNotFoundException e) {
       System.err.println("File " + filename + " not found!");
+      return;
     } catch (IOException e) {
       System.err.println("Error while opening " + filename);
+      return;
     }
+    Metrics.OperationTimer timer = Metrics.getDefault().start("run");
+    // the images of the script stay available for the commands that follow it
+    runScript(commands, threads, false);
+    timer.stop(0);
+  }
+
+  /**
+   * Runs the lines of a script, running commands that do not depend on each other at the same
+   * time. See ScriptScheduler for how the dependencies are found and what happens when a command
+   * fails.
+   *
+   * @param commands             The lines of the script.
+   * @param threads              The number of commands run at the same time.
+   * @param releaseIntermediates Whether to remove the images created by the script once the last
+   *                             command using them has run.
+   */
+  public void runScript(List<String> commands, int threads, boolean releaseIntermediates) {
+    new ScriptScheduler(commandsMap, threads,
+            releaseIntermediates ? this::removeImage : null).run(commands);
   }
 
   /**
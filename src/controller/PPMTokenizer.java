@@ -0,0 +1,169 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the tokens and samples of a PPM file directly from the bytes of a channel. The header
+ * fields and the samples of a plain (P3) file are whitespace separated decimal numbers, and a '#'
+ * starts a comment that runs to the end of the line. The samples of a binary (P6) file follow the
+ * header as raw bytes.
+ * The channel is read in large blocks into a buffer whose bytes are scanned in place, so no
+ * strings are created for the samples.
+ */
+class PPMTokenizer {
+  /**
+   * The number of bytes read from the channel at a time.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] bytes;
+  private int position;
+  private int limit;
+
+  /**
+   * Constructs a tokenizer reading from the given channel.
+   *
+   * @param channel The channel holding the PPM file.
+   */
+  PPMTokenizer(ReadableByteChannel channel) {
+    this.channel = channel;
+    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    bytes = buffer.array();
+  }
+
+  /**
+   * Reads the next whitespace separated token, skipping comments.
+   *
+   * @return The token.
+   * @throws IOException            if the channel cannot be read.
+   * @throws NoSuchElementException if there are no more tokens.
+   */
+  String nextToken() throws IOException, NoSuchElementException {
+    int c = skipWhitespaceAndComments();
+    StringBuilder token = new StringBuilder();
+    while (c >= 0 && !isWhitespace(c)) {
+      token.append((char) c);
+      c = read();
+    }
+    return token.toString();
+  }
+
+  /**
+   * Reads the next decimal number, skipping whitespace and comments. The whitespace character
+   * ending the number is consumed as well, which is where the samples of a binary file start.
+   *
+   * @return The number.
+   * @throws IOException            if the channel cannot be read.
+   * @throws NoSuchElementException if there are no more tokens.
+   * @throws InputMismatchException if the next token is not a number.
+   */
+  int nextInt() throws IOException, NoSuchElementException, InputMismatchException {
+    int c = skipWhitespaceAndComments();
+    boolean negative = false;
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      c = read();
+    }
+    if (c < '0' || c > '9') {
+      throw new InputMismatchException("Expected a number in the PPM file");
+    }
+    long value = 0;
+    while (c >= '0' && c <= '9') {
+      value = Math.min(value * 10 + (c - '0'), Integer.MAX_VALUE);
+      c = read();
+    }
+    if (c >= 0 && !isWhitespace(c) && c != '#') {
+      throw new InputMismatchException("Expected a number in the PPM file");
+    }
+    if (c == '#') {
+      skipComment();
+    }
+    return negative ? (int) -value : (int) value;
+  }
+
+  /**
+   * Reads the next raw byte of a binary file.
+   *
+   * @return The value of the byte, between 0 and 255.
+   * @throws IOException            if the channel cannot be read.
+   * @throws NoSuchElementException if the end of the file has been reached.
+   */
+  int nextByte() throws IOException, NoSuchElementException {
+    int c = read();
+    if (c < 0) {
+      throw new NoSuchElementException("Unexpected end of the PPM file");
+    }
+    return c;
+  }
+
+  /**
+   * Skips whitespace and comments.
+   *
+   * @return The first character of the next token.
+   * @throws IOException            if the channel cannot be read.
+   * @throws NoSuchElementException if there are no more tokens.
+   */
+  private int skipWhitespaceAndComments() throws IOException, NoSuchElementException {
+    int c = read();
+    while (c >= 0 && (isWhitespace(c) || c == '#')) {
+      if (c == '#') {
+        skipComment();
+      }
+      c = read();
+    }
+    if (c < 0) {
+      throw new NoSuchElementException("Unexpected end of the PPM file");
+    }
+    return c;
+  }
+
+  /**
+   * Skips the rest of a comment line.
+   *
+   * @throws IOException if the channel cannot be read.
+   */
+  private void skipComment() throws IOException {
+    int c = read();
+    while (c >= 0 && c != '\n' && c != '\r') {
+      c = read();
+    }
+  }
+
+  /**
+   * Reads the next byte, refilling the buffer from the channel when it is exhausted.
+   *
+   * @return The value of the byte, or -1 at the end of the file.
+   * @throws IOException if the channel cannot be read.
+   */
+  private int read() throws IOException {
+    if (position == limit) {
+      buffer.clear();
+      int count = channel.read(buffer);
+      while (count == 0) {
+        count = channel.read(buffer);
+      }
+      if (count < 0) {
+        return -1;
+      }
+      position = 0;
+      limit = count;
+    }
+    return bytes[position++] & 0xFF;
+  }
+
+  /**
+   * Checks whether a character is PPM whitespace.
+   *
+   * @param c The character.
+   * @return true for blanks, tabs, line feeds, carriage returns, vertical tabs and form feeds.
+   */
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == 0x0B || c == '\f';
+  }
+}
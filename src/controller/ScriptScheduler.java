@@ -0,0 +1,289 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs the commands of a script as a dependency graph instead of line by line. A command depends
+ * on the last command before it writing an image or file it reads, and on the commands before it
+ * reading or writing an image or file it writes, which are found with the input and output names
+ * of the commands. Commands that do not depend on each other, like the operations on the three
+ * images created by rgb-split, run at the same time on a pool of worker threads. A command whose
+ * effects are unknown (see Command.isBarrier), and a line that is no valid command, runs on its
+ * own after all the commands before it.
+ * If a command throws, no further commands are started and the exception is thrown again once
+ * the running ones have finished. With one thread this is the same as running the script line by
+ * line; with more, commands after the failing one that do not depend on it may already have run.
+ * Optionally, an image created by the script is removed as soon as the last command reading it
+ * has run.
+ */
+class ScriptScheduler {
+  private final Map<String, Command> commands;
+  private final int threads;
+  private final Consumer<String> release;
+
+  private final Object lock;
+  private final AtomicReference<Throwable> failure;
+  private ExecutorService pool;
+  private int activeTasks;
+
+  /**
+   * Constructs a scheduler for the given commands.
+   *
+   * @param commands The commands by name.
+   * @param threads  The number of commands run at the same time; with 1 the script runs line by
+   *                 line on the calling thread.
+   * @param release  Removes an image by name once the last command reading it has run, or null to
+   *                 keep all the images.
+   */
+  ScriptScheduler(Map<String, Command> commands, int threads, Consumer<String> release) {
+    this.commands = commands;
+    this.threads = threads;
+    this.release = release;
+    lock = new Object();
+    failure = new AtomicReference<>();
+  }
+
+  /**
+   * Runs the lines of a script, skipping empty lines and comments.
+   *
+   * @param lines The lines of the script.
+   */
+  void run(List<String> lines) {
+    List<Task> tasks = buildGraph(lines);
+    if (threads <= 1 || tasks.size() <= 1) {
+      for (Task task : tasks) {
+        task.execute();
+      }
+      return;
+    }
+    pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+    try {
+      synchronized (lock) {
+        for (Task task : tasks) {
+          if (task.pendingDependencies.get() == 0) {
+            submit(task);
+          }
+        }
+        while (activeTasks > 0) {
+          lock.wait();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdownNow();
+    }
+    Throwable thrown = failure.get();
+    if (thrown instanceof RuntimeException) {
+      throw (RuntimeException) thrown;
+    } else if (thrown instanceof Error) {
+      throw (Error) thrown;
+    }
+  }
+
+  /**
+   * Creates a task for every command of the script and links it to the tasks it depends on.
+   *
+   * @param lines The lines of the script.
+   * @return The tasks, in the order of the script.
+   */
+  private List<Task> buildGraph(List<String> lines) {
+    List<Task> tasks = new ArrayList<>();
+    // images are keyed as "image:name" and files as "file:path"
+    Map<String, Task> lastWriters = new HashMap<>();
+    Map<String, List<Task>> readers = new HashMap<>();
+    Map<String, ImageVersion> versions = new HashMap<>();
+    List<Task> sinceBarrier = new ArrayList<>();
+    Task barrier = null;
+    for (String line : lines) {
+      // skip comments and empty lines
+      if (line.isEmpty() || line.charAt(0) == '#') {
+        continue;
+      }
+      String[] commandParams = line.split(" ");
+      Task task = new Task(commandParams);
+      Set<Task> dependencies = new LinkedHashSet<>();
+      if (barrier != null) {
+        dependencies.add(barrier);
+      }
+      List<String> inputs = new ArrayList<>();
+      List<String> outputs = new ArrayList<>();
+      if (findResources(commandParams, inputs, outputs)) {
+        for (String input : inputs) {
+          addIfPresent(dependencies, lastWriters.get(input));
+          readers.computeIfAbsent(input, key -> new ArrayList<>()).add(task);
+          ImageVersion version = versions.get(input);
+          if (version != null && task.reads.add(version)) {
+            version.pendingReaders.incrementAndGet();
+          }
+        }
+        for (String output : outputs) {
+          addIfPresent(dependencies, lastWriters.get(output));
+          dependencies.addAll(readers.getOrDefault(output, new ArrayList<>()));
+          lastWriters.put(output, task);
+          readers.put(output, new ArrayList<>());
+          if (output.startsWith("image:")) {
+            String imageName = output.substring("image:".length());
+            versions.put(output, new ImageVersion(imageName));
+            task.writes.add(imageName);
+          }
+        }
+        sinceBarrier.add(task);
+      } else {
+        dependencies.addAll(sinceBarrier);
+        // the barrier may use any of the images, so none of them is removed
+        for (ImageVersion version : versions.values()) {
+          version.kept = true;
+        }
+        lastWriters.clear();
+        readers.clear();
+        versions.clear();
+        sinceBarrier.clear();
+        barrier = task;
+      }
+      dependencies.remove(task);
+      task.pendingDependencies.set(dependencies.size());
+      for (Task dependency : dependencies) {
+        dependency.successors.add(task);
+      }
+      tasks.add(task);
+    }
+    return tasks;
+  }
+
+  /**
+   * Finds the images and files a command reads and writes.
+   *
+   * @param commandParams The parameters of the command.
+   * @param inputs        The list the keys of the images and files read are added to.
+   * @param outputs       The list the keys of the images and files written are added to.
+   * @return false if the command has to run on its own.
+   */
+  private boolean findResources(String[] commandParams, List<String> inputs,
+                                List<String> outputs) {
+    Command command = commands.get(commandParams[0]);
+    try {
+      if (command == null || command.isBarrier(commandParams)) {
+        return false;
+      }
+      for (String name : command.inputNames(commandParams)) {
+        inputs.add("image:" + name);
+      }
+      for (String path : command.inputFiles(commandParams)) {
+        inputs.add("file:" + path);
+      }
+      for (String name : command.outputNames(commandParams)) {
+        outputs.add("image:" + name);
+      }
+      for (String path : command.outputFiles(commandParams)) {
+        outputs.add("file:" + path);
+      }
+      return true;
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // a command with missing parameters fails when it runs, as it does line by line
+      return false;
+    }
+  }
+
+  /**
+   * Adds a task to a set of dependencies unless it is null.
+   *
+   * @param dependencies The dependencies.
+   * @param task         The task.
+   */
+  private static void addIfPresent(Set<Task> dependencies, Task task) {
+    if (task != null) {
+      dependencies.add(task);
+    }
+  }
+
+  /**
+   * Submits a task to the pool. Must be called holding the lock.
+   *
+   * @param task The task.
+   */
+  private void submit(Task task) {
+    activeTasks++;
+    pool.execute(() -> {
+      try {
+        if (failure.get() == null) {
+          task.execute();
+        }
+      } catch (RuntimeException | Error e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        synchronized (lock) {
+          if (failure.get() == null) {
+            for (Task successor : task.successors) {
+              if (successor.pendingDependencies.decrementAndGet() == 0) {
+                submit(successor);
+              }
+            }
+          }
+          activeTasks--;
+          lock.notifyAll();
+        }
+      }
+    });
+  }
+
+  /**
+   * An image created by a command of the script, counting the commands still to read it.
+   */
+  private static class ImageVersion {
+    private final String imageName;
+    private final AtomicInteger pendingReaders;
+    private volatile boolean kept;
+
+    ImageVersion(String imageName) {
+      this.imageName = imageName;
+      pendingReaders = new AtomicInteger();
+    }
+  }
+
+  /**
+   * A command of the script with the commands waiting for it.
+   */
+  private class Task {
+    private final String[] commandParams;
+    private final AtomicInteger pendingDependencies;
+    private final List<Task> successors;
+    private final Set<ImageVersion> reads;
+    private final Set<String> writes;
+
+    Task(String[] commandParams) {
+      this.commandParams = commandParams;
+      pendingDependencies = new AtomicInteger();
+      successors = new ArrayList<>();
+      reads = new LinkedHashSet<>();
+      writes = new LinkedHashSet<>();
+    }
+
+    /**
+     * Runs the command, then removes the images it was the last to read.
+     */
+    void execute() {
+      commands.get(commandParams[0]).run(commandParams);
+      if (release == null) {
+        return;
+      }
+      for (ImageVersion version : reads) {
+        // a command replacing the image it reads leaves the new image in place
+        if (version.pendingReaders.decrementAndGet() == 0 && !version.kept
+                && !writes.contains(version.imageName)) {
+          release.accept(version.imageName);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package model.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Converts between rasters and BufferedImages a whole row at a time. For the image types
+ * produced by ImageIO and used by this application (packed int ARGB and RGB, interleaved byte
+ * BGR and ABGR) the samples are read directly from the data buffer of the image; any other type
+ * goes through the row variant of BufferedImage.getRGB. Either way the pixels are the same as
+ * those returned by BufferedImage.getRGB for every single pixel.
+ */
+public class BufferedImageConverter {
+
+  /**
+   * Creates a raster holding the pixels of the given image.
+   *
+   * @param image The image.
+   * @return The raster with the ARGB values of the image.
+   */
+  public static PixelRaster toRaster(BufferedImage image) {
+    return toRaster(image, image.getWidth(), image.getHeight());
+  }
+
+  /**
+   * Creates a raster holding the pixels of the top left region of the given image.
+   *
+   * @param image  The image.
+   * @param width  The width of the region.
+   * @param height The height of the region.
+   * @return The raster with the ARGB values of the region.
+   */
+  public static PixelRaster toRaster(BufferedImage image, int width, int height) {
+    PixelRaster raster = new PixelRaster(width, height);
+    int[] data = raster.getData();
+    WritableRaster imageRaster = image.getRaster();
+    SampleModel sampleModel = imageRaster.getSampleModel();
+    DataBuffer dataBuffer = imageRaster.getDataBuffer();
+    int type = image.getType();
+    if ((type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+            && sampleModel instanceof SinglePixelPackedSampleModel
+            && dataBuffer instanceof DataBufferInt && dataBuffer.getNumBanks() == 1) {
+      int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+      int start = dataBuffer.getOffset() - imageRaster.getSampleModelTranslateY() * stride
+              - imageRaster.getSampleModelTranslateX();
+      copyIntRows(((DataBufferInt) dataBuffer).getData(), start, stride, data, width, height,
+              type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0);
+    } else if ((type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)
+            && sampleModel instanceof ComponentSampleModel
+            && dataBuffer instanceof DataBufferByte && dataBuffer.getNumBanks() == 1) {
+      ComponentSampleModel componentModel = (ComponentSampleModel) sampleModel;
+      int stride = componentModel.getScanlineStride();
+      int pixelStride = componentModel.getPixelStride();
+      int start = dataBuffer.getOffset() - imageRaster.getSampleModelTranslateY() * stride
+              - imageRaster.getSampleModelTranslateX() * pixelStride;
+      copyByteRows(((DataBufferByte) dataBuffer).getData(), start, stride, pixelStride,
+              componentModel.getBandOffsets(), data, width, height);
+    } else {
+      for (int i = 0; i < height; i++) {
+        image.getRGB(0, i, width, 1, data, i * width, width);
+      }
+    }
+    return raster;
+  }
+
+  /**
+   * Creates an image of the given type holding the pixels of the raster. Packed int images are
+   * filled a row at a time; other types go through the row variant of BufferedImage.setRGB.
+   *
+   * @param raster    The raster.
+   * @param imageType The type of the image, one of the BufferedImage.TYPE_ constants.
+   * @return The image.
+   */
+  public static BufferedImage toBufferedImage(PixelRaster raster, int imageType) {
+    int width = raster.getWidth();
+    int height = raster.getHeight();
+    BufferedImage image = new BufferedImage(width, height, imageType);
+    int[] data = raster.getData();
+    if (imageType == BufferedImage.TYPE_INT_ARGB || imageType == BufferedImage.TYPE_INT_RGB) {
+      WritableRaster imageRaster = image.getRaster();
+      // the RGB type has no alpha channel, so setRGB would drop the alpha bits
+      int mask = imageType == BufferedImage.TYPE_INT_RGB ? 0x00FFFFFF : 0xFFFFFFFF;
+      int[] row = new int[width];
+      for (int i = 0; i < height; i++) {
+        int index = raster.rowOffset(i);
+        for (int j = 0; j < width; j++) {
+          row[j] = data[index++] & mask;
+        }
+        imageRaster.setDataElements(0, i, width, 1, row);
+      }
+    } else {
+      for (int i = 0; i < height; i++) {
+        image.setRGB(0, i, width, 1, data, raster.rowOffset(i), raster.getStride());
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Copies the rows of a packed int image into a raster.
+   *
+   * @param samples   The data of the image.
+   * @param start     The index of the first pixel of the image.
+   * @param stride    The distance between two rows of the image.
+   * @param data      The data of the raster.
+   * @param width     The number of pixels per row.
+   * @param height    The number of rows.
+   * @param alphaBits The bits set in every pixel, to make pixels without alpha opaque.
+   */
+  private static void copyIntRows(int[] samples, int start, int stride, int[] data, int width,
+                                  int height, int alphaBits) {
+    for (int i = 0; i < height; i++) {
+      int index = start + i * stride;
+      int outputIndex = i * width;
+      if (alphaBits == 0) {
+        System.arraycopy(samples, index, data, outputIndex, width);
+      } else {
+        for (int j = 0; j < width; j++) {
+          data[outputIndex++] = samples[index++] | alphaBits;
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the rows of an interleaved byte image with three (blue, green, red) or four (alpha,
+   * blue, green, red) bands into a raster.
+   *
+   * @param samples     The data of the image.
+   * @param start       The index of the first sample of the image.
+   * @param stride      The distance between two rows of the image.
+   * @param pixelStride The distance between two pixels of a row.
+   * @param bandOffsets The offsets of the red, green, blue and, if present, alpha samples.
+   * @param data        The data of the raster.
+   * @param width       The number of pixels per row.
+   * @param height      The number of rows.
+   */
+  private static void copyByteRows(byte[] samples, int start, int stride, int pixelStride,
+                                   int[] bandOffsets, int[] data, int width, int height) {
+    int redOffset = bandOffsets[0];
+    int greenOffset = bandOffsets[1];
+    int blueOffset = bandOffsets[2];
+    boolean hasAlpha = bandOffsets.length > 3;
+    int alphaOffset = hasAlpha ? bandOffsets[3] : 0;
+    for (int i = 0; i < height; i++) {
+      int index = start + i * stride;
+      int outputIndex = i * width;
+      for (int j = 0; j < width; j++) {
+        int alpha = hasAlpha ? samples[index + alphaOffset] & 0xFF : 255;
+        data[outputIndex++] = PixelRaster.pack(alpha, samples[index + redOffset] & 0xFF,
+                samples[index + greenOffset] & 0xFF, samples[index + blueOffset] & 0xFF);
+        index += pixelStride;
+      }
+    }
+  }
+}
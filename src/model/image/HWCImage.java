@@ -0,0 +1,66 @@
+package model.image;
+
+import controller.ImageIOHelper;
+import model.imagetransformation.WaveletImage;
+
+/**
+ * Represents an HWC image implementing ImageUtilInterface for reading and writing HWC files,
+ * which hold the Haar wavelet coefficients of an image as computed by compression, run length
+ * coded and deflated level by level. Files are written with a compression percentage, giving the
+ * image the compress command gives, or without one, losslessly with the exact coefficients of the
+ * reversible transformation, giving back the image itself. Reading only the first levels of a
+ * file gives a preview of the image at a reduced size.
+ */
+public class HWCImage implements ImageUtilInterface {
+  private final int percentage;
+
+  /**
+   * Constructs an HWC image that writes lossless files.
+   */
+  public HWCImage() {
+    this(0);
+  }
+
+  /**
+   * Constructs an HWC image that writes files compressed with the given percentage.
+   *
+   * @param percentage The compression percentage, between 1 and 99, or 0 to write a lossless
+   *                   file.
+   */
+  public HWCImage(int percentage) {
+    this.percentage = percentage;
+  }
+
+  /**
+   * Reads an HWC file and returns its raster.
+   *
+   * @param fileName The name of the HWC file to be read.
+   * @return A raster representing the image.
+   */
+  public PixelRaster readRaster(String fileName) {
+    return ImageIOHelper.readHWCRaster(fileName);
+  }
+
+  /**
+   * Reads the first levels of an HWC file and returns the preview they give.
+   *
+   * @param fileName The name of the HWC file to be read.
+   * @param levels   The number of levels after the coarsest one to read.
+   * @return A raster representing the preview, halved in size for every level left out.
+   */
+  public PixelRaster readRaster(String fileName, int levels) {
+    return ImageIOHelper.readHWCRaster(fileName, levels);
+  }
+
+  /**
+   * Writes an HWC file using the given raster.
+   *
+   * @param outputImgName The name of the output HWC file to be written.
+   * @param raster        The raster representing the image to be written.
+   */
+  public void writeRaster(String outputImgName, PixelRaster raster) {
+    WaveletImage image = percentage == 0 ? WaveletImage.transform(raster)
+            : WaveletImage.compress(raster, percentage);
+    ImageIOHelper.writeHWC(outputImgName, image);
+  }
+}
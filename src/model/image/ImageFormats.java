@@ -4,5 +4,5 @@ package model.image;
  * Enum representing various image formats supported by this application.
  */
 public enum ImageFormats {
-  PPM, JPG, PNG
+  PPM, JPG, PNG, HWC
 }
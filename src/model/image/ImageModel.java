@@ -1,20 +1,71 @@
 package model.image;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.function.Function;
 
-import controller.ImageIOHelper;
 import model.imagetransformation.AbstractImageTransformation;
+import model.imagetransformation.ChannelHistogram;
 import model.imagetransformation.Methods;
+import model.imagetransformation.PointOperation;
+import model.imagetransformation.PointPipeline;
+import model.imagetransformation.PointTransformation;
+import model.imagetransformation.TransformationRegistry;
+import model.metrics.Metrics;
 
 /**
  * This abstract class serves as a utility to process image transformation operations.
  * It provides methods to execute image processing methods based on the provided 'Methods' enum.
  */
 public class ImageModel implements ImageModelInterface {
+  private final ImageStore images;
+  private final TransformationRegistry transformations;
 
   /**
-   * Processes the image based on the specified method and additional parameters.
+   * Constructs an image model working on the shared image store IMAGES.
+   */
+  public ImageModel() {
+    this(IMAGES);
+  }
+
+  /**
+   * Constructs an image model working on the given image store.
+   *
+   * @param images The store holding the images of this model.
+   */
+  public ImageModel(ImageStore images) {
+    this(images, TransformationRegistry.getDefault());
+  }
+
+  /**
+   * Constructs an image model working on the given image store with the given transformations.
+   *
+   * @param images          The store holding the images of this model.
+   * @param transformations The registry of the transformations this model applies.
+   */
+  public ImageModel(ImageStore images, TransformationRegistry transformations) {
+    this.images = images;
+    this.transformations = transformations;
+  }
+
+  /**
+   * Creates an image model with a store of its own, configured like the shared store. Models
+   * created this way can process images concurrently on different threads without seeing or
+   * replacing each other's images.
+   *
+   * @return The new image model.
+   */
+  public static ImageModel newSession() {
+    return new ImageModel(ImageStore.fromSystemProperties());
+  }
+
+  /**
+   * Processes the image based on the specified method and additional parameters. The run is
+   * recorded in the default metrics under the name of the method; for point transformations,
+   * which are deferred, that is the time taken to set up the pipeline.
+   * If the histogram of the input image has been counted, as the GUI does to show it, the
+   * histogram of the result of a point transformation is kept up to date at little cost: when the
+   * transformation changes less than half of the columns (a split view), only those columns are
+   * counted, before and after, and otherwise the histogram is counted while the result is
+   * computed.
    *
    * @param inputFileName  The input image file name.
    * @param outputFileName The output image file name.
@@ -23,27 +74,89 @@ public class ImageModel implements ImageModelInterface {
    */
   public void processImage(String inputFileName, String outputFileName, Methods method,
                            Object... otherParams) {
-
-    AbstractImageTransformation transformer;
-    String className = "model.imagetransformation." + ImageIOHelper.camelCase(method.toString());
-    Class<?> transformerClass = null;
-    try {
-      transformerClass = Class.forName(className);
-      Constructor<?> constructor = transformerClass.getConstructor();
-      transformer = (AbstractImageTransformation) constructor.newInstance();
-      Pixel[][] outputPixelMatrix = transformer.generate(inputFileName, outputFileName,
-              IMAGES_PIXEL_MATRICES, otherParams);
-      if (outputPixelMatrix != null) {
-        IMAGES_PIXEL_MATRICES.put(outputFileName, outputPixelMatrix);
+    AbstractImageTransformation transformer = transformations.get(method);
+    if (transformer == null) {
+      System.err.println("No transformation is registered for " + method + ".");
+      return;
+    }
+    Metrics.OperationTimer timer = Metrics.getDefault().start(method.name());
+    PixelRaster inputRaster = images.get(inputFileName);
+    PixelRaster outputRaster = null;
+    Function<PixelRaster, ChannelHistogram> histogramCounter = null;
+    if (transformer instanceof PointTransformation && inputRaster != null) {
+      // point transformations are recorded in a pipeline and only run when the result is read
+      PointTransformation pointTransformation = (PointTransformation) transformer;
+      PointOperation operation = pointTransformation.getPointOperation(inputRaster,
+              otherParams);
+      if (operation != null) {
+        PointPipeline pipeline = PointPipeline.of(inputRaster)
+                .then(operation, pointTransformation.getSplitPercentage(otherParams));
+        ChannelHistogram inputHistogram = images.getCountedHistogram(inputFileName);
+        int changedColumns = pipeline.getChangedColumns();
+        if (inputHistogram != null && 2 * changedColumns < inputRaster.getWidth()) {
+          histogramCounter = raster -> ChannelHistogram.update(inputHistogram, inputRaster,
+                  raster, changedColumns);
+        } else if (inputHistogram != null) {
+          PointPipeline countingPipeline = pipeline.countingHistogram();
+          pipeline = countingPipeline;
+          histogramCounter = raster -> {
+            raster.getData();
+            ChannelHistogram histogram = countingPipeline.getHistogram();
+            return histogram == null ? ChannelHistogram.of(raster) : histogram;
+          };
+        }
+        outputRaster = pipeline.toRaster();
       }
-    } catch (ClassNotFoundException e) {
-      System.err.println("Class name " + className + " for the given model.image type not found. "
-              + "Please check if your class name has a prefix as the model.image extension");
-    } catch (InstantiationException e) {
-      System.err.println("Could not create the instance of " + transformerClass);
-    } catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-      System.err.println("Unable to access the instance of " + className);
+    } else {
+      outputRaster = transformer.generate(inputFileName, outputFileName, images, otherParams);
+    }
+    if (outputRaster != null && histogramCounter != null) {
+      images.put(outputFileName, outputRaster, histogramCounter);
+    } else if (outputRaster != null) {
+      images.put(outputFileName, outputRaster);
     }
+    timer.stop(inputRaster);
+  }
+
+  /**
+   * Retrieves the raster of the image with the given name from the store of this model.
+   *
+   * @param imageName The name of the image.
+   * @return The raster of the image, or null if no image with the given name is loaded.
+   */
+  @Override
+  public PixelRaster getImage(String imageName) {
+    return images.get(imageName);
+  }
+
+  /**
+   * Stores the raster of an image in the store of this model.
+   *
+   * @param imageName The name of the image.
+   * @param raster    The raster of the image.
+   */
+  @Override
+  public void putImage(String imageName, PixelRaster raster) {
+    images.put(imageName, raster);
   }
-}
 
+  /**
+   * Removes an image from the store of this model.
+   *
+   * @param imageName The name of the image.
+   */
+  @Override
+  public void removeImage(String imageName) {
+    images.remove(imageName);
+  }
+
+  /**
+   * Gets the store holding the images of this model.
+   *
+   * @return The image store.
+   */
+  @Override
+  public ImageStore getStore() {
+    return images;
+  }
+}
@@ -1,19 +1,27 @@
 package model.image;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import model.imagetransformation.Methods;
 
 /**
  * This interface defines method to perform various transformations an image represented
- * by a Pixel matrix using processImage method.
+ * by a packed pixel raster using processImage method.
  */
 public interface ImageModelInterface {
   /**
-   * Holds the pixel matrices of various images for processing and manipulation.
+   * Holds the rasters of various images for processing and manipulation. This is the store
+   * shared by the image models created without a store of their own; its memory budget is
+   * configured with system properties (see ImageStore).
    */
-  public Map<String, Pixel[][]> IMAGES_PIXEL_MATRICES = new HashMap<>();
+  public ImageStore IMAGES = ImageStore.fromSystemProperties();
+
+  /**
+   * Holds the pixel matrices of various images for processing and manipulation. This is a view
+   * of IMAGES kept for backward compatibility; every read creates a new pixel matrix out of the
+   * stored raster.
+   */
+  public Map<String, Pixel[][]> IMAGES_PIXEL_MATRICES = new PixelMatrixMap(IMAGES);
 
   /**
    * Processes the image based on the specified method and additional parameters.
@@ -25,4 +33,42 @@ public interface ImageModelInterface {
    */
   public void processImage(String inputFileName, String outputFileName, Methods method,
                            Object... otherParams);
+
+  /**
+   * Retrieves the raster of the image with the given name.
+   *
+   * @param imageName The name of the image.
+   * @return The raster of the image, or null if no image with the given name is loaded.
+   */
+  public default PixelRaster getImage(String imageName) {
+    return IMAGES.get(imageName);
+  }
+
+  /**
+   * Stores the raster of an image under the given name, replacing any image with the same name.
+   *
+   * @param imageName The name of the image.
+   * @param raster    The raster of the image.
+   */
+  public default void putImage(String imageName, PixelRaster raster) {
+    IMAGES.put(imageName, raster);
+  }
+
+  /**
+   * Removes the image with the given name, freeing the memory of its raster.
+   *
+   * @param imageName The name of the image.
+   */
+  public default void removeImage(String imageName) {
+    IMAGES.remove(imageName);
+  }
+
+  /**
+   * Gets the store holding the images of this model.
+   *
+   * @return The image store.
+   */
+  public default ImageStore getStore() {
+    return IMAGES;
+  }
 }
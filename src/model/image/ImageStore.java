@@ -0,0 +1,657 @@
+package model.image;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import model.imagetransformation.ChannelHistogram;
+import model.imagetransformation.PointPipeline;
+import model.imagetransformation.RasterView;
+
+/**
+ * Holds the rasters of the images of the application under their names, within a budget of
+ * memory. When the pixels of the stored images take more bytes than the budget, the least
+ * recently used images are evicted: they are written to a compressed file in the spill directory
+ * and read back transparently the next time they are requested, or, if there is no spill
+ * directory, forgotten. The image that was just stored or requested is never evicted, even if it
+ * alone exceeds the budget.
+ * The memory of an image is that of the arrays it keeps alive, each counted once however many
+ * images share it: the whole array backing a raster, which a crop shares with its source, and for
+ * a deferred raster the array its pixels will take along with the arrays of the raster it is
+ * computed from. An image that keeps a replaced or removed image alive this way is still charged
+ * for it.
+ * A store without a budget keeps every image in memory, like a plain map.
+ * The store is thread-safe, so several sessions (scripts or the GUI) can each work on their own
+ * store, or share one, from different threads. Retrieving an image that is in memory takes no
+ * lock; storing an image replaces its entry atomically with a new one, so a reader sees either
+ * the old or the new image. Only the spilling and reading back of an image lock that image.
+ * The store also keeps the histogram of every image once it has been counted, until the image is
+ * replaced. An image can be stored together with a way to count its histogram more cheaply than
+ * a full pass over its pixels, used when its histogram is first requested.
+ * The default store of the application is configured with the system properties
+ * "imageprocessing.store.budget" (a number of bytes, optionally followed by k, m or g) and
+ * "imageprocessing.store.spill" (the spill directory, or "none" to forget evicted images; by
+ * default evicted images are spilled to a temporary directory).
+ */
+public class ImageStore extends AbstractMap<String, PixelRaster> implements ImageStoreMXBean {
+  /**
+   * The name of the system property holding the memory budget of the default store.
+   */
+  public static final String BUDGET_PROPERTY = "imageprocessing.store.budget";
+
+  /**
+   * The name of the system property holding the spill directory of the default store.
+   */
+  public static final String SPILL_PROPERTY = "imageprocessing.store.spill";
+
+  private final long byteBudget;
+  private final File spillDirectory;
+  private final ConcurrentHashMap<String, StoredImage> images;
+  // every use of an image takes a new stamp from the clock, so the stamps order the images from
+  // the least to the most recently used
+  private final AtomicLong clock;
+  private final AtomicLong residentBytes;
+  // how many images in memory keep each array (or the pixels of a deferred raster) alive
+  private final Map<Object, Integer> retainCounts;
+  private final AtomicInteger spillCount;
+  private final ReentrantLock evictionLock;
+
+  /**
+   * Constructs a store that keeps every image in memory.
+   */
+  public ImageStore() {
+    this(Long.MAX_VALUE, null);
+  }
+
+  /**
+   * Constructs a store with the given memory budget.
+   *
+   * @param byteBudget     The number of bytes the pixels of the images in memory may take.
+   * @param spillDirectory The directory evicted images are written to, or null to forget them.
+   * @throws IllegalArgumentException if the budget is not positive or the spill directory
+   *                                  cannot be created.
+   */
+  public ImageStore(long byteBudget, File spillDirectory) throws IllegalArgumentException {
+    if (byteBudget <= 0) {
+      throw new IllegalArgumentException("The memory budget must be positive.");
+    }
+    if (spillDirectory != null && !spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+      throw new IllegalArgumentException("Could not create the spill directory "
+              + spillDirectory);
+    }
+    this.byteBudget = byteBudget;
+    this.spillDirectory = spillDirectory;
+    images = new ConcurrentHashMap<>();
+    clock = new AtomicLong();
+    residentBytes = new AtomicLong();
+    spillCount = new AtomicInteger();
+    evictionLock = new ReentrantLock();
+    retainCounts = new IdentityHashMap<>();
+  }
+
+  /**
+   * Creates the store configured by the system properties, see the class description.
+   *
+   * @return The configured store; it has no budget if none is configured or the configuration
+   *         is invalid.
+   */
+  public static ImageStore fromSystemProperties() {
+    String budget = System.getProperty(BUDGET_PROPERTY);
+    if (budget == null || budget.trim().isEmpty()) {
+      return new ImageStore();
+    }
+    try {
+      long byteBudget = parseBytes(budget.trim());
+      String spill = System.getProperty(SPILL_PROPERTY, "").trim();
+      File spillDirectory;
+      if (spill.equalsIgnoreCase("none")) {
+        spillDirectory = null;
+      } else if (spill.isEmpty()) {
+        spillDirectory = Files.createTempDirectory("imageprocessing").toFile();
+        spillDirectory.deleteOnExit();
+      } else {
+        spillDirectory = new File(spill);
+      }
+      return new ImageStore(byteBudget, spillDirectory);
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("Invalid image store configuration: " + e.getMessage()
+              + " Keeping all images in memory.");
+      return new ImageStore();
+    }
+  }
+
+  /**
+   * Gets the memory budget of the store.
+   *
+   * @return The number of bytes the pixels of the images in memory may take.
+   */
+  @Override
+  public long getByteBudget() {
+    return byteBudget;
+  }
+
+  /**
+   * Gets the number of bytes taken by the pixels of the images currently in memory.
+   *
+   * @return The number of bytes.
+   */
+  @Override
+  public long getResidentBytes() {
+    return residentBytes.get();
+  }
+
+  /**
+   * Gets the number of images in the store, in memory or spilled.
+   *
+   * @return The number of images.
+   */
+  @Override
+  public int getImageCount() {
+    return size();
+  }
+
+  /**
+   * Gets the number of times an image has been written to the spill directory.
+   *
+   * @return The number of spills.
+   */
+  @Override
+  public int getSpillCount() {
+    return spillCount.get();
+  }
+
+  /**
+   * Checks whether the image with the given name is stored and currently in memory.
+   *
+   * @param imageName The name of the image.
+   * @return true if the image is in memory, false if it is spilled or not stored.
+   */
+  public boolean isResident(String imageName) {
+    StoredImage image = images.get(imageName);
+    return image != null && image.raster != null;
+  }
+
+  /**
+   * Retrieves the raster of the image with the given name, reading it back from the spill
+   * directory if it has been evicted.
+   *
+   * @param imageName The name of the image.
+   * @return The raster, or null if no image with the given name is stored.
+   */
+  @Override
+  public PixelRaster get(Object imageName) {
+    StoredImage image = images.get(imageName);
+    if (image == null) {
+      return null;
+    }
+    image.lastUse = clock.incrementAndGet();
+    PixelRaster raster = image.raster;
+    if (raster != null || image.spillFile == null) {
+      return raster;
+    }
+    synchronized (image) {
+      if (image.spillFile == null) {
+        // read back or removed by another thread in the meantime
+        return image.raster;
+      }
+      try {
+        raster = readSpillFile(image.spillFile);
+      } catch (IOException e) {
+        System.err.println("Could not read back image " + imageName + ": " + e.getMessage());
+        images.remove(imageName, image);
+        image.released = true;
+        deleteSpillFile(image);
+        return null;
+      }
+      deleteSpillFile(image);
+      image.raster = raster;
+      image.arrays = retainedArrays(raster);
+      retain(image.arrays);
+    }
+    evict(image);
+    return raster;
+  }
+
+  /**
+   * Stores the raster of an image under the given name, evicting the least recently used
+   * images if the budget is exceeded.
+   *
+   * @param imageName The name of the image.
+   * @param raster    The raster of the image.
+   * @return The raster previously stored under the name, or null if there was none. A previous
+   *         raster that was spilled is not read back and null is returned.
+   */
+  @Override
+  public PixelRaster put(String imageName, PixelRaster raster) {
+    StoredImage image = new StoredImage(raster, clock.incrementAndGet());
+    retain(image.arrays);
+    PixelRaster previousRaster = release(images.put(imageName, image));
+    evict(image);
+    return previousRaster;
+  }
+
+  /**
+   * Stores the raster of an image under the given name, like put, with the function used to
+   * count its histogram when it is first requested instead of counting every pixel.
+   *
+   * @param imageName The name of the image.
+   * @param raster    The raster of the image.
+   * @param counter   The function counting the histogram of the raster, given the raster.
+   */
+  public void put(String imageName, PixelRaster raster,
+                  Function<PixelRaster, ChannelHistogram> counter) {
+    StoredImage image = new StoredImage(raster, clock.incrementAndGet());
+    image.histogramCounter = counter;
+    retain(image.arrays);
+    release(images.put(imageName, image));
+    evict(image);
+  }
+
+  /**
+   * Gets the histogram of the image with the given name, counting it if it has not been counted
+   * since the image was stored.
+   *
+   * @param imageName The name of the image.
+   * @return The histogram, or null if no image with the given name is stored.
+   */
+  public ChannelHistogram getHistogram(String imageName) {
+    while (true) {
+      StoredImage image = images.get(imageName);
+      if (image == null) {
+        return null;
+      }
+      ChannelHistogram histogram = image.histogram;
+      if (histogram != null) {
+        return histogram;
+      }
+      PixelRaster raster = get(imageName);
+      if (raster == null || images.get(imageName) != image) {
+        // replaced or removed in the meantime
+        continue;
+      }
+      Function<PixelRaster, ChannelHistogram> counter = image.histogramCounter;
+      histogram = counter == null ? ChannelHistogram.of(raster) : counter.apply(raster);
+      image.histogram = histogram;
+      image.histogramCounter = null;
+      return histogram;
+    }
+  }
+
+  /**
+   * Gets the histogram of the image with the given name if it has already been counted.
+   *
+   * @param imageName The name of the image.
+   * @return The histogram, or null if it has not been counted or no such image is stored.
+   */
+  public ChannelHistogram getCountedHistogram(String imageName) {
+    StoredImage image = images.get(imageName);
+    return image == null ? null : image.histogram;
+  }
+
+  /**
+   * Removes the image with the given name.
+   *
+   * @param imageName The name of the image.
+   * @return The removed raster, or null if there was none or it was spilled.
+   */
+  @Override
+  public PixelRaster remove(Object imageName) {
+    return release(images.remove(imageName));
+  }
+
+  @Override
+  public boolean containsKey(Object imageName) {
+    return images.containsKey(imageName);
+  }
+
+  @Override
+  public int size() {
+    return images.size();
+  }
+
+  @Override
+  public void clear() {
+    for (String imageName : images.keySet()) {
+      remove(imageName);
+    }
+  }
+
+  /**
+   * Gets the entries of the store. The entries are a snapshot of the names of the stored images;
+   * their rasters are only retrieved, and read back if needed, when getValue is called.
+   *
+   * @return The entries of the store.
+   */
+  @Override
+  public Set<Entry<String, PixelRaster>> entrySet() {
+    return new AbstractSet<Entry<String, PixelRaster>>() {
+      @Override
+      public Iterator<Entry<String, PixelRaster>> iterator() {
+        Iterator<String> iterator = new ArrayList<>(images.keySet()).iterator();
+        return new Iterator<Entry<String, PixelRaster>>() {
+          private String current;
+
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public Entry<String, PixelRaster> next() {
+            current = iterator.next();
+            String name = current;
+            return new SimpleEntry<String, PixelRaster>(name, null) {
+              @Override
+              public PixelRaster getValue() {
+                return get(name);
+              }
+
+              @Override
+              public PixelRaster setValue(PixelRaster raster) {
+                return put(name, raster);
+              }
+            };
+          }
+
+          @Override
+          public void remove() {
+            if (current == null) {
+              throw new IllegalStateException();
+            }
+            ImageStore.this.remove(current);
+            current = null;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return ImageStore.this.size();
+      }
+    };
+  }
+
+  /**
+   * Evicts the least recently used images until the images in memory fit in the budget. Only
+   * one thread evicts at a time.
+   *
+   * @param keep The image that must stay in memory.
+   */
+  private void evict(StoredImage keep) {
+    if (residentBytes.get() <= byteBudget) {
+      return;
+    }
+    evictionLock.lock();
+    try {
+      // the stamps are unique, so they order a snapshot of the images by their last use
+      TreeMap<Long, Map.Entry<String, StoredImage>> leastRecentlyUsed = new TreeMap<>();
+      for (Map.Entry<String, StoredImage> entry : images.entrySet()) {
+        leastRecentlyUsed.put(entry.getValue().lastUse,
+                new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+      }
+      for (Map.Entry<String, StoredImage> entry : leastRecentlyUsed.values()) {
+        if (residentBytes.get() <= byteBudget) {
+          break;
+        }
+        if (entry.getValue() != keep) {
+          evict(entry.getKey(), entry.getValue());
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Evicts an image from memory, spilling it if there is a spill directory.
+   *
+   * @param imageName The name of the image.
+   * @param image     The image.
+   */
+  private void evict(String imageName, StoredImage image) {
+    synchronized (image) {
+      if (image.released || image.raster == null) {
+        return;
+      }
+      if (spillDirectory == null) {
+        images.remove(imageName, image);
+        image.released = true;
+      } else {
+        try {
+          image.spillFile = writeSpillFile(image.raster);
+        } catch (IOException e) {
+          System.err.println("Could not spill image " + imageName + ": " + e.getMessage());
+          return;
+        }
+      }
+      image.raster = null;
+      drop(image.arrays);
+    }
+  }
+
+  /**
+   * Frees the memory and spill file of an image that is no longer stored.
+   *
+   * @param image The image, or null.
+   * @return The raster of the image if it was in memory, null otherwise.
+   */
+  private PixelRaster release(StoredImage image) {
+    if (image == null) {
+      return null;
+    }
+    synchronized (image) {
+      PixelRaster raster = image.raster;
+      if (!image.released && raster != null) {
+        drop(image.arrays);
+      }
+      image.released = true;
+      image.raster = null;
+      deleteSpillFile(image);
+      return raster;
+    }
+  }
+
+  /**
+   * Finds the arrays a raster keeps alive and their sizes: the array backing it, or for a
+   * deferred raster the pixels it will compute along with the arrays of its source.
+   *
+   * @param raster The raster, or null.
+   * @return The size in bytes of every array, keyed by the array itself, or by the raster for
+   *         the pixels of a deferred raster.
+   */
+  private static Map<Object, Long> retainedArrays(PixelRaster raster) {
+    Map<Object, Long> arrays = new IdentityHashMap<>();
+    while (raster != null) {
+      Consumer<int[]> producer = raster.getProducer();
+      if (producer == null) {
+        int[] data = raster.getData();
+        arrays.put(data, 4L * data.length);
+        break;
+      }
+      arrays.put(raster, 4L * raster.getWidth() * raster.getHeight());
+      if (producer instanceof PointPipeline) {
+        raster = ((PointPipeline) producer).getSource();
+      } else if (producer instanceof RasterView) {
+        raster = ((RasterView) producer).getSource();
+      } else {
+        raster = null;
+      }
+    }
+    return arrays;
+  }
+
+  /**
+   * Counts the arrays of an image that has come into memory, adding the size of those no other
+   * image in memory keeps alive to the resident bytes.
+   *
+   * @param arrays The arrays of the image and their sizes.
+   */
+  private void retain(Map<Object, Long> arrays) {
+    synchronized (retainCounts) {
+      for (Map.Entry<Object, Long> array : arrays.entrySet()) {
+        if (retainCounts.merge(array.getKey(), 1, Integer::sum) == 1) {
+          residentBytes.addAndGet(array.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Forgets the arrays of an image that has left memory, subtracting the size of those no other
+   * image in memory keeps alive from the resident bytes.
+   *
+   * @param arrays The arrays of the image and their sizes.
+   */
+  private void drop(Map<Object, Long> arrays) {
+    synchronized (retainCounts) {
+      for (Map.Entry<Object, Long> array : arrays.entrySet()) {
+        int count = retainCounts.get(array.getKey());
+        if (count == 1) {
+          retainCounts.remove(array.getKey());
+          residentBytes.addAndGet(-array.getValue());
+        } else {
+          retainCounts.put(array.getKey(), count - 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a raster to a new spill file: its width and height followed by its pixels, row after
+   * row, compressed with deflate.
+   *
+   * @param raster The raster.
+   * @return The spill file.
+   * @throws IOException if the file cannot be written.
+   */
+  private File writeSpillFile(PixelRaster raster) throws IOException {
+    File file = new File(spillDirectory, "image" + spillCount.getAndIncrement() + ".spill");
+    file.deleteOnExit();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file)), deflater, 1 << 16))) {
+      int width = raster.getWidth();
+      int height = raster.getHeight();
+      out.writeInt(width);
+      out.writeInt(height);
+      int[] data = raster.getData();
+      byte[] row = new byte[width * 4];
+      for (int i = 0; i < height; i++) {
+        int index = raster.rowOffset(i);
+        for (int j = 0; j < row.length; j += 4) {
+          int argb = data[index++];
+          row[j] = (byte) (argb >>> 24);
+          row[j + 1] = (byte) (argb >>> 16);
+          row[j + 2] = (byte) (argb >>> 8);
+          row[j + 3] = (byte) argb;
+        }
+        out.write(row);
+      }
+    } finally {
+      deflater.end();
+    }
+    return file;
+  }
+
+  /**
+   * Reads a raster from a spill file.
+   *
+   * @param file The spill file.
+   * @return The raster.
+   * @throws IOException if the file cannot be read.
+   */
+  private static PixelRaster readSpillFile(File file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+            new BufferedInputStream(new FileInputStream(file)), new Inflater(),
+            1 << 16))) {
+      int width = in.readInt();
+      int height = in.readInt();
+      PixelRaster raster = new PixelRaster(width, height);
+      int[] data = raster.getData();
+      byte[] row = new byte[width * 4];
+      for (int i = 0; i < height; i++) {
+        in.readFully(row);
+        int index = i * width;
+        for (int j = 0; j < row.length; j += 4) {
+          data[index++] = ((row[j] & 0xFF) << 24) | ((row[j + 1] & 0xFF) << 16)
+                  | ((row[j + 2] & 0xFF) << 8) | (row[j + 3] & 0xFF);
+        }
+      }
+      return raster;
+    }
+  }
+
+  /**
+   * Deletes the spill file of an image, if it has one.
+   *
+   * @param image The image.
+   */
+  private static void deleteSpillFile(StoredImage image) {
+    if (image != null && image.spillFile != null) {
+      if (!image.spillFile.delete()) {
+        image.spillFile.deleteOnExit();
+      }
+      image.spillFile = null;
+    }
+  }
+
+  /**
+   * Parses a number of bytes, optionally followed by k, m or g.
+   *
+   * @param value The text to parse.
+   * @return The number of bytes.
+   * @throws NumberFormatException if the text is not a number of bytes.
+   */
+  private static long parseBytes(String value) throws NumberFormatException {
+    char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+    int shift = unit == 'k' ? 10 : unit == 'm' ? 20 : unit == 'g' ? 30 : 0;
+    String number = shift == 0 ? value : value.substring(0, value.length() - 1);
+    return Long.parseLong(number.trim()) << shift;
+  }
+
+  /**
+   * An image of the store, either in memory or spilled to a file. Storing an image under a name
+   * always creates a new entry, so an entry only ever holds one raster.
+   */
+  private static class StoredImage {
+    // the arrays the raster keeps alive, counted while it is in memory
+    private volatile Map<Object, Long> arrays;
+    private volatile PixelRaster raster;
+    private volatile File spillFile;
+    private volatile long lastUse;
+    private volatile ChannelHistogram histogram;
+    private volatile Function<PixelRaster, ChannelHistogram> histogramCounter;
+    // set once the entry has left the store; guarded by the entry itself
+    private boolean released;
+
+    StoredImage(PixelRaster raster, long lastUse) {
+      this.raster = raster;
+      this.lastUse = lastUse;
+      arrays = retainedArrays(raster);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package model.image;
+
+/**
+ * The management interface of an image store, as shown by JMX consoles such as JConsole under
+ * imageprocessing:type=ImageStore.
+ */
+public interface ImageStoreMXBean {
+  /**
+   * Gets the number of images in the store, in memory or spilled.
+   *
+   * @return The number of images.
+   */
+  int getImageCount();
+
+  /**
+   * Gets the number of bytes taken by the pixels of the images currently in memory.
+   *
+   * @return The number of bytes.
+   */
+  long getResidentBytes();
+
+  /**
+   * Gets the memory budget of the store.
+   *
+   * @return The number of bytes the pixels of the images in memory may take.
+   */
+  long getByteBudget();
+
+  /**
+   * Gets the number of times an image has been written to the spill directory.
+   *
+   * @return The number of spills.
+   */
+  int getSpillCount();
+}
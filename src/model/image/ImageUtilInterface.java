@@ -1,16 +1,35 @@
 package model.image;
 
 /**
- * This interface defines methods to read and write an image represented by a Pixel matrix.
+ * This interface defines methods to read and write an image represented by a packed pixel raster.
  */
 public interface ImageUtilInterface {
+  /**
+   * Reads an image from the given file and returns its raster.
+   *
+   * @param fileName The name of the file containing the image.
+   * @return A raster representing the image read from the file, or null if it could not be read.
+   */
+  PixelRaster readRaster(String fileName);
+
+  /**
+   * Writes the provided raster to an image file with the given output name.
+   *
+   * @param outputImgName The name of the output image file to be created.
+   * @param raster        The raster representing the image to be written to the file.
+   */
+  void writeRaster(String outputImgName, PixelRaster raster);
+
   /**
    * Reads an image from the given file and returns the pixel matrix.
    *
    * @param fileName The name of the file containing the image.
    * @return A Pixel matrix representing the image read from the file.
    */
-  Pixel[][] readImage(String fileName);
+  default Pixel[][] readImage(String fileName) {
+    PixelRaster raster = readRaster(fileName);
+    return raster == null ? null : raster.toPixels();
+  }
 
   /**
    * Writes the provided Pixel matrix to an image file with the given output name.
@@ -18,6 +37,8 @@ public interface ImageUtilInterface {
    * @param outputImgName The name of the output image file to be created.
    * @param pixelMatrix   The Pixel matrix representing the image to be written to the file.
    */
-  void writeImage(String outputImgName, Pixel[][] pixelMatrix);
+  default void writeImage(String outputImgName, Pixel[][] pixelMatrix) {
+    writeRaster(outputImgName, PixelRaster.fromPixels(pixelMatrix));
+  }
 
 }
@@ -8,22 +8,22 @@ import controller.ImageIOHelper;
 public class PNGImage implements ImageUtilInterface {
 
   /**
-   * Reads a PNG image file and returns the pixel matrix.
+   * Reads a PNG image file and returns its raster.
    *
    * @param fileName The name of the PNG image file to be read.
-   * @return A two-dimensional array of pixels representing the PNG image.
+   * @return A raster representing the PNG image.
    */
-  public Pixel[][] readImage(String fileName) {
-    return ImageIOHelper.readJPGPNG(fileName);
+  public PixelRaster readRaster(String fileName) {
+    return ImageIOHelper.readJPGPNGRaster(fileName);
   }
 
   /**
-   * Writes a PNG image file using the given pixel matrix.
+   * Writes a PNG image file using the given raster.
    *
    * @param outputImgName The name of the output PNG image file to be written.
-   * @param pixelMatrix   The pixel matrix representing the PNG image to be written.
+   * @param raster        The raster representing the PNG image to be written.
    */
-  public void writeImage(String outputImgName, Pixel[][] pixelMatrix) {
-    ImageIOHelper.writeJPGPNG(outputImgName, pixelMatrix);
+  public void writeRaster(String outputImgName, PixelRaster raster) {
+    ImageIOHelper.writeJPGPNG(outputImgName, raster);
   }
 }
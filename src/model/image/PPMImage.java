@@ -4,27 +4,45 @@ import controller.ImageIOHelper;
 
 /**
  * Represents a PPM image implementing ImageUtilInterface for reading and writing PPM image files.
+ * Plain (P3) and binary (P6) files are read alike; files are written as plain PPM unless the
+ * binary format is requested.
  */
 public class PPMImage implements ImageUtilInterface {
+  private final boolean binary;
 
+  /**
+   * Constructs a PPM image that writes plain (P3) files.
+   */
+  public PPMImage() {
+    this(false);
+  }
+
+  /**
+   * Constructs a PPM image that writes files in the given format.
+   *
+   * @param binary true to write binary (P6) files, false to write plain (P3) files.
+   */
+  public PPMImage(boolean binary) {
+    this.binary = binary;
+  }
 
   /**
-   * Reads a PPM image file and returns the pixel matrix.
+   * Reads a plain or binary PPM image file and returns its raster.
    *
    * @param filename The name of the PPM image file to be read.
-   * @return A two-dimensional array of pixels representing the PPM image.
+   * @return A raster representing the PPM image.
    */
-  public Pixel[][] readImage(String filename) {
-    return ImageIOHelper.readPPM(filename);
+  public PixelRaster readRaster(String filename) {
+    return ImageIOHelper.readPPMRaster(filename);
   }
 
   /**
-   * Writes a PPM image file using the given pixel matrix.
+   * Writes a PPM image file using the given raster.
    *
    * @param fileName    The name of the output PPM image file to be written.
-   * @param pixelMatrix The pixel matrix representing the PPM image to be written.
+   * @param raster      The raster representing the PPM image to be written.
    */
-  public void writeImage(String fileName, Pixel[][] pixelMatrix) {
-    ImageIOHelper.writePPM(fileName, pixelMatrix);
+  public void writeRaster(String fileName, PixelRaster raster) {
+    ImageIOHelper.writePPM(fileName, raster, binary);
   }
 }
@@ -0,0 +1,92 @@
+package model.image;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map of pixel matrices backed by a map of rasters. It keeps the older Pixel[][] based view of
+ * the loaded images working: every read converts the stored raster into a new pixel matrix and
+ * every write converts the given pixel matrix into a raster.
+ */
+class PixelMatrixMap extends AbstractMap<String, Pixel[][]> {
+  private final Map<String, PixelRaster> rasters;
+
+  /**
+   * Constructs a pixel matrix view of the given rasters.
+   *
+   * @param rasters The map of rasters backing this view.
+   */
+  PixelMatrixMap(Map<String, PixelRaster> rasters) {
+    this.rasters = rasters;
+  }
+
+  @Override
+  public Pixel[][] get(Object imageName) {
+    PixelRaster raster = rasters.get(imageName);
+    return raster == null ? null : raster.toPixels();
+  }
+
+  @Override
+  public Pixel[][] put(String imageName, Pixel[][] pixelMatrix) {
+    PixelRaster previous = rasters.put(imageName, PixelRaster.fromPixels(pixelMatrix));
+    return previous == null ? null : previous.toPixels();
+  }
+
+  @Override
+  public Pixel[][] remove(Object imageName) {
+    PixelRaster previous = rasters.remove(imageName);
+    return previous == null ? null : previous.toPixels();
+  }
+
+  @Override
+  public boolean containsKey(Object imageName) {
+    return rasters.containsKey(imageName);
+  }
+
+  @Override
+  public int size() {
+    return rasters.size();
+  }
+
+  @Override
+  public void clear() {
+    rasters.clear();
+  }
+
+  @Override
+  public Set<Entry<String, Pixel[][]>> entrySet() {
+    return new AbstractSet<Entry<String, Pixel[][]>>() {
+      @Override
+      public Iterator<Entry<String, Pixel[][]>> iterator() {
+        Iterator<Entry<String, PixelRaster>> iterator = rasters.entrySet().iterator();
+        return new Iterator<Entry<String, Pixel[][]>>() {
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public Entry<String, Pixel[][]> next() {
+            Entry<String, PixelRaster> entry = iterator.next();
+            PixelRaster raster = entry.getValue();
+            return new SimpleImmutableEntry<>(entry.getKey(),
+                    raster == null ? null : raster.toPixels());
+          }
+
+          @Override
+          public void remove() {
+            iterator.remove();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return rasters.size();
+      }
+    };
+  }
+}
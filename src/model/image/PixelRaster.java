@@ -0,0 +1,334 @@
+package model.image;
+
+import java.util.function.Consumer;
+
+import model.imagetransformation.PointPipeline;
+import model.imagetransformation.RasterView;
+import model.metrics.Metrics;
+
+/**
+ * Represents an image as a packed raster of pixels. Every pixel is stored as a single ARGB int
+ * (alpha in the highest byte, followed by red, green, and blue) inside one flat int array, so an
+ * image costs four bytes per pixel instead of one heap object per pixel.
+ * Row r of the raster starts at index offset + r * stride of the backing array.
+ * A raster is filled by the code that creates it and is treated as read-only once it has been
+ * handed over to the image model.
+ * A raster can also be deferred: its pixels are then computed by a producer the first time they
+ * are accessed, so that an image nobody reads is never computed.
+ */
+public class PixelRaster {
+  private final int width;
+  private final int height;
+  private final int offset;
+  private final int stride;
+  private volatile int[] data;
+  private Consumer<int[]> producer;
+
+  /**
+   * Constructs a new raster of the given size with all pixels set to zero (transparent black).
+   *
+   * @param width  The width of the raster in pixels.
+   * @param height The height of the raster in pixels.
+   */
+  public PixelRaster(int width, int height) {
+    this(width, height, new int[width * height], 0, width);
+  }
+
+  /**
+   * Constructs a raster backed by the given array of ARGB values.
+   *
+   * @param width  The width of the raster in pixels.
+   * @param height The height of the raster in pixels.
+   * @param data   The array holding the ARGB values of the pixels.
+   * @param offset The index of the first pixel of the raster inside the array.
+   * @param stride The distance between the first pixels of two consecutive rows in the array.
+   * @throws IllegalArgumentException if the array is too small for the given dimensions.
+   */
+  public PixelRaster(int width, int height, int[] data, int offset, int stride)
+          throws IllegalArgumentException {
+    if (width <= 0 || height <= 0 || stride < width || offset < 0
+            || offset + (long) (height - 1) * stride + width > data.length) {
+      throw new IllegalArgumentException("Invalid raster dimensions " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.data = data;
+    this.offset = offset;
+    this.stride = stride;
+  }
+
+  /**
+   * Constructs a deferred raster of the given size. The producer is called with a new, tightly
+   * packed array of width * height values the first time the pixels of the raster are accessed,
+   * and must fill it with the ARGB values of the pixels.
+   *
+   * @param width    The width of the raster in pixels.
+   * @param height   The height of the raster in pixels.
+   * @param producer The function computing the pixels of the raster.
+   * @throws IllegalArgumentException if the dimensions are invalid.
+   */
+  public PixelRaster(int width, int height, Consumer<int[]> producer)
+          throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid raster dimensions " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.offset = 0;
+    this.stride = width;
+    this.producer = producer;
+  }
+
+  /**
+   * Creates a raster out of the given pixel matrix.
+   *
+   * @param pixelMatrix The pixel matrix representing an image.
+   * @return A raster holding the same pixels, or null if the pixel matrix is null.
+   */
+  public static PixelRaster fromPixels(Pixel[][] pixelMatrix) {
+    if (pixelMatrix == null) {
+      return null;
+    }
+    int pixelMatrixRows = pixelMatrix.length;
+    int pixelMatrixCols = pixelMatrix[0].length;
+    PixelRaster raster = new PixelRaster(pixelMatrixCols, pixelMatrixRows);
+    int[] data = raster.getData();
+    int index = 0;
+    for (int i = 0; i < pixelMatrixRows; i++) {
+      for (int j = 0; j < pixelMatrixCols; j++) {
+        Pixel pixel = pixelMatrix[i][j];
+        data[index++] = pack(pixel.getAlpha(), pixel.getRed(), pixel.getGreen(),
+                pixel.getBlue());
+      }
+    }
+    return raster;
+  }
+
+  /**
+   * Creates a pixel matrix holding the same pixels as this raster.
+   *
+   * @return A two-dimensional array of pixels representing this raster.
+   */
+  public Pixel[][] toPixels() {
+    Pixel[][] pixelMatrix = new Pixel[height][width];
+    int[] data = getData();
+    for (int i = 0; i < height; i++) {
+      int index = rowOffset(i);
+      for (int j = 0; j < width; j++) {
+        int argb = data[index++];
+        pixelMatrix[i][j] = new Pixel(red(argb), green(argb), blue(argb), alpha(argb));
+      }
+    }
+    return pixelMatrix;
+  }
+
+  /**
+   * Creates a copy of this raster with its own, tightly packed backing array.
+   *
+   * @return A copy of this raster.
+   */
+  public PixelRaster copy() {
+    PixelRaster copy = new PixelRaster(width, height);
+    int[] data = getData();
+    for (int i = 0; i < height; i++) {
+      System.arraycopy(data, rowOffset(i), copy.data, i * width, width);
+    }
+    return copy;
+  }
+
+  /**
+   * Packs the given channel values into a single ARGB value. The values are expected to be in
+   * the range [0, 255].
+   *
+   * @param alpha The alpha component.
+   * @param red   The red component.
+   * @param green The green component.
+   * @param blue  The blue component.
+   * @return The packed ARGB value.
+   */
+  public static int pack(int alpha, int red, int green, int blue) {
+    return (alpha << 24) | (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Extracts the alpha component from a packed ARGB value.
+   *
+   * @param argb The packed ARGB value.
+   * @return The alpha component.
+   */
+  public static int alpha(int argb) {
+    return argb >>> 24;
+  }
+
+  /**
+   * Extracts the red component from a packed ARGB value.
+   *
+   * @param argb The packed ARGB value.
+   * @return The red component.
+   */
+  public static int red(int argb) {
+    return (argb >> 16) & 0xFF;
+  }
+
+  /**
+   * Extracts the green component from a packed ARGB value.
+   *
+   * @param argb The packed ARGB value.
+   * @return The green component.
+   */
+  public static int green(int argb) {
+    return (argb >> 8) & 0xFF;
+  }
+
+  /**
+   * Extracts the blue component from a packed ARGB value.
+   *
+   * @param argb The packed ARGB value.
+   * @return The blue component.
+   */
+  public static int blue(int argb) {
+    return argb & 0xFF;
+  }
+
+  /**
+   * Gets the width of the raster.
+   *
+   * @return The width of the raster in pixels.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the raster.
+   *
+   * @return The height of the raster in pixels.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the index of the first pixel of the raster inside the backing array.
+   *
+   * @return The offset of the raster.
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * Gets the distance between the first pixels of two consecutive rows in the backing array.
+   *
+   * @return The stride of the raster.
+   */
+  public int getStride() {
+    return stride;
+  }
+
+  /**
+   * Gets the array backing this raster. Pixel (row, column) is stored at
+   * getOffset() + row * getStride() + column. The pixels of a deferred raster are computed by
+   * this call if that has not happened yet.
+   *
+   * @return The array holding the ARGB values of the raster.
+   */
+  public int[] getData() {
+    int[] pixels = data;
+    return pixels != null ? pixels : materialize();
+  }
+
+  /**
+   * Checks whether the pixels of this raster have been computed.
+   *
+   * @return true unless this is a deferred raster whose pixels have not been accessed yet.
+   */
+  public boolean isMaterialized() {
+    return data != null;
+  }
+
+  /**
+   * Gets the producer that will compute the pixels of this deferred raster.
+   *
+   * @return The producer, or null if the pixels have already been computed.
+   */
+  public synchronized Consumer<int[]> getProducer() {
+    return data == null ? producer : null;
+  }
+
+  /**
+   * Computes the pixels of a deferred raster, once. The time taken is recorded in the default
+   * metrics as point-pipeline for point operations and as view for flips, rotations, transposes
+   * and crops. A deferred raster the producer reads from is computed first, so its time is
+   * recorded under its own name and not again in this one.
+   *
+   * @return The array holding the ARGB values of the raster.
+   */
+  private synchronized int[] materialize() {
+    if (data == null) {
+      String operation = "deferred";
+      PixelRaster source = null;
+      if (producer instanceof PointPipeline) {
+        operation = "point-pipeline";
+        source = ((PointPipeline) producer).getSource();
+      } else if (producer instanceof RasterView) {
+        operation = "view";
+        source = ((RasterView) producer).getSource();
+      }
+      if (source != null) {
+        source.getData();
+      }
+      Metrics.OperationTimer timer = Metrics.getDefault().start(operation);
+      int[] pixels = new int[width * height];
+      producer.accept(pixels);
+      timer.stop(this);
+      producer = null;
+      data = pixels;
+    }
+    return data;
+  }
+
+  /**
+   * Gets the index of the first pixel of the given row inside the backing array.
+   *
+   * @param row The row index.
+   * @return The index of the first pixel of the row.
+   */
+  public int rowOffset(int row) {
+    return offset + row * stride;
+  }
+
+  /**
+   * Gets the packed ARGB value of the pixel at the given position.
+   *
+   * @param row    The row index of the pixel.
+   * @param column The column index of the pixel.
+   * @return The packed ARGB value of the pixel.
+   */
+  public int getArgb(int row, int column) {
+    return getData()[offset + row * stride + column];
+  }
+
+  /**
+   * Sets the packed ARGB value of the pixel at the given position.
+   *
+   * @param row    The row index of the pixel.
+   * @param column The column index of the pixel.
+   * @param argb   The packed ARGB value of the pixel.
+   */
+  public void setArgb(int row, int column, int argb) {
+    getData()[offset + row * stride + column] = argb;
+  }
+
+  /**
+   * Gets the pixel at the given position as a Pixel object.
+   *
+   * @param row    The row index of the pixel.
+   * @param column The column index of the pixel.
+   * @return A new Pixel holding the values of the pixel.
+   */
+  public Pixel getPixel(int row, int column) {
+    int argb = getArgb(row, column);
+    return new Pixel(red(argb), green(argb), blue(argb), alpha(argb));
+  }
+}
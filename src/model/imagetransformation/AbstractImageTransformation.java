@@ -2,7 +2,7 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * An abstract class implementing the ImageTransformation interface, providing a foundation for
@@ -15,11 +15,11 @@ public abstract class AbstractImageTransformation implements ImageTransformation
    *
    * @param inputFileName       The input file name of the image.
    * @param outputFileName      The output file name of the transformed image.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters for the transformation (if required).
-   * @return A two-dimensional array of pixels representing the transformed image.
+   * @return A raster representing the transformed image.
    */
-  public abstract Pixel[][] generate(String inputFileName, String outputFileName,
-                                     Map<String, Pixel[][]> imagesPixelMatrices,
-                                     Object... otherParams);
+  public abstract PixelRaster generate(String inputFileName, String outputFileName,
+                                       Map<String, PixelRaster> images,
+                                       Object... otherParams);
 }
@@ -2,12 +2,13 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * Transformation class to extract the blue component of an image.
  */
-public class BlueComponent extends AbstractImageTransformation {
+public class BlueComponent extends AbstractImageTransformation
+        implements PointTransformation {
 
   /**
    * Applies the blue component transformation to the input image.
@@ -15,25 +16,27 @@ public class BlueComponent extends AbstractImageTransformation {
    * @param inputFileName       The name of the input image file.
    * @param outputFileName      The name of the output image file after the blue component
    *                            transformation.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters for the transformation (if required).
-   * @return A two-dimensional array of pixels representing the blue component of the image.
+   * @return A raster representing the blue component of the image.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    Pixel pixel;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        // process pixel
-        pixel = pixelMatrix[i][j];
-        outputPixelMatrix[i][j] = new Pixel(0, 0, pixel.getBlue(), pixel.getAlpha());
-      }
-    }
-    return outputPixelMatrix;
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
+
+  /**
+   * Creates the per-pixel operation keeping only the blue component of a pixel.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The colour matrix keeping the blue channel.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
+    return ColorMatrix.BLUE_CHANNEL;
   }
 }
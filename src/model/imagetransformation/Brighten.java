@@ -2,46 +2,43 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
-
-import static model.image.Pixel.clamp;
+import model.image.PixelRaster;
 
 /**
  * Transformation class to brighten an image by increasing the RGB values of each pixel.
  */
-public class Brighten extends AbstractImageTransformation {
+public class Brighten extends AbstractImageTransformation
+        implements PointTransformation {
   /**
    * Applies a brightening effect to the input image by changing RGB values.
    *
    * @param inputFileName       The name of the input image file.
    * @param outputFileName      The name of the output image file after applying the
    *                            brightening effect.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters for the transformation
    *                            (brightness change constant).
-   * @return A two-dimensional array of pixels representing the brightened image.
+   * @return A raster representing the brightened image.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    Pixel pixel;
-    int brighnessChangeConstant = (int) otherParams[0];
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        // process pixel
-        pixel = pixelMatrix[i][j];
-        outputPixelMatrix[i][j] = new Pixel(
-                clamp(pixel.getRed() + brighnessChangeConstant),
-                clamp(pixel.getGreen() + brighnessChangeConstant),
-                clamp(pixel.getBlue() + brighnessChangeConstant),
-                pixel.getAlpha());
-      }
-    }
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
 
-    return outputPixelMatrix;
+  /**
+   * Creates the per-pixel operation adding the brightness change constant to all components
+   * of a pixel.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The lookup table of the brighten operation.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
+    int brighnessChangeConstant = (int) otherParams[0];
+    return ChannelLut.ofRgb(value -> value + brighnessChangeConstant);
   }
 }
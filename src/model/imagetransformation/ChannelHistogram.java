@@ -0,0 +1,235 @@
+package model.imagetransformation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import model.image.PixelRaster;
+
+/**
+ * The histograms of the red, green and blue channels of an image: for every channel, how many
+ * pixels have each of the 256 values. The counts are kept in a single array of 3 * 256 ints.
+ * An image is counted in a single pass over its packed pixels; the bands of rows are counted in
+ * parallel, each into its own partial histogram, and the partial histograms are added up at
+ * the end. A point pipeline counts its result the same way while computing it, and when only some
+ * columns of an image change the histogram is updated from the counts of those columns.
+ */
+public final class ChannelHistogram {
+  /**
+   * The index of the red channel.
+   */
+  public static final int RED = 0;
+
+  /**
+   * The index of the green channel.
+   */
+  public static final int GREEN = 1;
+
+  /**
+   * The index of the blue channel.
+   */
+  public static final int BLUE = 2;
+
+  private static final String[] CHANNEL_NAMES = {"red", "green", "blue"};
+  private static final int RANGE_MAX = HistogramHelper.RANGE_MAX;
+
+  // the counts of a channel start at channel * 256
+  private final int[] counts;
+
+  /**
+   * Constructs an empty histogram.
+   */
+  public ChannelHistogram() {
+    counts = new int[3 * RANGE_MAX];
+  }
+
+  /**
+   * Counts the channel values of every pixel of an image.
+   *
+   * @param raster The image.
+   * @return The histogram.
+   */
+  public static ChannelHistogram of(PixelRaster raster) {
+    return of(raster, 0, raster.getWidth());
+  }
+
+  /**
+   * Counts the channel values of the pixels in a range of columns of an image.
+   *
+   * @param raster      The image.
+   * @param startColumn The first column counted.
+   * @param endColumn   The column after the last one counted.
+   * @return The histogram of the columns.
+   */
+  public static ChannelHistogram of(PixelRaster raster, int startColumn, int endColumn) {
+    ChannelHistogram histogram = new ChannelHistogram();
+    int[] data = raster.getData();
+    int columns = endColumn - startColumn;
+    RasterExecutor.forEachRowBand(raster.getHeight(), columns, (startRow, endRow) -> {
+      int[] partial = newPartial();
+      for (int i = startRow; i < endRow; i++) {
+        int index = raster.rowOffset(i) + startColumn;
+        count(data, index, index + columns, partial);
+      }
+      histogram.addPartial(partial);
+    });
+    return histogram;
+  }
+
+  /**
+   * Counts the channel values of an image after some of its columns have changed, out of the
+   * histogram of the image before the change: the counts of the changed columns before the change
+   * are replaced by their counts after it. This only reads the changed columns, twice.
+   *
+   * @param histogram The histogram of the image before the change.
+   * @param before    The image before the change.
+   * @param after     The image after the change, of the same size, whose columns from
+   *                  endColumn on are those of the image before the change.
+   * @param endColumn The number of columns, from the left, that may have changed.
+   * @return The histogram of the image after the change.
+   */
+  public static ChannelHistogram update(ChannelHistogram histogram, PixelRaster before,
+                                        PixelRaster after, int endColumn) {
+    ChannelHistogram updated = new ChannelHistogram();
+    updated.add(histogram.counts);
+    updated.subtract(of(before, 0, endColumn));
+    updated.add(of(after, 0, endColumn));
+    return updated;
+  }
+
+  /**
+   * Counts the channel values of a run of packed pixels.
+   *
+   * @param data    The packed pixels.
+   * @param start   The index of the first pixel counted.
+   * @param end     The index after the last pixel counted.
+   * @param partial The counts of the three channels, one after the other, to add to.
+   */
+  static void count(int[] data, int start, int end, int[] partial) {
+    for (int index = start; index < end; index++) {
+      int argb = data[index];
+      partial[(argb >> 16) & 0xFF]++;
+      partial[RANGE_MAX + ((argb >> 8) & 0xFF)]++;
+      partial[2 * RANGE_MAX + (argb & 0xFF)]++;
+    }
+  }
+
+  /**
+   * Creates the counts of the three channels, one after the other, to count a part of an image
+   * into with count.
+   *
+   * @return The counts, all zero.
+   */
+  static int[] newPartial() {
+    return new int[3 * RANGE_MAX];
+  }
+
+  /**
+   * Adds the counts of a part of an image to this histogram. Several threads may add their parts
+   * to the same histogram at the same time.
+   *
+   * @param partial The counts of the three channels, one after the other.
+   */
+  synchronized void addPartial(int[] partial) {
+    add(partial);
+  }
+
+  /**
+   * Gets how many pixels have a value in a channel.
+   *
+   * @param channel The channel: RED, GREEN or BLUE.
+   * @param value   The value, from 0 to 255.
+   * @return The number of pixels.
+   */
+  public int getCount(int channel, int value) {
+    return counts[channel * RANGE_MAX + value];
+  }
+
+  /**
+   * Gets the counts of a channel.
+   *
+   * @param channel The channel: RED, GREEN or BLUE.
+   * @return A copy of the 256 counts of the channel.
+   */
+  public int[] getCounts(int channel) {
+    int[] channelCounts = new int[RANGE_MAX];
+    System.arraycopy(counts, channel * RANGE_MAX, channelCounts, 0, RANGE_MAX);
+    return channelCounts;
+  }
+
+  /**
+   * Gets the value of a channel most pixels have, the lowest one on ties.
+   *
+   * @param channel The channel: RED, GREEN or BLUE.
+   * @return The value, 0 for an empty histogram.
+   */
+  public int getPeak(int channel) {
+    int peak = 0;
+    int peakCount = 0;
+    for (int value = 0; value < RANGE_MAX; value++) {
+      if (counts[channel * RANGE_MAX + value] > peakCount) {
+        peakCount = counts[channel * RANGE_MAX + value];
+        peak = value;
+      }
+    }
+    return peak;
+  }
+
+  /**
+   * Gets the highest count of all the channels.
+   *
+   * @return The highest count.
+   */
+  public int getMaxCount() {
+    int max = 0;
+    for (int count : counts) {
+      max = Math.max(max, count);
+    }
+    return max;
+  }
+
+  /**
+   * Adds the counts of another histogram to this one.
+   *
+   * @param other The other histogram.
+   */
+  public void add(ChannelHistogram other) {
+    add(other.counts);
+  }
+
+  /**
+   * Subtracts the counts of another histogram, counting a part of the pixels counted by this one,
+   * from this one.
+   *
+   * @param other The other histogram.
+   */
+  public void subtract(ChannelHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] -= other.counts[i];
+    }
+  }
+
+  /**
+   * Gets the counts as the map used by earlier versions, from "red", "green" and "blue" to the
+   * counts of the channel.
+   *
+   * @return The map, holding copies of the counts.
+   */
+  public Map<String, int[]> toMap() {
+    Map<String, int[]> histogramMap = new HashMap<>();
+    for (int channel = RED; channel <= BLUE; channel++) {
+      histogramMap.put(CHANNEL_NAMES[channel], getCounts(channel));
+    }
+    return histogramMap;
+  }
+
+  /**
+   * Adds counts to this histogram.
+   *
+   * @param otherCounts The counts of the three channels.
+   */
+  private void add(int[] otherCounts) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += otherCounts[i];
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package model.imagetransformation;
+
+import java.util.function.IntUnaryOperator;
+
+import static model.image.Pixel.clamp;
+
+/**
+ * Represents a point operation that maps every channel of a pixel on its own, through a table of
+ * 256 entries per channel (alpha, red, green and blue). Any function of a single 8-bit channel
+ * value, however expensive, costs one table lookup per channel once it has been compiled into
+ * such a table.
+ * Two tables applied one after the other compose exactly into a single table, so a chain of them
+ * is still applied with one lookup per channel.
+ */
+public class ChannelLut implements PointOperation {
+  private static final int ALPHA = 0;
+  private static final int BLUE = 3;
+
+  // the table of a channel starts at channel * 256 and holds values in [0, 255]
+  private final int[] tables;
+  // the same tables with every value already shifted to the position of its channel
+  private final int[] shiftedTables;
+
+  /**
+   * Constructs a lookup table out of the given tables.
+   *
+   * @param tables The tables of the alpha, red, green and blue channels, one after the other,
+   *               256 values in [0, 255] each.
+   * @throws IllegalArgumentException if there are not 1024 values or one is out of range.
+   */
+  private ChannelLut(int[] tables) throws IllegalArgumentException {
+    if (tables.length != 4 * 256) {
+      throw new IllegalArgumentException("A channel lookup table needs 256 values per channel.");
+    }
+    this.tables = tables;
+    shiftedTables = new int[tables.length];
+    for (int channel = ALPHA; channel <= BLUE; channel++) {
+      int shift = (BLUE - channel) * 8;
+      for (int value = 0; value < 256; value++) {
+        int mapped = tables[channel * 256 + value];
+        if (mapped < 0 || mapped > 255) {
+          throw new IllegalArgumentException("Lookup table values should be in [0, 255].");
+        }
+        shiftedTables[channel * 256 + value] = mapped << shift;
+      }
+    }
+  }
+
+  /**
+   * Creates a lookup table that applies the given function to the red, green and blue channels
+   * and keeps the alpha channel.
+   *
+   * @param function The function of a channel value; its results are clamped to [0, 255].
+   * @return The lookup table.
+   */
+  public static ChannelLut ofRgb(IntUnaryOperator function) {
+    return ofChannels(IntUnaryOperator.identity(), function, function, function);
+  }
+
+  /**
+   * Creates a lookup table that applies the given functions to the channels of a pixel.
+   *
+   * @param alpha The function of the alpha channel.
+   * @param red   The function of the red channel.
+   * @param green The function of the green channel.
+   * @param blue  The function of the blue channel.
+   * @return The lookup table; the results of the functions are clamped to [0, 255].
+   */
+  public static ChannelLut ofChannels(IntUnaryOperator alpha, IntUnaryOperator red,
+                                      IntUnaryOperator green, IntUnaryOperator blue) {
+    IntUnaryOperator[] functions = {alpha, red, green, blue};
+    int[] tables = new int[4 * 256];
+    for (int channel = ALPHA; channel <= BLUE; channel++) {
+      for (int value = 0; value < 256; value++) {
+        tables[channel * 256 + value] = clamp(functions[channel].applyAsInt(value));
+      }
+    }
+    return new ChannelLut(tables);
+  }
+
+  /**
+   * Creates a lookup table that sets the alpha channel to the given value and leaves the other
+   * channels as they are.
+   *
+   * @param alpha The new alpha value.
+   * @return The lookup table.
+   */
+  public static ChannelLut constantAlpha(int alpha) {
+    IntUnaryOperator identity = IntUnaryOperator.identity();
+    return ofChannels(value -> alpha, identity, identity, identity);
+  }
+
+  /**
+   * Gets the value a channel value is mapped to.
+   *
+   * @param channel The channel (0 for alpha, 1 for red, 2 for green, 3 for blue).
+   * @param value   The channel value.
+   * @return The mapped value.
+   */
+  public int get(int channel, int value) {
+    return tables[channel * 256 + value];
+  }
+
+  /**
+   * Composes this table with the given one into a single table that maps every value as
+   * applying this table first and the given one second would. The composition is exact.
+   *
+   * @param next The table to apply after this one.
+   * @return The composed table.
+   */
+  public ChannelLut then(ChannelLut next) {
+    int[] composed = new int[tables.length];
+    for (int channel = ALPHA; channel <= BLUE; channel++) {
+      for (int value = 0; value < 256; value++) {
+        composed[channel * 256 + value] = next.tables[channel * 256
+                + tables[channel * 256 + value]];
+      }
+    }
+    return new ChannelLut(composed);
+  }
+
+  /**
+   * Creates an operation that applies this table first and the given operation second. If the
+   * operation is a lookup table as well, the two tables are composed into one.
+   *
+   * @param next The operation to apply after this one.
+   * @return The chained operation.
+   */
+  @Override
+  public PointOperation then(PointOperation next) {
+    if (next instanceof ChannelLut) {
+      return then((ChannelLut) next);
+    }
+    return PointOperation.super.then(next);
+  }
+
+  /**
+   * Maps the channels of a single pixel through the table.
+   *
+   * @param argb The packed ARGB value of the pixel.
+   * @return The packed ARGB value of the mapped pixel.
+   */
+  @Override
+  public int apply(int argb) {
+    int[] shifted = shiftedTables;
+    return shifted[argb >>> 24] | shifted[256 + ((argb >> 16) & 0xFF)]
+            | shifted[512 + ((argb >> 8) & 0xFF)] | shifted[768 + (argb & 0xFF)];
+  }
+}
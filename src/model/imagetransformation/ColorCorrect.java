@@ -2,7 +2,7 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * The ColorCorrect class is responsible for performing color correction on an input image,
@@ -11,7 +11,8 @@ import model.image.Pixel;
  * and adjusts the color levels to achieve a more balanced distribution.
  * The resulting image is stored in the specified output file.
  */
-public class ColorCorrect extends AbstractImageTransformation {
+public class ColorCorrect extends AbstractImageTransformation
+        implements PointTransformation {
   /**
    * The width of the image in pixels.
    */
@@ -21,51 +22,42 @@ public class ColorCorrect extends AbstractImageTransformation {
    */
   final int HEIGHT = 256;
 
-  /**
-   * Returns the peak value of a given color channel based on its frequency list.
-   *
-   * @param frequencyList An array representing the frequency of each color channel value.
-   * @return The peak value of the color channel.
-   */
-  private int getChannelPeakValue(int[] frequencyList) {
-    int maxVal = 0;
-    int maxFrequency = 0;
-
-    for (int i = 0; i < frequencyList.length; i++) {
-      if (frequencyList[i] > maxFrequency) {
-        maxFrequency = frequencyList[i];
-        maxVal = i;
-      }
-    }
-    return maxVal;
-  }
-
   /**
    * Generates a color-corrected image based on the given input image matrix, adjusting the
    * color balance to achieve a more visually appealing result.
    *
    * @param inputFileName       The name of the input image file.
    * @param outputFileName      The name of the output image file.
-   * @param imagesPixelMatrices A map containing the pixel matrices of images indexed by
+   * @param images              A map containing the rasters of images indexed by
    *                            their filenames.
    * @param otherParams         Additional parameters that may be passed.
-   * @return The color-corrected pixel matrix of the output image.
+   * @return The color-corrected raster of the output image.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    double splitPercentage = 0;
-    if (otherParams.length > 0) {
-      splitPercentage = (double) otherParams[0];
-    }
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
     // color-correct image-name dest-image-name
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
 
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
+  /**
+   * Creates the per-pixel operation shifting every color channel so that its histogram peak
+   * moves to the average peak of the raster. This reads all pixels of the raster to build its
+   * histogram.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters that may be passed.
+   * @return The lookup table of the color correction.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
     // create table for histogram with frequency of each channel value per pixel
-    Map<String, int[]> histogramMap = HistogramHelper.prepareHistogramTableEntries(pixelMatrix);
-    int redPeak = getChannelPeakValue(histogramMap.get("red"));
-    int greenPeak = getChannelPeakValue(histogramMap.get("green"));
-    int bluePeak = getChannelPeakValue(histogramMap.get("blue"));
+    ChannelHistogram histogram = ChannelHistogram.of(raster);
+    int redPeak = histogram.getPeak(ChannelHistogram.RED);
+    int greenPeak = histogram.getPeak(ChannelHistogram.GREEN);
+    int bluePeak = histogram.getPeak(ChannelHistogram.BLUE);
     int divider = 3;
     if (redPeak <= 10 || redPeak >= 245) {
       redPeak = 0;
@@ -84,25 +76,21 @@ public class ColorCorrect extends AbstractImageTransformation {
     int redOffset = averagePeak - redPeak;
     int greenOffset = averagePeak - greenPeak;
     int blueOffset = averagePeak - bluePeak;
-    Pixel pixel;
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixColumns = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixColumns];
-    double splitViewWidth = (splitPercentage > 0) ? pixelMatrixColumns
-            * splitPercentage : pixelMatrixColumns;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixColumns; j++) {
-        pixel = pixelMatrix[i][j];
-        if (j < splitViewWidth) {
-          outputPixelMatrix[i][j] = new Pixel(Pixel.clamp(pixel.getRed() + redOffset),
-                  Pixel.clamp(pixel.getGreen() + greenOffset),
-                  Pixel.clamp(pixel.getBlue() + blueOffset));
-        } else {
-          outputPixelMatrix[i][j] = pixel;
-        }
-      }
-    }
+    return ChannelLut.ofChannels(value -> 255, value -> value + redOffset,
+            value -> value + greenOffset, value -> value + blueOffset);
+  }
 
-    return outputPixelMatrix;
+  /**
+   * Gets the fraction of the width, from the left, to which the transformation is applied.
+   *
+   * @param otherParams Additional parameters that may be passed.
+   * @return The split percentage if one was given, 0 otherwise.
+   */
+  @Override
+  public double getSplitPercentage(Object... otherParams) {
+    if (otherParams.length > 0) {
+      return (double) otherParams[0];
+    }
+    return 0;
   }
 }
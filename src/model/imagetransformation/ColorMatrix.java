@@ -0,0 +1,176 @@
+package model.imagetransformation;
+
+import model.image.PixelRaster;
+
+import static model.image.Pixel.clamp;
+
+/**
+ * Represents a colour transformation that computes every output channel as a weighted sum of the
+ * red, green and blue input channels plus a constant offset:
+ * newRed = (int) (m00 * red) + (int) (m01 * green) + (int) (m02 * blue) + offset0, and likewise
+ * for green and blue, with the result clamped to [0, 255] and the alpha channel left unchanged.
+ * Every term is truncated on its own, as the colour filters of this application always did.
+ * Since a term only depends on one 8-bit channel value, the terms are precomputed once into a
+ * 256-entry lookup table per coefficient, so applying the matrix costs nine table lookups and
+ * no floating point arithmetic per pixel.
+ */
+public class ColorMatrix implements PointOperation {
+  /**
+   * Converts an image to greyscale using the luma weights of the red, green and blue channels.
+   */
+  public static final ColorMatrix LUMA = new ColorMatrix(new double[][]{
+          {0.2126, 0.7152, 0.0722},
+          {0.2126, 0.7152, 0.0722},
+          {0.2126, 0.7152, 0.0722}
+  });
+
+  /**
+   * Gives an image a sepia tone.
+   */
+  public static final ColorMatrix SEPIA = new ColorMatrix(new double[][]{
+          {0.393, 0.769, 0.189},
+          {0.349, 0.686, 0.168},
+          {0.272, 0.534, 0.131}
+  });
+
+  /**
+   * Keeps only the red channel of an image.
+   */
+  public static final ColorMatrix RED_CHANNEL = new ColorMatrix(new double[][]{
+          {1, 0, 0},
+          {0, 0, 0},
+          {0, 0, 0}
+  });
+
+  /**
+   * Keeps only the green channel of an image.
+   */
+  public static final ColorMatrix GREEN_CHANNEL = new ColorMatrix(new double[][]{
+          {0, 0, 0},
+          {0, 1, 0},
+          {0, 0, 0}
+  });
+
+  /**
+   * Keeps only the blue channel of an image.
+   */
+  public static final ColorMatrix BLUE_CHANNEL = new ColorMatrix(new double[][]{
+          {0, 0, 0},
+          {0, 0, 0},
+          {0, 0, 1}
+  });
+
+  private final double[][] matrix;
+  private final int[] offset;
+  // the table of coefficient (row, column) starts at (row * 3 + column) * 256
+  private final int[] lookupTables;
+
+  /**
+   * Constructs a colour matrix without offsets.
+   *
+   * @param matrix The 3x3 matrix of coefficients; row i holds the weights of output channel i.
+   * @throws IllegalArgumentException if the matrix is not 3x3.
+   */
+  public ColorMatrix(double[][] matrix) throws IllegalArgumentException {
+    this(matrix, new int[3]);
+  }
+
+  /**
+   * Constructs a colour matrix with the given offsets.
+   *
+   * @param matrix The 3x3 matrix of coefficients; row i holds the weights of output channel i.
+   * @param offset The values added to the red, green and blue output channels.
+   * @throws IllegalArgumentException if the matrix is not 3x3 or there are not three offsets.
+   */
+  public ColorMatrix(double[][] matrix, int[] offset) throws IllegalArgumentException {
+    if (matrix.length != 3 || offset.length != 3) {
+      throw new IllegalArgumentException("A colour matrix should be 3x3 with three offsets.");
+    }
+    this.matrix = new double[3][];
+    for (int i = 0; i < 3; i++) {
+      if (matrix[i].length != 3) {
+        throw new IllegalArgumentException("A colour matrix should be 3x3 with three offsets.");
+      }
+      this.matrix[i] = matrix[i].clone();
+    }
+    this.offset = offset.clone();
+    lookupTables = new int[9 * 256];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        int tableStart = (i * 3 + j) * 256;
+        for (int value = 0; value < 256; value++) {
+          lookupTables[tableStart + value] = (int) (this.matrix[i][j] * value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets a coefficient of the matrix.
+   *
+   * @param row    The output channel (0 for red, 1 for green, 2 for blue).
+   * @param column The input channel (0 for red, 1 for green, 2 for blue).
+   * @return The coefficient.
+   */
+  public double getCoefficient(int row, int column) {
+    return matrix[row][column];
+  }
+
+  /**
+   * Gets the offset of an output channel.
+   *
+   * @param channel The output channel (0 for red, 1 for green, 2 for blue).
+   * @return The offset.
+   */
+  public int getOffset(int channel) {
+    return offset[channel];
+  }
+
+  /**
+   * Applies the matrix to a single pixel.
+   *
+   * @param argb The packed ARGB value of the pixel.
+   * @return The packed ARGB value of the transformed pixel.
+   */
+  @Override
+  public int apply(int argb) {
+    int[] tables = lookupTables;
+    int red = (argb >> 16) & 0xFF;
+    int green = (argb >> 8) & 0xFF;
+    int blue = argb & 0xFF;
+    int newRed = tables[red] + tables[256 + green] + tables[512 + blue] + offset[0];
+    int newGreen = tables[768 + red] + tables[1024 + green] + tables[1280 + blue] + offset[1];
+    int newBlue = tables[1536 + red] + tables[1792 + green] + tables[2048 + blue] + offset[2];
+    return (argb & 0xFF000000) | (clamp(newRed) << 16) | (clamp(newGreen) << 8)
+            | clamp(newBlue);
+  }
+
+  /**
+   * Applies the matrix to a raster in a single pass, processing large rasters in parallel bands
+   * of rows (see RasterExecutor).
+   *
+   * @param raster          The raster to transform.
+   * @param splitPercentage The fraction of the width, from the left, to which the matrix is
+   *                        applied, or 0 to apply it to the whole raster.
+   * @return The transformed raster.
+   */
+  public PixelRaster apply(PixelRaster raster, double splitPercentage) {
+    int rasterRows = raster.getHeight();
+    int rasterCols = raster.getWidth();
+    int endColumn = TransformationHelper.splitColumns(rasterCols, splitPercentage);
+    PixelRaster outputRaster = new PixelRaster(rasterCols, rasterRows);
+    int[] data = raster.getData();
+    int[] outputData = outputRaster.getData();
+    RasterExecutor.forEachRowBand(rasterRows, rasterCols, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        int index = raster.rowOffset(i);
+        int outputIndex = outputRaster.rowOffset(i);
+        for (int j = 0; j < endColumn; j++) {
+          outputData[outputIndex++] = apply(data[index++]);
+        }
+        TransformationHelper.copyRemainingColumns(raster, outputRaster, i, endColumn);
+      }
+    });
+    return outputRaster;
+  }
+}
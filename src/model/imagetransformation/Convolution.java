@@ -0,0 +1,317 @@
+package model.imagetransformation;
+
+import java.util.Arrays;
+
+import model.image.PixelRaster;
+
+import static model.image.Pixel.clamp;
+
+/**
+ * Applies convolution kernels to rasters. Two ways of applying a kernel are offered:
+ * convolve keeps the semantics the filters of this application always had (every kernel tap is
+ * truncated to an int on its own, and taps falling outside the image are skipped), while
+ * convolveSeparable applies a separable kernel as a horizontal and a vertical pass that are
+ * rounded only once and extend the border pixels of the image, which makes large kernels cost
+ * O(radius) per pixel instead of O(radius * radius). Every band of rows keeps only the horizontal
+ * pass of the 2 * radius + 1 rows its current row needs, so the passes need no buffer the size of
+ * the image.
+ * Both process the raster in parallel bands of rows, see RasterExecutor.
+ */
+public class Convolution {
+  /**
+   * The number of fractional bits of the fixed point weights of the separable passes.
+   */
+  private static final int SEPARABLE_FRACTION_BITS = 12;
+
+  /**
+   * Applies the kernel to the raster, truncating every tap separately and skipping the taps that
+   * fall outside the raster, which gives the same result as applying the kernel tap by tap in
+   * double precision. Kernels made of exact binary fractions, such as the blur and sharpen
+   * kernels, are applied in integer arithmetic; the border of the image is processed in a
+   * separate pass so the loop over the interior needs no bounds checks.
+   *
+   * @param raster          The raster to convolve.
+   * @param kernel          The kernel to apply.
+   * @param splitPercentage The fraction of the width, from the left, to which the kernel is
+   *                        applied, or 0 to apply it to the whole raster.
+   * @return The convolved raster.
+   */
+  public static PixelRaster convolve(PixelRaster raster, ConvolutionKernel kernel,
+                                     double splitPercentage) {
+    int rasterRows = raster.getHeight();
+    int rasterCols = raster.getWidth();
+    int endColumn = TransformationHelper.splitColumns(rasterCols, splitPercentage);
+    PixelRaster outputRaster = new PixelRaster(rasterCols, rasterRows);
+    if (!kernel.isFixedPoint()) {
+      double[][] kernelMatrix = kernel.getWeights();
+      RasterExecutor.forEachRowBand(rasterRows, rasterCols, (startRow, endRow) -> {
+        for (int i = startRow; i < endRow; i++) {
+          for (int j = 0; j < endColumn; j++) {
+            outputRaster.setArgb(i, j,
+                    TransformationHelper.processPixel(kernelMatrix, raster, i, j));
+          }
+          TransformationHelper.copyRemainingColumns(raster, outputRaster, i, endColumn);
+        }
+      });
+      return outputRaster;
+    }
+    FixedPointTaps taps = new FixedPointTaps(kernel, raster.getStride());
+    int radius = kernel.getRadius();
+    RasterExecutor.forEachRowBand(rasterRows, rasterCols, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        if (i < radius || i >= rasterRows - radius) {
+          for (int j = 0; j < endColumn; j++) {
+            outputRaster.setArgb(i, j, taps.applyChecked(raster, i, j));
+          }
+        } else {
+          int leftEnd = Math.min(radius, endColumn);
+          int rightStart = Math.max(leftEnd, Math.min(rasterCols - radius, endColumn));
+          for (int j = 0; j < leftEnd; j++) {
+            outputRaster.setArgb(i, j, taps.applyChecked(raster, i, j));
+          }
+          taps.applyInterior(raster, outputRaster, i, leftEnd, rightStart);
+          for (int j = rightStart; j < endColumn; j++) {
+            outputRaster.setArgb(i, j, taps.applyChecked(raster, i, j));
+          }
+        }
+        TransformationHelper.copyRemainingColumns(raster, outputRaster, i, endColumn);
+      }
+    });
+    return outputRaster;
+  }
+
+  /**
+   * Applies a separable kernel to the raster as a horizontal pass followed by a vertical pass.
+   * The weights are converted to fixed point and the result of both passes is rounded once, and
+   * pixels outside the raster take the value of the nearest border pixel.
+   *
+   * @param raster          The raster to convolve.
+   * @param kernel          The separable kernel to apply.
+   * @param splitPercentage The fraction of the width, from the left, to which the kernel is
+   *                        applied, or 0 to apply it to the whole raster.
+   * @return The convolved raster.
+   * @throws IllegalArgumentException if the kernel is not separable.
+   */
+  public static PixelRaster convolveSeparable(PixelRaster raster, ConvolutionKernel kernel,
+                                              double splitPercentage)
+          throws IllegalArgumentException {
+    if (!kernel.isSeparable()) {
+      throw new IllegalArgumentException("The kernel is not separable.");
+    }
+    int rasterRows = raster.getHeight();
+    int rasterCols = raster.getWidth();
+    int endColumn = TransformationHelper.splitColumns(rasterCols, splitPercentage);
+    int radius = kernel.getRadius();
+    int[] rowWeights = toFixedPoint(kernel.getRowVector());
+    int[] columnWeights = toFixedPoint(kernel.getColumnVector());
+    int[] data = raster.getData();
+    int window = columnWeights.length;
+
+    PixelRaster outputRaster = new PixelRaster(rasterCols, rasterRows);
+    int shift = 2 * SEPARABLE_FRACTION_BITS;
+    long half = 1L << (shift - 1);
+    RasterExecutor.forEachRowBand(rasterRows, rasterCols, (startRow, endRow) -> {
+      // the row extended by the border pixels, so the horizontal pass needs no bounds checks
+      int[] line = new int[(rasterCols + 2 * radius) * 3];
+      // the red, green and blue sums of the horizontal pass of the last 2 * radius + 1 rows the
+      // band needed, row r kept in slot r % window, and the row held by every slot
+      int[][] horizontal = new int[window][endColumn * 3];
+      int[] slotRows = new int[window];
+      Arrays.fill(slotRows, -1);
+      long[] sums = new long[endColumn * 3];
+      for (int i = startRow; i < endRow; i++) {
+        Arrays.fill(sums, 0);
+        // add whole rows of the horizontal pass, clamping the row index at the border
+        for (int s = 0; s < window; s++) {
+          long weight = columnWeights[s];
+          int sourceRow = Math.max(0, Math.min(rasterRows - 1, i + s - radius));
+          int slot = sourceRow % window;
+          if (slotRows[slot] != sourceRow) {
+            filterRow(raster, sourceRow, rowWeights, line, horizontal[slot]);
+            slotRows[slot] = sourceRow;
+          }
+          int[] sourceSums = horizontal[slot];
+          for (int k = 0; k < sums.length; k++) {
+            sums[k] += weight * sourceSums[k];
+          }
+        }
+        int rowOffset = raster.rowOffset(i);
+        for (int j = 0; j < endColumn; j++) {
+          int red = clamp((int) ((sums[j * 3] + half) >> shift));
+          int green = clamp((int) ((sums[j * 3 + 1] + half) >> shift));
+          int blue = clamp((int) ((sums[j * 3 + 2] + half) >> shift));
+          outputRaster.setArgb(i, j, PixelRaster.pack(PixelRaster.alpha(data[rowOffset + j]),
+                  red, green, blue));
+        }
+        TransformationHelper.copyRemainingColumns(raster, outputRaster, i, endColumn);
+      }
+    });
+    return outputRaster;
+  }
+
+  /**
+   * Applies the horizontal pass of a separable kernel to a row of the raster, extending the row
+   * by its border pixels.
+   *
+   * @param raster     The raster to convolve.
+   * @param row        The row to filter.
+   * @param rowWeights The fixed point weights of the horizontal pass.
+   * @param line       An array of (width + 2 * radius) * 3 ints to extend the row in.
+   * @param output     The array receiving the red, green and blue sums of the columns to which
+   *                   the kernel is applied, three ints per pixel.
+   */
+  private static void filterRow(PixelRaster raster, int row, int[] rowWeights, int[] line,
+                                int[] output) {
+    int[] data = raster.getData();
+    int rasterCols = raster.getWidth();
+    int radius = rowWeights.length / 2;
+    int rowOffset = raster.rowOffset(row);
+    for (int j = -radius; j < rasterCols + radius; j++) {
+      int argb = data[rowOffset + Math.max(0, Math.min(rasterCols - 1, j))];
+      int index = (j + radius) * 3;
+      line[index] = PixelRaster.red(argb);
+      line[index + 1] = PixelRaster.green(argb);
+      line[index + 2] = PixelRaster.blue(argb);
+    }
+    int outputIndex = 0;
+    while (outputIndex < output.length) {
+      int sumR = 0;
+      int sumG = 0;
+      int sumB = 0;
+      int index = outputIndex;
+      for (int t = 0; t < rowWeights.length; t++) {
+        int weight = rowWeights[t];
+        sumR += weight * line[index];
+        sumG += weight * line[index + 1];
+        sumB += weight * line[index + 2];
+        index += 3;
+      }
+      output[outputIndex++] = sumR;
+      output[outputIndex++] = sumG;
+      output[outputIndex++] = sumB;
+    }
+  }
+
+  /**
+   * Converts weights to fixed point, distributing the rounding error onto the center weight so
+   * the fixed point weights add up to the same total as the original ones.
+   *
+   * @param weights The weights to convert.
+   * @return The fixed point weights.
+   */
+  private static int[] toFixedPoint(double[] weights) {
+    int[] fixedWeights = new int[weights.length];
+    double total = 0;
+    int fixedTotal = 0;
+    for (int i = 0; i < weights.length; i++) {
+      fixedWeights[i] = (int) Math.round(Math.scalb(weights[i], SEPARABLE_FRACTION_BITS));
+      total += weights[i];
+      fixedTotal += fixedWeights[i];
+    }
+    fixedWeights[weights.length / 2] += (int) Math.round(Math.scalb(total,
+            SEPARABLE_FRACTION_BITS)) - fixedTotal;
+    return fixedWeights;
+  }
+
+  /**
+   * The non-zero taps of a fixed point kernel, prepared for a raster with a given stride.
+   * Every tap computes (int) (weight * value) as sign * ((|weight| * value) >> fractionBits),
+   * which is exact because the weight is a binary fraction.
+   */
+  private static class FixedPointTaps {
+    private final int[] rowOffsets;
+    private final int[] columnOffsets;
+    private final int[] indexOffsets;
+    private final int[] magnitudes;
+    private final int[] signs;
+    private final int fractionBits;
+
+    FixedPointTaps(ConvolutionKernel kernel, int stride) {
+      int size = kernel.getSize();
+      int radius = kernel.getRadius();
+      int count = 0;
+      for (int s = 0; s < size; s++) {
+        for (int t = 0; t < size; t++) {
+          if (kernel.getFixedPointWeight(s, t) != 0) {
+            count++;
+          }
+        }
+      }
+      rowOffsets = new int[count];
+      columnOffsets = new int[count];
+      indexOffsets = new int[count];
+      magnitudes = new int[count];
+      signs = new int[count];
+      int k = 0;
+      for (int s = 0; s < size; s++) {
+        for (int t = 0; t < size; t++) {
+          int weight = kernel.getFixedPointWeight(s, t);
+          if (weight != 0) {
+            rowOffsets[k] = s - radius;
+            columnOffsets[k] = t - radius;
+            indexOffsets[k] = (s - radius) * stride + (t - radius);
+            magnitudes[k] = Math.abs(weight);
+            signs[k] = weight < 0 ? -1 : 1;
+            k++;
+          }
+        }
+      }
+      fractionBits = kernel.getFractionBits();
+    }
+
+    /**
+     * Applies the taps to a pixel of which all neighbours covered by the kernel lie inside the
+     * raster, for a range of columns of a row.
+     */
+    void applyInterior(PixelRaster raster, PixelRaster outputRaster, int row, int startColumn,
+                       int endColumn) {
+      int[] data = raster.getData();
+      int[] outputData = outputRaster.getData();
+      int center = raster.rowOffset(row) + startColumn;
+      int outputIndex = outputRaster.rowOffset(row) + startColumn;
+      for (int j = startColumn; j < endColumn; j++) {
+        int sumR = 0;
+        int sumG = 0;
+        int sumB = 0;
+        for (int k = 0; k < indexOffsets.length; k++) {
+          int argb = data[center + indexOffsets[k]];
+          int magnitude = magnitudes[k];
+          int sign = signs[k];
+          sumR += sign * ((magnitude * ((argb >> 16) & 0xFF)) >> fractionBits);
+          sumG += sign * ((magnitude * ((argb >> 8) & 0xFF)) >> fractionBits);
+          sumB += sign * ((magnitude * (argb & 0xFF)) >> fractionBits);
+        }
+        outputData[outputIndex++] = PixelRaster.pack(PixelRaster.alpha(data[center]),
+                clamp(sumR), clamp(sumG), clamp(sumB));
+        center++;
+      }
+    }
+
+    /**
+     * Applies the taps to a pixel near the border of the raster, skipping the taps that fall
+     * outside of it.
+     */
+    int applyChecked(PixelRaster raster, int row, int column) {
+      int rasterRows = raster.getHeight();
+      int rasterCols = raster.getWidth();
+      int sumR = 0;
+      int sumG = 0;
+      int sumB = 0;
+      for (int k = 0; k < rowOffsets.length; k++) {
+        int mappedRow = row + rowOffsets[k];
+        int mappedCol = column + columnOffsets[k];
+        if (mappedRow < 0 || mappedRow >= rasterRows || mappedCol < 0 || mappedCol >= rasterCols) {
+          continue;
+        }
+        int argb = raster.getArgb(mappedRow, mappedCol);
+        int magnitude = magnitudes[k];
+        int sign = signs[k];
+        sumR += sign * ((magnitude * PixelRaster.red(argb)) >> fractionBits);
+        sumG += sign * ((magnitude * PixelRaster.green(argb)) >> fractionBits);
+        sumB += sign * ((magnitude * PixelRaster.blue(argb)) >> fractionBits);
+      }
+      return PixelRaster.pack(PixelRaster.alpha(raster.getArgb(row, column)),
+              clamp(sumR), clamp(sumG), clamp(sumB));
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package model.imagetransformation;
+
+/**
+ * Represents a square convolution kernel of odd size together with the properties the
+ * convolution engine uses to pick a fast path for it:
+ * whether all weights are exact binary fractions, so they can be applied with integer
+ * multiplications and shifts, and whether the kernel is separable into a column vector and a
+ * row vector, so it can be applied as two one-dimensional passes.
+ */
+public class ConvolutionKernel {
+  /**
+   * The largest number of fractional bits a weight may have to be applied in fixed point.
+   */
+  private static final int MAX_FRACTION_BITS = 16;
+
+  /**
+   * The relative tolerance used when checking whether a kernel is separable.
+   */
+  private static final double SEPARABLE_TOLERANCE = 1e-9;
+
+  private final double[][] weights;
+  private final int size;
+  private final int fractionBits;
+  private final double[] columnVector;
+  private final double[] rowVector;
+
+  /**
+   * Constructs a kernel out of the given weights.
+   *
+   * @param weights The weights of the kernel; the matrix must be square and of odd size.
+   * @throws IllegalArgumentException if the weights do not form a square matrix of odd size.
+   */
+  public ConvolutionKernel(double[][] weights) throws IllegalArgumentException {
+    size = weights.length;
+    if (size % 2 == 0) {
+      throw new IllegalArgumentException("The kernel size should be an odd number.");
+    }
+    this.weights = new double[size][];
+    for (int i = 0; i < size; i++) {
+      if (weights[i].length != size) {
+        throw new IllegalArgumentException("The kernel should be a square matrix.");
+      }
+      this.weights[i] = weights[i].clone();
+    }
+    fractionBits = findFractionBits(this.weights);
+    double[][] factors = findSeparableFactors(this.weights);
+    columnVector = factors == null ? null : factors[0];
+    rowVector = factors == null ? null : factors[1];
+  }
+
+  /**
+   * Creates a normalized gaussian blur kernel of the given radius. The standard deviation of
+   * the gaussian is half the radius, so the kernel covers two standard deviations on each side.
+   *
+   * @param radius The radius of the kernel; the kernel is 2 * radius + 1 pixels wide.
+   * @return The gaussian kernel.
+   * @throws IllegalArgumentException if the radius is less than 1.
+   */
+  public static ConvolutionKernel gaussian(int radius) throws IllegalArgumentException {
+    if (radius < 1) {
+      throw new IllegalArgumentException("The radius should be at least 1.");
+    }
+    double sigma = radius / 2.0;
+    double[] vector = new double[2 * radius + 1];
+    double sum = 0;
+    for (int i = -radius; i <= radius; i++) {
+      vector[i + radius] = Math.exp(-(i * i) / (2 * sigma * sigma));
+      sum += vector[i + radius];
+    }
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] /= sum;
+    }
+    double[][] weights = new double[vector.length][vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      for (int j = 0; j < vector.length; j++) {
+        weights[i][j] = vector[i] * vector[j];
+      }
+    }
+    return new ConvolutionKernel(weights);
+  }
+
+  /**
+   * Gets the size of the kernel.
+   *
+   * @return The number of rows (and columns) of the kernel.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the radius of the kernel, i.e. the distance from its center to its border.
+   *
+   * @return The radius of the kernel.
+   */
+  public int getRadius() {
+    return (size - 1) / 2;
+  }
+
+  /**
+   * Gets the weight at the given position of the kernel.
+   *
+   * @param row    The row of the weight.
+   * @param column The column of the weight.
+   * @return The weight.
+   */
+  public double getWeight(int row, int column) {
+    return weights[row][column];
+  }
+
+  /**
+   * Gets a copy of the weights of the kernel.
+   *
+   * @return The weights of the kernel.
+   */
+  public double[][] getWeights() {
+    double[][] copy = new double[size][];
+    for (int i = 0; i < size; i++) {
+      copy[i] = weights[i].clone();
+    }
+    return copy;
+  }
+
+  /**
+   * Checks whether every weight is a binary fraction with at most 16 fractional bits, so that
+   * weight * value can be computed exactly in integer arithmetic.
+   *
+   * @return true if the kernel can be applied in fixed point.
+   */
+  public boolean isFixedPoint() {
+    return fractionBits >= 0;
+  }
+
+  /**
+   * Gets the number of fractional bits of the fixed point weights.
+   *
+   * @return The number of fractional bits, or -1 if the kernel cannot be applied in fixed point.
+   */
+  public int getFractionBits() {
+    return fractionBits;
+  }
+
+  /**
+   * Gets the weight at the given position scaled by 2 to the power of getFractionBits().
+   *
+   * @param row    The row of the weight.
+   * @param column The column of the weight.
+   * @return The fixed point weight.
+   * @throws IllegalStateException if the kernel cannot be applied in fixed point.
+   */
+  public int getFixedPointWeight(int row, int column) throws IllegalStateException {
+    if (fractionBits < 0) {
+      throw new IllegalStateException("The kernel has no exact fixed point representation.");
+    }
+    return (int) Math.scalb(weights[row][column], fractionBits);
+  }
+
+  /**
+   * Checks whether the kernel is the product of a column vector and a row vector.
+   *
+   * @return true if the kernel is separable.
+   */
+  public boolean isSeparable() {
+    return rowVector != null;
+  }
+
+  /**
+   * Gets the column vector of a separable kernel, i.e. the weights of the vertical pass.
+   *
+   * @return A copy of the column vector, or null if the kernel is not separable.
+   */
+  public double[] getColumnVector() {
+    return columnVector == null ? null : columnVector.clone();
+  }
+
+  /**
+   * Gets the row vector of a separable kernel, i.e. the weights of the horizontal pass.
+   *
+   * @return A copy of the row vector, or null if the kernel is not separable.
+   */
+  public double[] getRowVector() {
+    return rowVector == null ? null : rowVector.clone();
+  }
+
+  /**
+   * Finds the smallest number of fractional bits with which every weight is an exact integer
+   * after scaling. The scaled weights are kept small enough that a weight times a channel value
+   * fits in an int.
+   *
+   * @param weights The weights of the kernel.
+   * @return The number of fractional bits, or -1 if there is none up to MAX_FRACTION_BITS.
+   */
+  private static int findFractionBits(double[][] weights) {
+    for (int bits = 0; bits <= MAX_FRACTION_BITS; bits++) {
+      boolean exact = true;
+      for (double[] row : weights) {
+        for (double weight : row) {
+          double scaled = Math.scalb(weight, bits);
+          if (scaled != Math.rint(scaled) || Math.abs(scaled) > Integer.MAX_VALUE / 255) {
+            exact = false;
+            break;
+          }
+        }
+        if (!exact) {
+          break;
+        }
+      }
+      if (exact) {
+        return bits;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Splits the kernel into a column vector and a row vector whose product is the kernel.
+   *
+   * @param weights The weights of the kernel.
+   * @return The column vector and the row vector, or null if the kernel is not separable.
+   */
+  private static double[][] findSeparableFactors(double[][] weights) {
+    int size = weights.length;
+    int pivotRow = 0;
+    int pivotColumn = 0;
+    double largest = 0;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(weights[i][j]) > largest) {
+          largest = Math.abs(weights[i][j]);
+          pivotRow = i;
+          pivotColumn = j;
+        }
+      }
+    }
+    if (largest == 0) {
+      return null;
+    }
+    double[] column = new double[size];
+    double[] row = new double[size];
+    for (int i = 0; i < size; i++) {
+      column[i] = weights[i][pivotColumn];
+      row[i] = weights[pivotRow][i] / weights[pivotRow][pivotColumn];
+    }
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(column[i] * row[j] - weights[i][j]) > SEPARABLE_TOLERANCE * largest) {
+          return null;
+        }
+      }
+    }
+    return new double[][]{column, row};
+  }
+}
@@ -0,0 +1,41 @@
+package model.imagetransformation;
+
+import java.util.Map;
+
+import model.image.PixelRaster;
+
+/**
+ * Transformation class that crops an image to a rectangle. The cropped image is a view of the
+ * input image (see RasterView): it shares the pixels of the input image when they are available,
+ * and otherwise copies them only when they are needed.
+ */
+public class Crop extends AbstractImageTransformation {
+
+  /**
+   * Crops the input image.
+   *
+   * @param inputFileName       The name of the input image file.
+   * @param outputFileName      The name of the output image file after cropping.
+   * @param images              A map containing the rasters of different images.
+   * @param otherParams         Additional parameters for the transformation. Expects the column
+   *                            and row of the top left corner of the rectangle followed by its
+   *                            width and height.
+   * @return A raster representing the cropped image, or null if the rectangle is not inside the
+   *         image.
+   */
+  @Override
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    int x = (int) otherParams[0];
+    int y = (int) otherParams[1];
+    int width = (int) otherParams[2];
+    int height = (int) otherParams[3];
+    PixelRaster raster = images.get(inputFileName);
+    try {
+      return RasterView.of(raster).crop(x, y, width, height).toRaster();
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage() + ".");
+      return null;
+    }
+  }
+}
@@ -1,106 +1,302 @@
 package model.imagetransformation;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
- * Transformation class that applies dithering to convert an image to black and white.
+ * Transformation class that applies dithering to convert an image to black and white, or to a
+ * few levels of every colour channel.
+ * By default the blue channel of the image is dithered to black and white, and in colour every
+ * channel is dithered on its own to the given number of levels, which gives a palette of
+ * evenly spaced colours.
+ * Floyd-Steinberg error diffusion walks the image column by column from the left and every
+ * column from the top. To keep the walk on consecutive memory, the columns of a channel are
+ * first copied into the lines of a byte buffer; each value is replaced by its level once its
+ * error has been passed on. A column only depends on the one before it, so the columns are
+ * dithered in parallel as a wavefront: the thread of a column waits until the column before it
+ * is three rows ahead, the last row it passes error to, which gives exactly the result of
+ * dithering the columns one after the other.
+ * Ordered dithering compares every pixel with a threshold mask instead (see DitherMask), so all
+ * the pixels are dithered independently of each other, in parallel bands of rows.
  */
 public class Dither extends AbstractImageTransformation {
+    /**
+     * The number of rows a column is dithered between publishing its progress.
+     */
+    private static final int PROGRESS_STEP = 64;
+
+    /**
+     * The number of rows and columns of the tiles in which the image is copied into the buffer
+     * and back.
+     */
+    private static final int TILE_SIZE = 64;
 
     /**
      * Applies dithering to convert the input image to black and white.
      *
      * @param inputFileName       The name of the input image file.
      * @param outputFileName      The name of the output image file after dithering.
-     * @param imagesPixelMatrices A map containing pixel matrices of different images.
-     * @param otherParams         Additional parameters or configurations for the transformation.
-     * @return A two-dimensional array of pixels representing the dithered image.
+     * @param images              A map containing the rasters of different images.
+     * @param otherParams         The split percentage, optionally followed by the name of the
+     *                            DitherMode, the size of the Bayer matrix and the number of
+     *                            levels of every channel in colour, or 0 for black and white.
+     * @return A raster representing the dithered image, or null if the parameters are invalid.
      */
     @Override
-    public Pixel[][] generate(String inputFileName, String outputFileName,
-                              Map<String, Pixel[][]> imagesPixelMatrices,
-                              Object... otherParams) {
+    public PixelRaster generate(String inputFileName, String outputFileName,
+                                Map<String, PixelRaster> images,
+                                Object... otherParams) {
 
-        Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-        int width = pixelMatrix.length;
-        int height = pixelMatrix[0].length;
-        Pixel[][] matrixToBeOperatedOn = new Pixel[width][height];
+        PixelRaster raster = images.get(inputFileName);
+        int rows = raster.getHeight();
+        int columns = raster.getWidth();
+        double splitPercentage = (double) otherParams[0];
+        double splitViewWidth = (splitPercentage > 0) ? columns
+                * splitPercentage : columns;
+        // a column only depends on the columns left of it, so those right of the split are
+        // not dithered at all
+        int ditheredColumns = (int) Math.min(columns, Math.ceil(splitViewWidth));
 
+        DitherMode mode = otherParams.length > 1 ? DitherMode.fromName((String) otherParams[1])
+                : DitherMode.ERROR_DIFFUSION;
+        int matrixSize = otherParams.length > 2 ? (int) otherParams[2] : 4;
+        int colorLevels = otherParams.length > 3 ? (int) otherParams[3] : 0;
+        if (mode == null) {
+            System.err.println("Unknown dithering mode: " + otherParams[1]);
+            return null;
+        }
+        if (mode == DitherMode.BAYER
+                && (matrixSize < 2 || matrixSize > 64 || Integer.bitCount(matrixSize) != 1)) {
+            System.err.println("The size of the Bayer matrix must be a power of 2 between 2 "
+                    + "and 64.");
+            return null;
+        }
+        if (colorLevels != 0 && (colorLevels < 2 || colorLevels > 256)) {
+            System.err.println("The number of colour levels must be between 2 and 256.");
+            return null;
+        }
 
+        // the channels as shifts of the packed pixel, only blue for black and white
+        int[] shifts = colorLevels == 0 ? new int[]{0} : new int[]{16, 8, 0};
+        int levels = colorLevels == 0 ? 2 : colorLevels;
+        if (mode != DitherMode.ERROR_DIFFUSION) {
+            DitherMask mask = mode == DitherMode.BAYER ? DitherMask.bayer(matrixSize)
+                    : DitherMask.blueNoise();
+            return applyOrderedDithering(raster, mask, shifts, levels, ditheredColumns);
+        }
+        byte[][] channels = new byte[shifts.length][];
+        for (int k = 0; k < shifts.length; k++) {
+            channels[k] = toLines(raster, ditheredColumns, shifts[k]);
+            applyDithering(channels[k], rows, ditheredColumns, levels);
+        }
+        return fromLines(raster, channels, ditheredColumns);
+    }
 
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                matrixToBeOperatedOn[i][j] = new Pixel(
-                        pixelMatrix[i][j].getRed(),
-                        pixelMatrix[i][j].getGreen(),
-                        pixelMatrix[i][j].getBlue());
+    /**
+     * Dithers the first columns of an image with a threshold mask.
+     *
+     * @param raster  The image.
+     * @param mask    The threshold mask.
+     * @param shifts  The shifts of the channels to dither in the packed pixels; with one channel
+     *                the result is grey.
+     * @param levels  The number of levels of every channel.
+     * @param columns The number of columns to dither.
+     * @return The dithered image.
+     */
+    private static PixelRaster applyOrderedDithering(PixelRaster raster, DitherMask mask,
+                                                     int[] shifts, int levels, int columns) {
+        int rows = raster.getHeight();
+        int width = raster.getWidth();
+        PixelRaster outputRaster = new PixelRaster(width, rows);
+        int[] data = raster.getData();
+        int[] output = outputRaster.getData();
+        RasterExecutor.forEachRowBand(rows, width, (startRow, endRow) -> {
+            for (int i = startRow; i < endRow; i++) {
+                int index = raster.rowOffset(i);
+                int outputIndex = i * width;
+                for (int j = 0; j < columns; j++) {
+                    int argb = data[index++];
+                    if (shifts.length == 1) {
+                        int color = mask.quantize((argb >> shifts[0]) & 0xFF, levels, i, j);
+                        output[outputIndex++] = PixelRaster.pack(255, color, color, color);
+                    } else {
+                        output[outputIndex++] = PixelRaster.pack(255,
+                                mask.quantize(PixelRaster.red(argb), levels, i, j),
+                                mask.quantize(PixelRaster.green(argb), levels, i, j),
+                                mask.quantize(PixelRaster.blue(argb), levels, i, j));
+                    }
+                }
+                System.arraycopy(data, index, output, outputIndex, width - columns);
             }
+        });
+        return outputRaster;
+    }
 
-        }
-        Pixel[][] ditheredImage = applyDithering(matrixToBeOperatedOn, width, height);
+    /**
+     * Copies a channel of the first columns of an image into a buffer holding every column as a
+     * line.
+     *
+     * @param raster  The image.
+     * @param columns The number of columns to copy.
+     * @param shift   The shift of the channel in the packed pixels.
+     * @return The buffer, one line of the height of the image per column.
+     */
+    private static byte[] toLines(PixelRaster raster, int columns, int shift) {
+        int rows = raster.getHeight();
+        byte[] lines = new byte[rows * columns];
+        int[] data = raster.getData();
+        RasterExecutor.forEachRowBand(rows, columns, (startRow, endRow) -> {
+            for (int startColumn = 0; startColumn < columns; startColumn += TILE_SIZE) {
+                int endColumn = Math.min(columns, startColumn + TILE_SIZE);
+                for (int i = startRow; i < endRow; i++) {
+                    int index = raster.rowOffset(i) + startColumn;
+                    for (int j = startColumn; j < endColumn; j++) {
+                        lines[j * rows + i] = (byte) (data[index++] >> shift);
+                    }
+                }
+            }
+        });
+        return lines;
+    }
 
-        Pixel[][] outputPixelMatrix = new Pixel[width][height];
-        double splitPercentage = (double) otherParams[0];
-        double splitViewWidth = (splitPercentage > 0) ? height
-                * splitPercentage : height;
-        Pixel pixel;
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                pixel = pixelMatrix[i][j];
-                if (j < splitViewWidth) {
-                    outputPixelMatrix[i][j] = new Pixel(
-                            Pixel.clamp(ditheredImage[i][j].getRed()),
-                            Pixel.clamp(ditheredImage[i][j].getGreen()),
-                            Pixel.clamp(ditheredImage[i][j].getBlue()));
-
-                } else {
-                    outputPixelMatrix[i][j] = pixel;
+    /**
+     * Combines the dithered lines of the first columns with the other columns of the image.
+     *
+     * @param raster   The image.
+     * @param channels The dithered lines of every channel: red, green and blue, or a single
+     *                 channel giving grey.
+     * @param columns  The number of dithered columns.
+     * @return The dithered image.
+     */
+    private static PixelRaster fromLines(PixelRaster raster, byte[][] channels, int columns) {
+        int rows = raster.getHeight();
+        int width = raster.getWidth();
+        PixelRaster outputRaster = new PixelRaster(width, rows);
+        int[] data = raster.getData();
+        int[] output = outputRaster.getData();
+        RasterExecutor.forEachRowBand(rows, width, (startRow, endRow) -> {
+            for (int startColumn = 0; startColumn < columns; startColumn += TILE_SIZE) {
+                int endColumn = Math.min(columns, startColumn + TILE_SIZE);
+                for (int i = startRow; i < endRow; i++) {
+                    int index = i * width + startColumn;
+                    for (int j = startColumn; j < endColumn; j++) {
+                        int line = j * rows + i;
+                        if (channels.length == 1) {
+                            int color = channels[0][line] & 0xFF;
+                            output[index++] = PixelRaster.pack(255, color, color, color);
+                        } else {
+                            output[index++] = PixelRaster.pack(255, channels[0][line] & 0xFF,
+                                    channels[1][line] & 0xFF, channels[2][line] & 0xFF);
+                        }
+                    }
                 }
             }
-        }
+            for (int i = startRow; i < endRow; i++) {
+                System.arraycopy(data, raster.rowOffset(i) + columns, output, i * width + columns,
+                        width - columns);
+            }
+        });
+        return outputRaster;
+    }
 
-        return outputPixelMatrix;
-        //return ditheredImage;
+    /**
+     * Dithers the lines of a buffer in place, several lines at a time. Every thread takes the
+     * next line not yet taken and dithers it as far as the line before it allows.
+     *
+     * @param lines  The buffer, whose values are replaced by their levels.
+     * @param length The length of a line.
+     * @param count  The number of lines.
+     * @param levels The number of levels, 2 for black and white.
+     */
+    private void applyDithering(byte[] lines, int length, int count, int levels) {
+        AtomicInteger nextLine = new AtomicInteger();
+        // the number of values of every line that have been dithered
+        AtomicIntegerArray progress = new AtomicIntegerArray(count);
+        RasterExecutor.forEachWorker(length, count, () -> {
+            int line;
+            while ((line = nextLine.getAndIncrement()) < count) {
+                ditherLine(lines, length, count, levels, line, progress);
+            }
+        });
     }
 
-    private Pixel[][] applyDithering(Pixel[][] pixelMatrix, int width, int height) {
-        Pixel[][] ditheredImage = new Pixel[width][height];
+    /**
+     * Dithers one line, passing its error on to the rest of the line and to the next line. A
+     * value can only be dithered once the previous line has passed on all of its error to it and
+     * to the value after it, so the line waits for the previous one to be three values ahead.
+     *
+     * @param lines    The buffer.
+     * @param length   The length of a line.
+     * @param count    The number of lines.
+     * @param levels   The number of levels.
+     * @param line     The line to dither.
+     * @param progress The number of values of every line that have been dithered.
+     */
+    private void ditherLine(byte[] lines, int length, int count, int levels, int line,
+                            AtomicIntegerArray progress) {
+        int start = line * length;
+        int next = start + length;
+        boolean hasNext = line + 1 < count;
+        int available = line == 0 ? length : 0;
+        for (int x = 0; x < length; x++) {
+            int needed = Math.min(length, x + 3);
+            while (available < needed) {
+                available = waitForProgress(progress, line - 1, needed);
+            }
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int oldColor = pixelMatrix[x][y].getBlue();
-                int newColor = (oldColor < 128) ? 0 : 255;
-                int quantError = oldColor - newColor;
-                ditheredImage[x][y] = new Pixel(newColor, newColor, newColor);
+            int oldColor = lines[start + x] & 0xFF;
+            // the nearest level, which for black and white is 0 below 128 and 255 otherwise
+            int newColor = (oldColor * (levels - 1) + 127) / 255 * 255 / (levels - 1);
+            int quantError = oldColor - newColor;
+            lines[start + x] = (byte) newColor;
 
-                applyErrorDiffusion(pixelMatrix, x, y, width, height, quantError);
+            if (x + 1 < length) {
+                distributeError(lines, start + x + 1, quantError, 7);
+            }
+            if (hasNext) {
+                if (x - 1 >= 0) {
+                    distributeError(lines, next + x - 1, quantError, 3);
+                }
+                distributeError(lines, next + x, quantError, 5);
+                if (x + 1 < length) {
+                    distributeError(lines, next + x + 1, quantError, 1);
+                }
+            }
+            if ((x + 1) % PROGRESS_STEP == 0) {
+                progress.set(line, x + 1);
             }
         }
-
-        return ditheredImage;
+        progress.set(line, length);
     }
 
-    private void applyErrorDiffusion(Pixel[][] pixelMatrix, int x, int y, int width, int height, int quantError) {
-        if (x + 1 < width) {
-            distributeError(pixelMatrix, x + 1, y, quantError, 7, width, height);
-        }
-        if (x - 1 >= 0 && y + 1 < height) {
-            distributeError(pixelMatrix, x - 1, y + 1, quantError, 3, width, height);
-        }
-        if (y + 1 < height) {
-            distributeError(pixelMatrix, x, y + 1, quantError, 5, width, height);
-        }
-        if (x + 1 < width && y + 1 < height) {
-            distributeError(pixelMatrix, x + 1, y + 1, quantError, 1, width, height);
+    /**
+     * Waits until a line has been dithered up to the given number of values.
+     *
+     * @param progress The number of values of every line that have been dithered.
+     * @param line     The line.
+     * @param needed   The number of values needed.
+     * @return The number of values dithered, at least the number needed.
+     */
+    private static int waitForProgress(AtomicIntegerArray progress, int line, int needed) {
+        int spins = 0;
+        int available;
+        while ((available = progress.get(line)) < needed) {
+            if (++spins % 1024 == 0) {
+                Thread.yield();
+            } else {
+                Thread.onSpinWait();
+            }
         }
+        return available;
     }
 
-    private void distributeError(Pixel[][] pixelMatrix, int x, int y, int quantError, int factor, int width, int height) {
-        int temp = pixelMatrix[x][y].getBlue();
-        temp += (quantError * factor) / 16;
-        pixelMatrix[x][y] = new Pixel(temp, temp, temp);
+    private static void distributeError(byte[] lines, int index, int quantError, int factor) {
+        int temp = lines[index] & 0xFF;
+        temp = Pixel.clamp(temp + (quantError * factor) / 16);
+        lines[index] = (byte) temp;
     }
-
-
 }
@@ -0,0 +1,197 @@
+package model.imagetransformation;
+
+import java.util.Random;
+
+/**
+ * A square threshold mask for ordered dithering, tiled over the image. Every cell of the mask
+ * holds a different rank from 0 to the number of cells minus 1; a pixel is rounded up where its
+ * value exceeds the threshold given by the rank of its cell, so the pixels of a flat area are
+ * rounded up in the order of the ranks.
+ * Bayer masks spread the ranks evenly in a regular pattern, while the blue noise mask spreads
+ * them without a visible pattern. The blue noise mask is generated once, with the
+ * void-and-cluster method, the first time it is used.
+ */
+final class DitherMask {
+  private static final int BLUE_NOISE_SIZE = 64;
+  private static final double BLUE_NOISE_SIGMA = 1.5;
+
+  private final int size;
+  private final int[] ranks;
+
+  private DitherMask(int size, int[] ranks) {
+    this.size = size;
+    this.ranks = ranks;
+  }
+
+  /**
+   * Creates a Bayer matrix of the given size.
+   *
+   * @param size The number of rows and columns, a power of two.
+   * @return The mask.
+   */
+  static DitherMask bayer(int size) {
+    int[] ranks = {0};
+    // every step doubles the matrix, placing four copies of it scaled by 4 in the order 0 2 3 1
+    for (int n = 1; n < size; n *= 2) {
+      int[] next = new int[4 * n * n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          int rank = 4 * ranks[i * n + j];
+          next[i * 2 * n + j] = rank;
+          next[i * 2 * n + j + n] = rank + 2;
+          next[(i + n) * 2 * n + j] = rank + 3;
+          next[(i + n) * 2 * n + j + n] = rank + 1;
+        }
+      }
+      ranks = next;
+    }
+    return new DitherMask(size, ranks);
+  }
+
+  /**
+   * Gets the blue noise mask.
+   *
+   * @return The mask.
+   */
+  static DitherMask blueNoise() {
+    return BlueNoise.MASK;
+  }
+
+  /**
+   * Gets the number of rows and columns of the mask.
+   *
+   * @return The size.
+   */
+  int getSize() {
+    return size;
+  }
+
+  /**
+   * Rounds a channel value to one of evenly spaced levels, using the rank of the cell of the
+   * mask covering the pixel to decide whether to round up or down.
+   *
+   * @param value  The channel value, from 0 to 255.
+   * @param levels The number of levels, from 2 to 256.
+   * @param row    The row of the pixel.
+   * @param column The column of the pixel.
+   * @return The channel value of the level.
+   */
+  int quantize(int value, int levels, int row, int column) {
+    int cells = size * size;
+    int rank = ranks[(row % size) * size + column % size];
+    // the threshold of a rank is (rank + 0.5) / cells of the distance between two levels
+    int level = (2 * value * (levels - 1) * cells + (2 * rank + 1) * 255) / (2 * 255 * cells);
+    return Math.min(level, levels - 1) * 255 / (levels - 1);
+  }
+
+  /**
+   * Generates a blue noise mask with the void-and-cluster method. The energy of a cell is the
+   * sum of a Gaussian of its distance to every cell set, wrapping around the edges; the
+   * tightest cluster is the set cell with the highest energy and the largest void the free cell
+   * with the lowest.
+   *
+   * @param size  The number of rows and columns.
+   * @param sigma The standard deviation of the Gaussian.
+   * @return The mask.
+   */
+  private static DitherMask generateBlueNoise(int size, double sigma) {
+    int cells = size * size;
+    double[] kernel = new double[cells];
+    for (int dy = 0; dy < size; dy++) {
+      for (int dx = 0; dx < size; dx++) {
+        int y = Math.min(dy, size - dy);
+        int x = Math.min(dx, size - dx);
+        kernel[dy * size + dx] = Math.exp(-(x * x + y * y) / (2 * sigma * sigma));
+      }
+    }
+
+    // start from a random pattern covering a tenth of the cells
+    boolean[] initial = new boolean[cells];
+    double[] initialEnergy = new double[cells];
+    Random random = new Random(1);
+    int initialCount = cells / 10;
+    for (int placed = 0; placed < initialCount; ) {
+      int cell = random.nextInt(cells);
+      if (!initial[cell]) {
+        toggle(initial, initialEnergy, kernel, size, cell);
+        placed++;
+      }
+    }
+    // spread it evenly by moving the tightest cluster into the largest void until it stays
+    for (int i = 0; i < cells; i++) {
+      int cluster = find(initial, initialEnergy, true);
+      toggle(initial, initialEnergy, kernel, size, cluster);
+      int voidCell = find(initial, initialEnergy, false);
+      toggle(initial, initialEnergy, kernel, size, voidCell);
+      if (voidCell == cluster) {
+        break;
+      }
+    }
+
+    int[] ranks = new int[cells];
+    // rank the cells of the pattern by removing the tightest cluster first
+    boolean[] pattern = initial.clone();
+    double[] energy = initialEnergy.clone();
+    for (int count = initialCount; count > 0; count--) {
+      int cluster = find(pattern, energy, true);
+      toggle(pattern, energy, kernel, size, cluster);
+      ranks[cluster] = count - 1;
+    }
+    // rank the other cells by filling the largest void first
+    for (int count = initialCount; count < cells; count++) {
+      int voidCell = find(initial, initialEnergy, false);
+      toggle(initial, initialEnergy, kernel, size, voidCell);
+      ranks[voidCell] = count;
+    }
+    return new DitherMask(size, ranks);
+  }
+
+  /**
+   * Sets or clears a cell of a pattern and updates the energy of every cell.
+   *
+   * @param pattern The cells set.
+   * @param energy  The energy of every cell.
+   * @param kernel  The Gaussian for every offset between two cells.
+   * @param size    The number of rows and columns.
+   * @param cell    The cell to set or clear.
+   */
+  private static void toggle(boolean[] pattern, double[] energy, double[] kernel, int size,
+                             int cell) {
+    pattern[cell] = !pattern[cell];
+    double sign = pattern[cell] ? 1 : -1;
+    int cellRow = cell / size;
+    int cellColumn = cell % size;
+    for (int i = 0; i < size; i++) {
+      int kernelRow = ((i - cellRow) & (size - 1)) * size;
+      for (int j = 0; j < size; j++) {
+        energy[i * size + j] += sign * kernel[kernelRow + ((j - cellColumn) & (size - 1))];
+      }
+    }
+  }
+
+  /**
+   * Finds the set cell with the highest energy or the free cell with the lowest.
+   *
+   * @param pattern The cells set.
+   * @param energy  The energy of every cell.
+   * @param set     true to find the tightest cluster, false to find the largest void.
+   * @return The cell, the first one found on ties.
+   */
+  private static int find(boolean[] pattern, double[] energy, boolean set) {
+    int found = -1;
+    for (int cell = 0; cell < pattern.length; cell++) {
+      if (pattern[cell] == set && (found == -1
+              || (set ? energy[cell] > energy[found] : energy[cell] < energy[found]))) {
+        found = cell;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Holds the blue noise mask, so it is only generated once it is used.
+   */
+  private static final class BlueNoise {
+    private static final DitherMask MASK = generateBlueNoise(BLUE_NOISE_SIZE, BLUE_NOISE_SIGMA);
+  }
+}
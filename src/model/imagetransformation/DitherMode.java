@@ -0,0 +1,40 @@
+package model.imagetransformation;
+
+/**
+ * Enumerates the ways Dither can choose between the colours available for a pixel.
+ */
+public enum DitherMode {
+  ERROR_DIFFUSION("error-diffusion"), // Floyd-Steinberg, passing the error on to the neighbours
+  BAYER("bayer"), // Ordered, comparing each pixel with a Bayer threshold matrix
+  BLUE_NOISE("blue-noise"); // Ordered, comparing each pixel with a blue noise threshold mask
+
+  private final String name;
+
+  DitherMode(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the name of the mode as used by the dither command.
+   *
+   * @return The name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Finds the mode with the given name.
+   *
+   * @param name The name used by the dither command.
+   * @return The mode, or null if no mode has that name.
+   */
+  public static DitherMode fromName(String name) {
+    for (DitherMode mode : values()) {
+      if (mode.name.equals(name)) {
+        return mode;
+      }
+    }
+    return null;
+  }
+}
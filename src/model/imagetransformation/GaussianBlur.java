@@ -0,0 +1,38 @@
+package model.imagetransformation;
+
+import java.util.Map;
+
+import model.image.PixelRaster;
+
+/**
+ * Transformation class to blur an image with a gaussian kernel of a given radius. Unlike Blur,
+ * which uses a fixed 3x3 kernel, the radius can be chosen freely; the kernel is applied as two
+ * one-dimensional passes, so the cost per pixel grows linearly with the radius.
+ */
+public class GaussianBlur extends AbstractImageTransformation {
+
+  /**
+   * Applies a gaussian blur to the input image.
+   *
+   * @param inputFileName       The name of the input image file.
+   * @param outputFileName      The name of the output image file after applying the
+   *                            blur effect.
+   * @param images              A map containing the rasters of different images.
+   * @param otherParams         Additional parameters for the transformation. Expects the radius
+   *                            of the blur followed by the split percentage.
+   * @return A raster representing the blurred image, or null if the radius is invalid.
+   */
+  @Override
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    int radius = (int) otherParams[0];
+    double splitPercentage = otherParams.length > 1 ? (double) otherParams[1] : 0;
+    if (radius < 1) {
+      System.err.println("The radius should be a positive number. Please enter a valid radius.");
+      return null;
+    }
+    PixelRaster raster = images.get(inputFileName);
+    return Convolution.convolveSeparable(raster, ConvolutionKernel.gaussian(radius),
+            splitPercentage);
+  }
+}
@@ -0,0 +1,273 @@
+package model.imagetransformation;
+
+/**
+ * The Haar wavelet transformation used by image compression, working in place on one colour
+ * channel of an image stored as a plane of ints, row after row. A step of the forward
+ * transformation splits pairs of neighbouring values into their average and half their
+ * difference, first along the rows of the current region and then along the columns of its
+ * averages; the inverse undoes the steps in reverse order. As with the pixel based
+ * transformation this replaces, every value is clamped to the range of a channel (0 to 255)
+ * after each step, so the results for square planes are exactly those of compressing pixel
+ * matrices.
+ * The width and height of a plane are powers of two, but need not be equal: once the rows or the
+ * columns of the region have been reduced to a single value, the later steps only split along
+ * the other direction.
+ * A reversible transformation can be chosen instead, which keeps every coefficient exactly: a
+ * pair becomes the average rounded down and the full difference, without clamping, so the
+ * differences range from -255 to 255 and the inverse gives back the original values.
+ * The column steps combine two whole rows at a time, so they read memory row by row instead of
+ * jumping a row ahead for every value, and all the steps are spread over the threads of
+ * RasterExecutor.
+ */
+final class HaarWavelet {
+  private final int width;
+  private final int height;
+  private final int rowLevels;
+  private final int columnLevels;
+  private final boolean reversible;
+  private final int[] scratch;
+
+  /**
+   * Constructs a transformation for planes of the given size.
+   *
+   * @param width  The width of the planes, a power of two.
+   * @param height The height of the planes, a power of two.
+   */
+  HaarWavelet(int width, int height) {
+    this(width, height, false);
+  }
+
+  /**
+   * Constructs a transformation for planes of the given size, clamped like compression or
+   * reversible.
+   *
+   * @param width      The width of the planes, a power of two.
+   * @param height     The height of the planes, a power of two.
+   * @param reversible Whether the coefficients are exact, so the inverse gives back the plane.
+   */
+  HaarWavelet(int width, int height, boolean reversible) {
+    this.reversible = reversible;
+    this.width = width;
+    this.height = height;
+    rowLevels = Integer.numberOfTrailingZeros(width);
+    columnLevels = Integer.numberOfTrailingZeros(height);
+    scratch = new int[width * height];
+  }
+
+  /**
+   * Transforms a plane.
+   *
+   * @param plane  The values of the channel, replaced by the wavelet coefficients.
+   * @param cycles The number of steps.
+   */
+  void forward(int[] plane, int cycles) {
+    int w = width;
+    int h = height;
+    for (int i = 0; i < cycles; i++) {
+      if (i < rowLevels) {
+        w /= 2;
+        splitRows(plane, 2 * w, h);
+      }
+      if (i < columnLevels) {
+        h /= 2;
+        splitColumns(plane, w, 2 * h);
+      }
+    }
+  }
+
+  /**
+   * Transforms the coefficients of a plane back into the values of the channel.
+   *
+   * @param plane  The wavelet coefficients, replaced by the values of the channel.
+   * @param cycles The number of steps the plane has been transformed with.
+   */
+  void inverse(int[] plane, int cycles) {
+    int ww = width >> Math.min(cycles, rowLevels);
+    int hh = height >> Math.min(cycles, columnLevels);
+    for (int i = cycles - 1; i >= 0; i--) {
+      if (i < columnLevels) {
+        mergeColumns(plane, ww, 2 * hh);
+        hh *= 2;
+      }
+      if (i < rowLevels) {
+        mergeRows(plane, 2 * ww, hh);
+        ww *= 2;
+      }
+    }
+  }
+
+  /**
+   * Splits the values of the rows of the top left region of a plane into averages, stored in the
+   * left half of the region, and differences, stored in the right half.
+   *
+   * @param plane   The plane.
+   * @param columns The width of the region.
+   * @param rows    The height of the region.
+   */
+  private void splitRows(int[] plane, int columns, int rows) {
+    int half = columns / 2;
+    RasterExecutor.forEachRowBand(rows, columns, (startRow, endRow) -> {
+      int[] row = new int[columns];
+      for (int i = startRow; i < endRow; i++) {
+        int index = i * width;
+        for (int k = 0; k < half; k++) {
+          int a = plane[index + 2 * k];
+          int b = plane[index + 2 * k + 1];
+          row[k] = average(a, b);
+          row[k + half] = difference(a, b);
+        }
+        System.arraycopy(row, 0, plane, index, columns);
+      }
+    });
+  }
+
+  /**
+   * Splits the values of the columns of the top left region of a plane into averages, stored in
+   * the top half of the region, and differences, stored in the bottom half.
+   *
+   * @param plane   The plane.
+   * @param columns The width of the region.
+   * @param rows    The height of the region.
+   */
+  private void splitColumns(int[] plane, int columns, int rows) {
+    int half = rows / 2;
+    RasterExecutor.forEachRowBand(half, columns, (startPair, endPair) -> {
+      for (int k = startPair; k < endPair; k++) {
+        int first = 2 * k * width;
+        int second = first + width;
+        int average = k * width;
+        int difference = (k + half) * width;
+        for (int j = 0; j < columns; j++) {
+          int a = plane[first + j];
+          int b = plane[second + j];
+          scratch[average + j] = average(a, b);
+          scratch[difference + j] = difference(a, b);
+        }
+      }
+    });
+    copyFromScratch(plane, columns, rows);
+  }
+
+  /**
+   * Merges the averages in the top half and the differences in the bottom half of the columns of
+   * the top left region of a plane into pairs of values.
+   *
+   * @param plane   The plane.
+   * @param columns The width of the region.
+   * @param rows    The height of the region.
+   */
+  private void mergeColumns(int[] plane, int columns, int rows) {
+    int half = rows / 2;
+    RasterExecutor.forEachRowBand(half, columns, (startPair, endPair) -> {
+      for (int k = startPair; k < endPair; k++) {
+        int average = k * width;
+        int difference = (k + half) * width;
+        int first = 2 * k * width;
+        int second = first + width;
+        for (int j = 0; j < columns; j++) {
+          int a = plane[average + j];
+          int b = plane[difference + j];
+          scratch[first + j] = first(a, b);
+          scratch[second + j] = second(a, b);
+        }
+      }
+    });
+    copyFromScratch(plane, columns, rows);
+  }
+
+  /**
+   * Merges the averages in the left half and the differences in the right half of the rows of
+   * the top left region of a plane into pairs of values.
+   *
+   * @param plane   The plane.
+   * @param columns The width of the region.
+   * @param rows    The height of the region.
+   */
+  private void mergeRows(int[] plane, int columns, int rows) {
+    int half = columns / 2;
+    RasterExecutor.forEachRowBand(rows, columns, (startRow, endRow) -> {
+      int[] row = new int[columns];
+      for (int i = startRow; i < endRow; i++) {
+        int index = i * width;
+        for (int k = 0; k < half; k++) {
+          int a = plane[index + k];
+          int b = plane[index + k + half];
+          row[2 * k] = first(a, b);
+          row[2 * k + 1] = second(a, b);
+        }
+        System.arraycopy(row, 0, plane, index, columns);
+      }
+    });
+  }
+
+  /**
+   * Copies the top left region of the scratch plane into a plane.
+   *
+   * @param plane   The plane.
+   * @param columns The width of the region.
+   * @param rows    The height of the region.
+   */
+  private void copyFromScratch(int[] plane, int columns, int rows) {
+    RasterExecutor.forEachRowBand(rows, columns, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        System.arraycopy(scratch, i * width, plane, i * width, columns);
+      }
+    });
+  }
+
+  /**
+   * Calculates the average coefficient of a pair of values.
+   *
+   * @param a The first value.
+   * @param b The second value.
+   * @return The average, clamped or rounded down if the transformation is reversible.
+   */
+  private int average(int a, int b) {
+    return reversible ? (a + b) >> 1 : clamp((a + b) / 2);
+  }
+
+  /**
+   * Calculates the difference coefficient of a pair of values.
+   *
+   * @param a The first value.
+   * @param b The second value.
+   * @return Half the difference, clamped, or the whole difference if the transformation is
+   *         reversible.
+   */
+  private int difference(int a, int b) {
+    return reversible ? a - b : clamp((a - b) / 2);
+  }
+
+  /**
+   * Calculates the first value of a pair out of its average and difference coefficients.
+   *
+   * @param average    The average coefficient.
+   * @param difference The difference coefficient.
+   * @return The first value.
+   */
+  private int first(int average, int difference) {
+    return reversible ? second(average, difference) + difference : clamp(average + difference);
+  }
+
+  /**
+   * Calculates the second value of a pair out of its average and difference coefficients.
+   *
+   * @param average    The average coefficient.
+   * @param difference The difference coefficient.
+   * @return The second value.
+   */
+  private int second(int average, int difference) {
+    // the rounded down average is the second value plus half the difference rounded down
+    return reversible ? average - (difference >> 1) : clamp(average - difference);
+  }
+
+  /**
+   * Clamps a value to the range of a channel.
+   *
+   * @param value The value.
+   * @return The value, limited to 0 to 255.
+   */
+  private static int clamp(int value) {
+    return value < 0 ? 0 : Math.min(value, 255);
+  }
+}
@@ -1,13 +1,16 @@
 package model.imagetransformation;
 
-import java.awt.image.BufferedImage;
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.ImageStore;
+import model.image.PixelRaster;
 
 /**
  * A class representing an image transformation for generating a histogram.
  * It extends the AbstractImageTransformation class.
+ * When the images are held by an image store, the histogram the store keeps for the input image
+ * is drawn, so an image whose histogram has already been counted, or is kept up to date by the
+ * image model, is not counted again.
  */
 public class Histogram extends AbstractImageTransformation {
   /**
@@ -24,22 +27,31 @@ public class Histogram extends AbstractImageTransformation {
    *
    * @param inputFileName       The input file name.
    * @param outputFileName      The output file name.
-   * @param imagesPixelMatrices A map containing pixel matrices for different images.
-   * @param otherParams         Additional parameters for the transformation.
-   * @return The pixel matrix representing the generated histogram image.
+   * @param images              A map containing the rasters of different images.
+   * @param otherParams         Optionally the width and height of the histogram image, 256 by
+   *                            default, followed by whether the counts are drawn on a
+   *                            logarithmic scale and whether they are drawn cumulatively.
+   * @return The raster representing the generated histogram image, or null if the size is
+   *         invalid.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName, Map<String,
-          Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    // create table for histogram with frequency of each channel value per pixel
-    Map<String, int[]> histogramMap = HistogramHelper.prepareHistogramTableEntries(
-            imagesPixelMatrices.get(inputFileName));
+  public PixelRaster generate(String inputFileName, String outputFileName, Map<String,
+          PixelRaster> images, Object... otherParams) {
+    int width = otherParams.length > 1 ? (int) otherParams[0] : WIDTH;
+    int height = otherParams.length > 1 ? (int) otherParams[1] : HEIGHT;
+    boolean logScale = otherParams.length > 2 && (boolean) otherParams[2];
+    boolean cumulative = otherParams.length > 3 && (boolean) otherParams[3];
+    if (width < 1 || height < 1) {
+      System.err.println("The width and height of the histogram image must be positive.");
+      return null;
+    }
 
-    // create histogram image out of histogram table
-    HistogramDrawer histogramDrawer = new HistogramDrawer(WIDTH, HEIGHT);
-    BufferedImage histogramImage = histogramDrawer.draw(histogramMap);
+    // create table for histogram with frequency of each channel value per pixel
+    ChannelHistogram histogram = images instanceof ImageStore
+            ? ((ImageStore) images).getHistogram(inputFileName)
+            : ChannelHistogram.of(images.get(inputFileName));
 
-    // create pixel matrix for created histogram image and return it
-    return HistogramHelper.preparePixelMatrixForImage(histogramImage, WIDTH, HEIGHT);
+    // draw the histogram image straight into its raster
+    return new HistogramDrawer(width, height, logScale, cumulative).draw(histogram);
   }
 }
@@ -1,19 +1,26 @@
 package model.imagetransformation;
 
-import java.awt.Graphics2D;
-import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.util.Map;
+import java.util.Arrays;
+
+import model.image.PixelRaster;
 
 /**
  * A class responsible for drawing a histogram based on input data.
+ * The red, green and blue channels are drawn as lines joining the counts of consecutive values,
+ * on a white background, straight into the pixels of a raster. The lines are rasterised with the
+ * same Bresenham steps as Graphics2D.drawLine, so the histogram looks exactly as it did when it
+ * was drawn into a BufferedImage, but without AWT, which also makes it work in headless runs.
+ * The counts can be drawn on a logarithmic scale, which shows the small counts next to a high
+ * peak, and cumulatively, every value showing how many pixels have that value or a lower one.
  */
 public class HistogramDrawer {
+  private static final int BACKGROUND = 0xFFFFFFFF;
+  private static final int[] CHANNEL_COLORS = {0xFFFF0000, 0xFF00FF00, 0xFF0000FF};
 
-  private int width; // Width of the histogram
-  private int height; // Height of the histogram
-  private int maxFrequency = 0; // Maximum frequency value among all channels
-  private Graphics2D g2d = null; // Graphics2D object for drawing
+  private final int width; // Width of the histogram
+  private final int height; // Height of the histogram
+  private final boolean logScale;
+  private final boolean cumulative;
 
   /**
    * Constructs a HistogramDrawer with the specified width and height.
@@ -22,71 +29,134 @@ public class HistogramDrawer {
    * @param height The height of the histogram.
    */
   public HistogramDrawer(int width, int height) {
+    this(width, height, false, false);
+  }
+
+  /**
+   * Constructs a HistogramDrawer with the specified size and scale.
+   *
+   * @param width      The width of the histogram.
+   * @param height     The height of the histogram.
+   * @param logScale   Whether the heights are proportional to the logarithm of the counts.
+   * @param cumulative Whether every value is drawn with the count of that value and all the lower
+   *                   ones.
+   */
+  public HistogramDrawer(int width, int height, boolean logScale, boolean cumulative) {
     this.width = width;
     this.height = height;
+    this.logScale = logScale;
+    this.cumulative = cumulative;
   }
 
   /**
-   * Gets the maximum frequency value among all channels in the histogram map.
+   * Draws the histogram based on the input histogram.
    *
-   * @param histogramMap A map containing histogram data for different color channels.
-   * @return The maximum frequency value.
+   * @param histogram The histogram of the color channels.
+   * @return The raster representing the generated histogram image.
    */
-  private int getMaxFrequency(Map<String, int[]> histogramMap) {
-    int maxVal = 0;
+  protected PixelRaster draw(ChannelHistogram histogram) {
+    PixelRaster raster = new PixelRaster(width, height);
+    int[] data = raster.getData();
+    // Fill background
+    Arrays.fill(data, BACKGROUND);
+
+    int[][] counts = new int[CHANNEL_COLORS.length][];
+    int maxCount = 0;
+    for (int channel = 0; channel < counts.length; channel++) {
+      counts[channel] = histogram.getCounts(channel);
+      if (cumulative) {
+        for (int value = 1; value < counts[channel].length; value++) {
+          counts[channel][value] += counts[channel][value - 1];
+        }
+      }
+      for (int count : counts[channel]) {
+        maxCount = Math.max(maxCount, count);
+      }
+    }
 
-    for (int i = 0; i < histogramMap.get("red").length; i++) {
-      maxVal = Math.max(Math.max(Math.max(histogramMap.get("red")[i], histogramMap.get("green")[i]),
-              histogramMap.get("blue")[i]), maxVal);
+    // draw lines for each channel
+    for (int channel = 0; channel < counts.length; channel++) {
+      drawLines(data, counts[channel], maxCount, CHANNEL_COLORS[channel]);
     }
-    return maxVal;
+    return raster;
   }
 
   /**
    * Draws lines for a specific color channel in the histogram.
    *
+   * @param data          The pixels of the histogram image.
    * @param histogramData The histogram data for a specific color channel.
+   * @param maxCount      The count drawn at the full height.
    * @param color         The color of the lines.
    */
-  private void drawLines(int[] histogramData, Color color) {
-    g2d.setColor(color);
-    int barWidth = width / histogramData.length;
+  private void drawLines(int[] data, int[] histogramData, int maxCount, int color) {
     int prevX = 0;
     int prevY = height;
-
     for (int i = 0; i < histogramData.length; i++) {
-      int barHeight = (int) Math.ceil((double) histogramData[i] / maxFrequency * height);
-      int x = i * barWidth;
-      int y = height - barHeight;
-      g2d.drawLine(prevX, prevY, x, y);
+      int x = (int) ((long) i * (width - 1) / (histogramData.length - 1));
+      int y = height - barHeight(histogramData[i], maxCount);
+      drawLine(data, prevX, prevY, x, y, color);
       prevX = x;
       prevY = y;
     }
   }
 
   /**
-   * Draws the histogram based on the input histogram map.
+   * Calculates the height a count is drawn at.
    *
-   * @param histogramMap A map containing histogram data for different color channels.
-   * @return The BufferedImage representing the generated histogram image.
+   * @param count    The count.
+   * @param maxCount The count drawn at the full height.
+   * @return The height, from 0 to the height of the histogram.
    */
-  protected BufferedImage draw(Map<String, int[]> histogramMap) {
-    BufferedImage histogramImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    g2d = histogramImage.createGraphics();
-
-    // Fill background
-    g2d.setColor(Color.WHITE);
-    g2d.fillRect(0, 0, width, height);
-
-    // get maximum frequency value among all channels
-    maxFrequency = getMaxFrequency(histogramMap);
-
-    // draw lines for each channel
-    drawLines(histogramMap.get("red"), Color.red);
-    drawLines(histogramMap.get("green"), Color.green);
-    drawLines(histogramMap.get("blue"), Color.blue);
+  private int barHeight(int count, int maxCount) {
+    if (maxCount == 0) {
+      return 0;
+    }
+    if (logScale) {
+      return (int) Math.ceil(Math.log1p(count) / Math.log1p(maxCount) * height);
+    }
+    return (int) Math.ceil((double) count / maxCount * height);
+  }
 
-    g2d.dispose();
-    return histogramImage;
+  /**
+   * Draws a line between two points, both included, leaving out the pixels outside the image.
+   * The pixels are those Graphics2D.drawLine draws: the line steps along its longer axis and
+   * also along the shorter one whenever the error term is not negative.
+   *
+   * @param data  The pixels of the histogram image.
+   * @param x1    The column of the first point.
+   * @param y1    The row of the first point.
+   * @param x2    The column of the second point.
+   * @param y2    The row of the second point.
+   * @param color The color of the line.
+   */
+  private void drawLine(int[] data, int x1, int y1, int x2, int y2, int color) {
+    int dx = Math.abs(x2 - x1);
+    int dy = Math.abs(y2 - y1);
+    int stepX = x2 < x1 ? -1 : 1;
+    int stepY = y2 < y1 ? -1 : 1;
+    boolean xMajor = dx >= dy;
+    int major = xMajor ? dx : dy;
+    int minor = xMajor ? dy : dx;
+    int error = 2 * minor - major;
+    int x = x1;
+    int y = y1;
+    for (int step = 0; step <= major; step++) {
+      if (x >= 0 && x < width && y >= 0 && y < height) {
+        data[y * width + x] = color;
+      }
+      if (minor > 0 && error >= 0) {
+        x += stepX;
+        y += stepY;
+        error -= 2 * (major - minor);
+      } else {
+        if (xMajor) {
+          x += stepX;
+        } else {
+          y += stepY;
+        }
+        error += 2 * minor;
+      }
+    }
   }
 }
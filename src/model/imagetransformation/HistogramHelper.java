@@ -1,10 +1,11 @@
 package model.imagetransformation;
 
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
 import java.util.Map;
 
+import model.image.BufferedImageConverter;
 import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * A helper class for handling histogram-related operations.
@@ -23,24 +24,18 @@ public class HistogramHelper {
    * @return A map containing histogram data for different color channels.
    */
   public static Map<String, int[]> prepareHistogramTableEntries(Pixel[][] pixelMatrix) {
-    Map<String, int[]> histogramMap = new HashMap<>();
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    histogramMap.put("red", new int[RANGE_MAX]);
-    histogramMap.put("green", new int[RANGE_MAX]);
-    histogramMap.put("blue", new int[RANGE_MAX]);
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        Pixel pixel = pixelMatrix[i][j];
-        int redVal = pixel.getRed();
-        int greenVal = pixel.getGreen();
-        int blueVal = pixel.getBlue();
-        histogramMap.get("red")[redVal] += 1;
-        histogramMap.get("green")[greenVal] += 1;
-        histogramMap.get("blue")[blueVal] += 1;
-      }
-    }
-    return histogramMap;
+    return prepareHistogramTableEntries(PixelRaster.fromPixels(pixelMatrix));
+  }
+
+  /**
+   * Prepares a histogram table based on the raster provided. The counts come from
+   * ChannelHistogram, which the transformations use directly.
+   *
+   * @param raster The raster representing an image.
+   * @return A map containing histogram data for different color channels.
+   */
+  public static Map<String, int[]> prepareHistogramTableEntries(PixelRaster raster) {
+    return ChannelHistogram.of(raster).toMap();
   }
 
   /**
@@ -53,17 +48,26 @@ public class HistogramHelper {
    */
   public static Pixel[][] preparePixelMatrixForImage(BufferedImage histogramImage,
                                                      int width, int height) {
+    PixelRaster raster = BufferedImageConverter.toRaster(histogramImage, height, width);
     Pixel[][] outputPixelMatrix = new Pixel[width][height];
     for (int i = 0; i < width; i++) {
       for (int j = 0; j < height; j++) {
-        int pixelVal = histogramImage.getRGB(j, i);
-        int alpha = (pixelVal >> 24) & 0xFF;
-        int red = (pixelVal >> 16) & 0xFF;
-        int green = (pixelVal >> 8) & 0xFF;
-        int blue = pixelVal & 0xFF;
-        outputPixelMatrix[i][j] = new Pixel(red, green, blue, alpha);
+        outputPixelMatrix[i][j] = raster.getPixel(i, j);
       }
     }
     return outputPixelMatrix;
   }
+
+  /**
+   * Prepares a raster from the given BufferedImage.
+   *
+   * @param histogramImage The BufferedImage representing a histogram.
+   * @param width          The width of the histogram image.
+   * @param height         The height of the histogram image.
+   * @return A raster representing the histogram image.
+   */
+  public static PixelRaster prepareRasterForImage(BufferedImage histogramImage,
+                                                  int width, int height) {
+    return BufferedImageConverter.toRaster(histogramImage, width, height);
+  }
 }
@@ -2,10 +2,11 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
- * Transformation class that flips an image horizontally.
+ * Transformation class that flips an image horizontally. The flipped image is a view of the input
+ * image (see RasterView), so its pixels are only copied when they are needed.
  */
 public class HorizontalFlip extends AbstractImageTransformation {
 
@@ -14,24 +15,16 @@ public class HorizontalFlip extends AbstractImageTransformation {
    *
    * @param inputFileName       The name of the input image file.
    * @param outputFileName      The name of the output image file after horizontal flipping.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters or configurations for the transformation.
-   * @return A two-dimensional array of pixels representing the horizontally flipped image.
+   * @return A raster representing the horizontally flipped image.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices,
-                            Object... otherParams) {
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images,
+                              Object... otherParams) {
 
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        outputPixelMatrix[i][pixelMatrixCols - 1 - j] = pixelMatrix[i][j];
-      }
-    }
-    return outputPixelMatrix;
+    PixelRaster raster = images.get(inputFileName);
+    return RasterView.of(raster).flipHorizontal().toRaster();
   }
 }
@@ -2,21 +2,21 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * An interface representing an image transformation operation.
  */
 public interface ImageTransformation {
   /**
-   * Applies a specific transformation on an image and returns the modified pixel matrix.
+   * Applies a specific transformation on an image and returns the modified raster.
    *
    * @param inputFileName       The input file name of the image.
    * @param outputFileName      The output file name of the transformed image.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters for the transformation (if required).
-   * @return A two-dimensional array of pixels representing the transformed image.
+   * @return A raster representing the transformed image.
    */
-  Pixel[][] generate(String inputFileName, String outputFileName,
-                     Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams);
+  PixelRaster generate(String inputFileName, String outputFileName,
+                       Map<String, PixelRaster> images, Object... otherParams);
 }
@@ -2,37 +2,42 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * Transformation class that extracts intensity component from an image.
  */
-public class IntensityComponent extends AbstractImageTransformation {
+public class IntensityComponent extends AbstractImageTransformation
+        implements PointTransformation {
   /**
    * Extracts the intensity component from the input image.
    *
    * @param inputFileName       The name of the input image file.
    * @param outputFileName      The name of the output image file after intensity extraction.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters or configurations for the transformation.
-   * @return A two-dimensional array of pixels representing the intensity component of the image.
+   * @return A raster representing the intensity component of the image.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    Pixel pixel;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        // process pixel
-        pixel = pixelMatrix[i][j];
-        int avg = (pixel.getRed() + pixel.getGreen() + pixel.getBlue()) / 3;
-        outputPixelMatrix[i][j] = new Pixel(avg, avg, avg, pixel.getAlpha());
-      }
-    }
-    return outputPixelMatrix;
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
+
+  /**
+   * Creates the per-pixel operation setting all components of a pixel to their average.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The intensity operation.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
+    return argb -> {
+      int avg = (PixelRaster.red(argb) + PixelRaster.green(argb) + PixelRaster.blue(argb)) / 3;
+      return PixelRaster.pack(PixelRaster.alpha(argb), avg, avg, avg);
+    };
   }
 }
@@ -1,33 +1,47 @@
 package model.imagetransformation;
 
 import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * A class representing an image transformation for adjusting levels.
  * It extends the AbstractImageTransformation class.
  */
-public class LevelsAdjust extends AbstractImageTransformation {
+public class LevelsAdjust extends AbstractImageTransformation
+        implements PointTransformation {
 
   /**
    * Applies the levels adjustment transformation to the given image matrix.
    *
    * @param inputFileName       The input file name.
    * @param outputFileName      The output file name.
-   * @param imagesPixelMatrices A map containing pixel matrices for different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters for the transformation.
    *                            Expects three parameters in the order: black point (b),
    *                            midpoint (m), and white point (w).
-   * @return The transformed pixel matrix.
+   * @return The transformed raster.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams)
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams)
           throws IllegalArgumentException {
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
 
-    double splitPercentage = (double) otherParams[3];
-
+  /**
+   * Creates the per-pixel operation mapping every color component through the quadratic curve
+   * that passes through the black point, midpoint and white point.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The lookup table of the levels adjustment.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
     int b = Integer.parseInt((String) otherParams[0]);
     int m = Integer.parseInt((String) otherParams[1]);
     int w = Integer.parseInt((String) otherParams[2]);
@@ -48,28 +62,19 @@ public class LevelsAdjust extends AbstractImageTransformation {
     double b2 = (localAb / localA);
     double c = (localAc / localA);
 
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixColumns = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixColumns];
-    Pixel pixel;
-    double splitViewWidth = (splitPercentage > 0) ? pixelMatrixColumns
-            * splitPercentage : pixelMatrixColumns;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixColumns; j++) {
-        pixel = pixelMatrix[i][j];
-        if (j < splitViewWidth) {
-          outputPixelMatrix[i][j] = new Pixel(
-                  Pixel.clamp(levelsAdjust(a, b2, c, pixel.getRed())),
-                  Pixel.clamp(levelsAdjust(a, b2, c, pixel.getGreen())),
-                  Pixel.clamp(levelsAdjust(a, b2, c, pixel.getBlue())));
-        } else {
-          outputPixelMatrix[i][j] = pixel;
-        }
-      }
-    }
+    IntUnaryOperator curve = value -> levelsAdjust(a, b2, c, value);
+    return ChannelLut.ofChannels(value -> 255, curve, curve, curve);
+  }
 
-    return outputPixelMatrix;
+  /**
+   * Gets the fraction of the width, from the left, to which the transformation is applied.
+   *
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The split percentage, the fourth parameter.
+   */
+  @Override
+  public double getSplitPercentage(Object... otherParams) {
+    return (double) otherParams[3];
   }
 
   /**
@@ -2,31 +2,50 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * Transformation class that extracts luma component from an image.
  */
-public class LumaComponent extends AbstractImageTransformation {
+public class LumaComponent extends AbstractImageTransformation
+        implements PointTransformation {
   /**
    * Extracts the luma component from the input image.
    *
    * @param inputFileName       The name of the input image file.
    * @param outputFileName      The name of the output image file after luma extraction.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters or configurations for the transformation.
-   * @return A two-dimensional array of pixels representing the luma component of the image.
+   * @return A raster representing the luma component of the image.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    double[][] greyscaleFilter = {
-        {0.2126, 0.7152, 0.0722},
-        {0.2126, 0.7152, 0.0722},
-        {0.2126, 0.7152, 0.0722}
-    };
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    return TransformationHelper.applyTransformation(pixelMatrix, greyscaleFilter,
-        TransformationType.TRANSFORM, (double) otherParams[0]);
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
+
+  /**
+   * Creates the per-pixel operation computing the luma component of a pixel.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The luma colour matrix.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
+    return ColorMatrix.LUMA;
+  }
+
+  /**
+   * Gets the fraction of the width, from the left, to which the transformation is applied.
+   *
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The split percentage, the first parameter.
+   */
+  @Override
+  public double getSplitPercentage(Object... otherParams) {
+    return (double) otherParams[0];
   }
 }
@@ -0,0 +1,26 @@
+package model.imagetransformation;
+
+/**
+ * Represents an operation that computes every pixel of an image from the pixel at the same
+ * position only, such as brightening or a colour matrix. Such operations can be chained and
+ * applied to an image in a single pass, see PointPipeline.
+ */
+public interface PointOperation {
+  /**
+   * Applies the operation to a single pixel.
+   *
+   * @param argb The packed ARGB value of the pixel.
+   * @return The packed ARGB value of the resulting pixel.
+   */
+  int apply(int argb);
+
+  /**
+   * Creates an operation that applies this operation first and the given one second.
+   *
+   * @param next The operation to apply after this one.
+   * @return The chained operation.
+   */
+  default PointOperation then(PointOperation next) {
+    return argb -> next.apply(apply(argb));
+  }
+}
@@ -0,0 +1,223 @@
+package model.imagetransformation;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import model.image.PixelRaster;
+
+/**
+ * A chain of point operations applied to a source raster. The chain is evaluated lazily: the
+ * raster created by toRaster is deferred and its pixels are only computed, in a single pass over
+ * the source, when they are first accessed (for instance when the image is saved or consumed by
+ * a filter). Appending an operation to the pipeline of a deferred raster creates a longer chain
+ * on the same source, so the intermediate images of a sequence of point operations are never
+ * computed unless somebody reads them.
+ * The operations are applied to blocks of a row one after the other while the block is in the
+ * cache, which gives the same result as applying them to whole images one after the other.
+ * A pipeline created with countingHistogram also counts the histogram of its result while it is
+ * computed, each row as soon as it is done, so the histogram costs no pass of its own.
+ */
+public class PointPipeline implements Consumer<int[]> {
+  /**
+   * The number of pixels of a row processed by all operations before moving on.
+   */
+  private static final int BLOCK_SIZE = 1024;
+
+  private final PixelRaster source;
+  private final PointOperation[] operations;
+  private final int[] endColumns;
+  private final boolean countsHistogram;
+  // the histogram of the result, set once the result has been computed if it is counted
+  private volatile ChannelHistogram histogram;
+
+  /**
+   * Constructs a pipeline applying the given operations to the source.
+   *
+   * @param source          The raster the operations are applied to.
+   * @param operations      The operations in the order they are applied.
+   * @param endColumns      For every operation, the number of columns, from the left, it
+   *                        applies to.
+   * @param countsHistogram Whether the histogram of the result is counted while computing it.
+   */
+  private PointPipeline(PixelRaster source, PointOperation[] operations, int[] endColumns,
+                        boolean countsHistogram) {
+    this.source = source;
+    this.operations = operations;
+    this.endColumns = endColumns;
+    this.countsHistogram = countsHistogram;
+  }
+
+  /**
+   * Gets a pipeline producing the given raster. If the raster is a deferred result of a pipeline
+   * that has not been computed yet, that pipeline is returned, so operations appended to it
+   * extend the same chain; otherwise a pipeline without operations on the raster is returned.
+   *
+   * @param raster The raster.
+   * @return A pipeline whose result is the raster.
+   */
+  public static PointPipeline of(PixelRaster raster) {
+    Consumer<int[]> producer = raster.getProducer();
+    if (producer instanceof PointPipeline) {
+      return (PointPipeline) producer;
+    }
+    return new PointPipeline(raster, new PointOperation[0], new int[0], false);
+  }
+
+  /**
+   * Applies an operation to a raster right away.
+   *
+   * @param raster          The raster to transform.
+   * @param operation       The operation to apply, or null if the parameters were invalid.
+   * @param splitPercentage The fraction of the width, from the left, to which the operation is
+   *                        applied, or 0 to apply it to the whole raster.
+   * @return The transformed raster, or null if the operation is null.
+   */
+  public static PixelRaster apply(PixelRaster raster, PointOperation operation,
+                                  double splitPercentage) {
+    if (operation == null) {
+      return null;
+    }
+    return of(raster).then(operation, splitPercentage).materialize();
+  }
+
+  /**
+   * Creates a pipeline that applies the given operation after the operations of this one. A
+   * lookup table that follows another lookup table over the same columns is composed with it.
+   *
+   * @param operation       The operation to append.
+   * @param splitPercentage The fraction of the width, from the left, to which the operation is
+   *                        applied, or 0 to apply it to the whole raster.
+   * @return The extended pipeline.
+   */
+  public PointPipeline then(PointOperation operation, double splitPercentage) {
+    int count = operations.length;
+    int endColumn = TransformationHelper.splitColumns(source.getWidth(), splitPercentage);
+    if (count > 0 && endColumns[count - 1] == endColumn
+            && operations[count - 1] instanceof ChannelLut && operation instanceof ChannelLut) {
+      // lookup tables over the same columns compose exactly into a single table
+      PointOperation[] newOperations = operations.clone();
+      newOperations[count - 1] = ((ChannelLut) operations[count - 1])
+              .then((ChannelLut) operation);
+      return new PointPipeline(source, newOperations, endColumns, false);
+    }
+    PointOperation[] newOperations = Arrays.copyOf(operations, count + 1);
+    int[] newEndColumns = Arrays.copyOf(endColumns, count + 1);
+    newOperations[count] = operation;
+    newEndColumns[count] = endColumn;
+    return new PointPipeline(source, newOperations, newEndColumns, false);
+  }
+
+  /**
+   * Creates a pipeline with the operations of this one that also counts the histogram of its
+   * result while computing it, see getHistogram.
+   *
+   * @return The counting pipeline.
+   */
+  public PointPipeline countingHistogram() {
+    return new PointPipeline(source, operations, endColumns, true);
+  }
+
+  /**
+   * Gets the number of columns, from the left, that the operations of this pipeline change; the
+   * other columns of the result are those of the source.
+   *
+   * @return The number of columns.
+   */
+  public int getChangedColumns() {
+    int changedColumns = 0;
+    for (int endColumn : endColumns) {
+      changedColumns = Math.max(changedColumns, endColumn);
+    }
+    return changedColumns;
+  }
+
+  /**
+   * Gets the histogram of the result, counted while computing it.
+   *
+   * @return The histogram, or null if the pipeline was not created with countingHistogram or
+   *         its result has not been computed yet.
+   */
+  public ChannelHistogram getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * Gets the number of operations of the pipeline.
+   *
+   * @return The number of operations.
+   */
+  public int size() {
+    return operations.length;
+  }
+
+  /**
+   * Gets the raster the operations of this pipeline are applied to.
+   *
+   * @return The source raster.
+   */
+  public PixelRaster getSource() {
+    return source;
+  }
+
+  /**
+   * Creates a deferred raster holding the result of the pipeline.
+   *
+   * @return The deferred result, or the source itself if the pipeline has no operations.
+   */
+  public PixelRaster toRaster() {
+    if (operations.length == 0) {
+      return source;
+    }
+    return new PixelRaster(source.getWidth(), source.getHeight(), this);
+  }
+
+  /**
+   * Computes the result of the pipeline right away.
+   *
+   * @return The result of the pipeline.
+   */
+  public PixelRaster materialize() {
+    PixelRaster raster = toRaster();
+    raster.getData();
+    return raster;
+  }
+
+  /**
+   * Computes the result of the pipeline into the given array, which holds the pixels of the
+   * result row after row without gaps.
+   *
+   * @param outputData The array to fill.
+   */
+  @Override
+  public void accept(int[] outputData) {
+    int rasterRows = source.getHeight();
+    int rasterCols = source.getWidth();
+    int[] data = source.getData();
+    ChannelHistogram resultHistogram = countsHistogram ? new ChannelHistogram() : null;
+    RasterExecutor.forEachRowBand(rasterRows, rasterCols, (startRow, endRow) -> {
+      int[] partial = countsHistogram ? ChannelHistogram.newPartial() : null;
+      for (int i = startRow; i < endRow; i++) {
+        int outputOffset = i * rasterCols;
+        System.arraycopy(data, source.rowOffset(i), outputData, outputOffset, rasterCols);
+        for (int blockStart = 0; blockStart < rasterCols; blockStart += BLOCK_SIZE) {
+          int blockEnd = Math.min(rasterCols, blockStart + BLOCK_SIZE);
+          for (int k = 0; k < operations.length; k++) {
+            PointOperation operation = operations[k];
+            int end = outputOffset + Math.min(blockEnd, endColumns[k]);
+            for (int index = outputOffset + blockStart; index < end; index++) {
+              outputData[index] = operation.apply(outputData[index]);
+            }
+          }
+        }
+        if (countsHistogram) {
+          // the row is still in the cache
+          ChannelHistogram.count(outputData, outputOffset, outputOffset + rasterCols, partial);
+        }
+      }
+      if (countsHistogram) {
+        resultHistogram.addPartial(partial);
+      }
+    });
+    histogram = resultHistogram;
+  }
+}
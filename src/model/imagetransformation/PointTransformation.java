@@ -0,0 +1,32 @@
+package model.imagetransformation;
+
+import model.image.PixelRaster;
+
+/**
+ * This interface is implemented by the transformations whose output pixels only depend on the
+ * input pixel at the same position. The image model uses it to record such transformations in a
+ * PointPipeline instead of running them right away, so that consecutive ones are fused into a
+ * single pass and intermediate images that are never read are never computed.
+ */
+public interface PointTransformation {
+  /**
+   * Creates the per-pixel operation of this transformation. Only transformations that need to
+   * analyse the whole input image (such as color correction) access the pixels of the raster;
+   * the others only use the parameters.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams The parameters of the transformation, as passed to generate.
+   * @return The per-pixel operation, or null if the parameters are invalid.
+   */
+  PointOperation getPointOperation(PixelRaster raster, Object... otherParams);
+
+  /**
+   * Gets the fraction of the width, from the left, to which the operation is applied.
+   *
+   * @param otherParams The parameters of the transformation, as passed to generate.
+   * @return The split percentage, or 0 if the operation is applied to the whole image.
+   */
+  default double getSplitPercentage(Object... otherParams) {
+    return 0;
+  }
+}
@@ -0,0 +1,207 @@
+package model.imagetransformation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs per-row work on an image in parallel. The rows of the image are split into bands that are
+ * processed on a shared fork-join pool; small images are processed on the calling thread, since
+ * for them the cost of handing the work over to other threads outweighs the gain.
+ * The parallelism defaults to the number of available processors and can be changed with the
+ * system property "imageprocessing.parallelism" or with setParallelism. A parallelism of 1
+ * processes every image sequentially.
+ * The work for a band must only write the rows of that band, so the result does not depend on
+ * how the image was split.
+ */
+public class RasterExecutor {
+  /**
+   * The name of the system property holding the default parallelism.
+   */
+  public static final String PARALLELISM_PROPERTY = "imageprocessing.parallelism";
+
+  /**
+   * The number of pixels below which an image is processed on the calling thread.
+   */
+  public static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+  private static int parallelism = readParallelismProperty();
+  private static ForkJoinPool pool;
+
+  /**
+   * Work that is applied to a band of consecutive rows of an image.
+   */
+  public interface RowBandTask {
+    /**
+     * Processes the rows in the given range.
+     *
+     * @param startRow The first row of the band (inclusive).
+     * @param endRow   The last row of the band (exclusive).
+     */
+    void apply(int startRow, int endRow);
+  }
+
+  /**
+   * Gets the number of threads used to process an image.
+   *
+   * @return The parallelism.
+   */
+  public static synchronized int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the number of threads used to process an image. A value of 1 turns parallel processing
+   * off.
+   *
+   * @param parallelism The new parallelism.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public static synchronized void setParallelism(int parallelism)
+          throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1.");
+    }
+    if (parallelism != RasterExecutor.parallelism) {
+      RasterExecutor.parallelism = parallelism;
+      if (pool != null) {
+        pool.shutdown();
+        pool = null;
+      }
+    }
+  }
+
+  /**
+   * Applies the task to all rows of an image of the given size. The rows are split into bands
+   * that run in parallel unless the image is small or the parallelism is 1. The method returns
+   * once all rows have been processed.
+   *
+   * @param rows    The number of rows of the image.
+   * @param columns The number of columns of the image.
+   * @param task    The work to apply to each band of rows.
+   */
+  public static void forEachRowBand(int rows, int columns, RowBandTask task) {
+    ForkJoinPool executionPool = getPool();
+    long pixels = (long) rows * columns;
+    if (executionPool == null || rows < 2 || pixels < SEQUENTIAL_THRESHOLD) {
+      task.apply(0, rows);
+      return;
+    }
+    // a few bands per thread keep the threads busy when some bands take longer than others
+    int bands = executionPool.getParallelism() * 4;
+    int minBandRows = Math.max(1, (int) Math.max(SEQUENTIAL_THRESHOLD / 4 / columns,
+            (long) rows / bands));
+    executionPool.invoke(new RowBandAction(task, 0, rows, minBandRows));
+  }
+
+  /**
+   * Runs a worker on every thread of the pool for an image of the given size and returns once
+   * all of them have finished. The workers share the work among themselves, for example by
+   * taking lines from a shared counter; a small image, or a parallelism of 1, runs a single
+   * worker on the calling thread. A worker may wait for the progress of the others, as long as
+   * it only waits for work already taken by a running worker.
+   *
+   * @param rows    The number of rows of the image.
+   * @param columns The number of columns of the image.
+   * @param worker  The work every thread runs.
+   */
+  public static void forEachWorker(int rows, int columns, Runnable worker) {
+    ForkJoinPool executionPool = getPool();
+    long pixels = (long) rows * columns;
+    if (executionPool == null || pixels < SEQUENTIAL_THRESHOLD) {
+      worker.run();
+      return;
+    }
+    executionPool.invoke(new WorkerAction(worker, executionPool.getParallelism()));
+  }
+
+  /**
+   * Gets the pool used for parallel processing, creating it when needed.
+   *
+   * @return The pool, or null if images are processed sequentially.
+   */
+  private static synchronized ForkJoinPool getPool() {
+    if (parallelism <= 1) {
+      return null;
+    }
+    if (pool == null) {
+      pool = new ForkJoinPool(parallelism);
+    }
+    return pool;
+  }
+
+  /**
+   * Reads the default parallelism from the system property, falling back to the number of
+   * available processors.
+   *
+   * @return The default parallelism.
+   */
+  private static int readParallelismProperty() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    String value = System.getProperty(PARALLELISM_PROPERTY);
+    if (value == null) {
+      return processors;
+    }
+    try {
+      return Math.max(1, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      System.err.println("Invalid value for " + PARALLELISM_PROPERTY + ": " + value
+              + ". Using " + processors + " threads.");
+      return processors;
+    }
+  }
+
+  /**
+   * A fork-join action that splits a range of rows in halves until the bands are small enough.
+   */
+  private static class RowBandAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final RowBandTask task;
+    private final int startRow;
+    private final int endRow;
+    private final int minBandRows;
+
+    RowBandAction(RowBandTask task, int startRow, int endRow, int minBandRows) {
+      this.task = task;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.minBandRows = minBandRows;
+    }
+
+    @Override
+    protected void compute() {
+      if (endRow - startRow <= minBandRows) {
+        task.apply(startRow, endRow);
+        return;
+      }
+      int middleRow = (startRow + endRow) >>> 1;
+      invokeAll(new RowBandAction(task, startRow, middleRow, minBandRows),
+              new RowBandAction(task, middleRow, endRow, minBandRows));
+    }
+  }
+
+  /**
+   * A fork-join action that runs a worker a number of times in parallel.
+   */
+  private static class WorkerAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Runnable worker;
+    private final int workers;
+
+    WorkerAction(Runnable worker, int workers) {
+      this.worker = worker;
+      this.workers = workers;
+    }
+
+    @Override
+    protected void compute() {
+      if (workers <= 1) {
+        worker.run();
+        return;
+      }
+      int half = workers / 2;
+      invokeAll(new WorkerAction(worker, half), new WorkerAction(worker, workers - half));
+    }
+  }
+}
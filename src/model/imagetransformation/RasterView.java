@@ -0,0 +1,266 @@
+package model.imagetransformation;
+
+import java.util.function.Consumer;
+
+import model.image.PixelRaster;
+
+/**
+ * A view of a raster in another orientation or of a part of it: flipped, rotated by a multiple of
+ * 90 degrees, transposed or cropped. A view only maps its pixels to the pixels of the source, so
+ * creating one takes constant time whatever the size of the image; the pixels are only copied
+ * when somebody needs them in a contiguous array, for instance to filter or save the image.
+ * Pixel (row, column) of the view is stored at origin + row * rowStep + column * columnStep of
+ * the array backing the source, where the steps are plus or minus 1 or the stride of the source.
+ * The raster created by toRaster is deferred, with the view as its producer. Viewing such a raster
+ * again, before its pixels are copied, combines both mappings into one view of the original
+ * source, so a sequence of flips and rotations copies the image at most once, and not at all if
+ * it ends in the orientation it started from. A view that keeps the rows of the source in order,
+ * like a crop, shares the array of a source whose pixels are available instead of copying it,
+ * unless it shows less than half of that array, which it would otherwise keep alive.
+ */
+public final class RasterView implements Consumer<int[]> {
+  /**
+   * The number of rows and columns of the tiles in which a view whose rows run across the rows
+   * of the source is copied.
+   */
+  private static final int TILE_SIZE = 64;
+
+  private final PixelRaster source;
+  private final int width;
+  private final int height;
+  private final int origin;
+  private final int rowStep;
+  private final int columnStep;
+
+  /**
+   * Constructs a view of a source.
+   *
+   * @param source     The raster the view maps its pixels to.
+   * @param width      The width of the view.
+   * @param height     The height of the view.
+   * @param origin     The index of the pixel at row 0 and column 0 of the view in the array of the
+   *                   source.
+   * @param rowStep    The distance in the array of the source between the pixels of two
+   *                   consecutive rows of the view.
+   * @param columnStep The distance in the array of the source between the pixels of two
+   *                   consecutive columns of the view.
+   */
+  private RasterView(PixelRaster source, int width, int height, int origin, int rowStep,
+                     int columnStep) {
+    this.source = source;
+    this.width = width;
+    this.height = height;
+    this.origin = origin;
+    this.rowStep = rowStep;
+    this.columnStep = columnStep;
+  }
+
+  /**
+   * Gets a view showing the given raster. If the raster is a deferred view whose pixels have not
+   * been copied yet, that view is returned, so views of it map straight to its source; otherwise
+   * a view of the whole raster as it is is returned.
+   *
+   * @param raster The raster.
+   * @return A view whose raster is the given raster.
+   */
+  public static RasterView of(PixelRaster raster) {
+    Consumer<int[]> producer = raster.getProducer();
+    if (producer instanceof RasterView) {
+      return (RasterView) producer;
+    }
+    return new RasterView(raster, raster.getWidth(), raster.getHeight(), raster.getOffset(),
+            raster.getStride(), 1);
+  }
+
+  /**
+   * Gets the raster the view maps its pixels to.
+   *
+   * @return The source raster.
+   */
+  public PixelRaster getSource() {
+    return source;
+  }
+
+  /**
+   * Gets the width of the view.
+   *
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the view.
+   *
+   * @return The height in pixels.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Creates a view of this view flipped horizontally, the left column becoming the right one.
+   *
+   * @return The flipped view.
+   */
+  public RasterView flipHorizontal() {
+    return map(width, height, 0, width - 1, 1, 0, 0, -1);
+  }
+
+  /**
+   * Creates a view of this view flipped vertically, the top row becoming the bottom one.
+   *
+   * @return The flipped view.
+   */
+  public RasterView flipVertical() {
+    return map(width, height, height - 1, 0, -1, 0, 0, 1);
+  }
+
+  /**
+   * Creates a view of this view mirrored along its main diagonal, the rows becoming the columns.
+   *
+   * @return The transposed view.
+   */
+  public RasterView transpose() {
+    return map(height, width, 0, 0, 0, 1, 1, 0);
+  }
+
+  /**
+   * Creates a view of this view rotated clockwise by a multiple of 90 degrees.
+   *
+   * @param degrees The angle, a multiple of 90 degrees; negative angles rotate counterclockwise.
+   * @return The rotated view.
+   * @throws IllegalArgumentException if the angle is not a multiple of 90 degrees.
+   */
+  public RasterView rotate(int degrees) throws IllegalArgumentException {
+    if (degrees % 90 != 0) {
+      throw new IllegalArgumentException("Images can only be rotated by multiples of 90 degrees");
+    }
+    switch (Math.floorMod(degrees, 360)) {
+      case 90:
+        // the left column becomes the top row
+        return map(height, width, height - 1, 0, 0, -1, 1, 0);
+      case 180:
+        return map(width, height, height - 1, width - 1, -1, 0, 0, -1);
+      case 270:
+        // the right column becomes the top row
+        return map(height, width, 0, width - 1, 0, 1, -1, 0);
+      default:
+        return this;
+    }
+  }
+
+  /**
+   * Creates a view of a rectangle of this view.
+   *
+   * @param x          The column of the left side of the rectangle.
+   * @param y          The row of the top side of the rectangle.
+   * @param cropWidth  The width of the rectangle.
+   * @param cropHeight The height of the rectangle.
+   * @return The cropped view.
+   * @throws IllegalArgumentException if the rectangle is empty or not inside the view.
+   */
+  public RasterView crop(int x, int y, int cropWidth, int cropHeight)
+          throws IllegalArgumentException {
+    if (x < 0 || y < 0 || cropWidth <= 0 || cropHeight <= 0
+            || (long) x + cropWidth > width || (long) y + cropHeight > height) {
+      throw new IllegalArgumentException("The rectangle " + cropWidth + "x" + cropHeight + " at "
+              + x + "," + y + " is not inside the " + width + "x" + height + " image");
+    }
+    return map(cropWidth, cropHeight, y, x, 1, 0, 0, 1);
+  }
+
+  /**
+   * Creates the raster holding the pixels of the view. That is the source itself if the view
+   * shows all of it as it is, a raster sharing the array of the source if the rows of the view
+   * run along the rows of the source, the pixels of the source are available and the view shows
+   * at least half of them, a copy if it shows fewer, and otherwise a deferred raster that copies
+   * the pixels when they are first accessed.
+   *
+   * @return The raster of the view.
+   */
+  public PixelRaster toRaster() {
+    if (width == source.getWidth() && height == source.getHeight()
+            && origin == source.getOffset() && rowStep == source.getStride() && columnStep == 1) {
+      return source;
+    }
+    if (columnStep == 1 && rowStep >= width && source.isMaterialized()) {
+      if (2L * width * height < source.getData().length) {
+        // sharing a small part of a large array would keep all of it alive
+        PixelRaster copy = new PixelRaster(width, height);
+        accept(copy.getData());
+        return copy;
+      }
+      return new PixelRaster(width, height, source.getData(), origin, rowStep);
+    }
+    return new PixelRaster(width, height, this);
+  }
+
+  /**
+   * Copies the pixels of the view into the given array, row after row without gaps.
+   *
+   * @param outputData The array to fill.
+   */
+  @Override
+  public void accept(int[] outputData) {
+    int[] data = source.getData();
+    RasterExecutor.forEachRowBand(height, width, (startRow, endRow) -> {
+      if (columnStep == 1) {
+        for (int i = startRow; i < endRow; i++) {
+          System.arraycopy(data, origin + i * rowStep, outputData, i * width, width);
+        }
+        return;
+      }
+      if (columnStep == -1) {
+        for (int i = startRow; i < endRow; i++) {
+          int index = origin + i * rowStep;
+          int outputIndex = i * width;
+          for (int j = 0; j < width; j++) {
+            outputData[outputIndex++] = data[index--];
+          }
+        }
+        return;
+      }
+      // the columns of the view run along the rows of the source, so copy tiles that keep the
+      // rows of the source they read in the cache
+      for (int startTileRow = startRow; startTileRow < endRow; startTileRow += TILE_SIZE) {
+        int endTileRow = Math.min(endRow, startTileRow + TILE_SIZE);
+        for (int startColumn = 0; startColumn < width; startColumn += TILE_SIZE) {
+          int endColumn = Math.min(width, startColumn + TILE_SIZE);
+          for (int j = startColumn; j < endColumn; j++) {
+            int index = origin + startTileRow * rowStep + j * columnStep;
+            for (int i = startTileRow; i < endTileRow; i++) {
+              outputData[i * width + j] = data[index];
+              index += rowStep;
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Creates a view whose pixels are mapped to pixels of this view, and so of the source. Pixel
+   * (row, column) of the new view is pixel (startRow + row * rowRow + column * columnRow,
+   * startColumn + row * rowColumn + column * columnColumn) of this view.
+   *
+   * @param newWidth     The width of the new view.
+   * @param newHeight    The height of the new view.
+   * @param startRow     The row of this view shown at row 0 and column 0 of the new view.
+   * @param startColumn  The column of this view shown at row 0 and column 0 of the new view.
+   * @param rowRow       The change of the row of this view for the next row of the new view.
+   * @param columnRow    The change of the row of this view for the next column of the new view.
+   * @param rowColumn    The change of the column of this view for the next row of the new view.
+   * @param columnColumn The change of the column of this view for the next column of the new
+   *                     view.
+   * @return The new view.
+   */
+  private RasterView map(int newWidth, int newHeight, int startRow, int startColumn, int rowRow,
+                         int columnRow, int rowColumn, int columnColumn) {
+    return new RasterView(source, newWidth, newHeight,
+            origin + startRow * rowStep + startColumn * columnStep,
+            rowRow * rowStep + rowColumn * columnStep,
+            columnRow * rowStep + columnColumn * columnStep);
+  }
+}
@@ -2,12 +2,13 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * Transformation class to extract the red component of an image.
  */
-public class RedComponent extends AbstractImageTransformation {
+public class RedComponent extends AbstractImageTransformation
+        implements PointTransformation {
 
   /**
    * Applies the red component transformation to the input image.
@@ -15,30 +16,32 @@ public class RedComponent extends AbstractImageTransformation {
    * @param inputFileName       The name of the input image file.
    * @param outputFileName      The name of the output image file after the red
    *                            component transformation.
-   * @param imagesPixelMatrices A map containing pixel matrices of different images.
+   * @param images              A map containing the rasters of different images.
    * @param otherParams         Additional parameters for the transformation (if required).
-   * @return A two-dimensional array of pixels representing the red component of the image.
+   * @return A raster representing the red component of the image.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    if (pixelMatrix == null) {
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    if (raster == null) {
       System.err.println("Image " + inputFileName + " is not loaded correctly. "
               + "Please load the image using load command.");
       return null;
     }
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    Pixel pixel;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        // process pixel
-        pixel = pixelMatrix[i][j];
-        outputPixelMatrix[i][j] = new Pixel(pixel.getRed(), 0, 0, pixel.getAlpha());
-      }
-    }
-    return outputPixelMatrix;
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
+
+  /**
+   * Creates the per-pixel operation keeping only the red component of a pixel.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The colour matrix keeping the red channel.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
+    return ColorMatrix.RED_CHANNEL;
   }
 }
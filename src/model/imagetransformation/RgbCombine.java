@@ -2,7 +2,7 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * A class that combines three different image channels (RGB) into a single image.
@@ -13,31 +13,32 @@ public class RgbCombine extends AbstractImageTransformation {
    *
    * @param inputFileName       The input file name.
    * @param outputFileName      The output file name.
-   * @param imagesPixelMatrices A map containing images as pixel matrices.
-   * @param otherParams         Other parameters - three separate Pixel matrices for
+   * @param images              A map containing images as rasters.
+   * @param otherParams         Other parameters - three separate rasters for
    *                            R, G, B channels.
-   * @return The combined image as a 2D array of pixels.
+   * @return The combined image as a raster.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    Pixel pixel;
-    Pixel[][] pixelMatrixR = (Pixel[][]) otherParams[0];
-    Pixel[][] pixelMatrixG = (Pixel[][]) otherParams[1];
-    Pixel[][] pixelMatrixB = (Pixel[][]) otherParams[2];
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    int rasterRows = raster.getHeight();
+    int rasterCols = raster.getWidth();
+    PixelRaster outputRaster = new PixelRaster(rasterCols, rasterRows);
+    PixelRaster rasterR = (PixelRaster) otherParams[0];
+    PixelRaster rasterG = (PixelRaster) otherParams[1];
+    PixelRaster rasterB = (PixelRaster) otherParams[2];
+    int argbR;
+    for (int i = 0; i < rasterRows; i++) {
+      for (int j = 0; j < rasterCols; j++) {
         // process pixel
-        outputPixelMatrix[i][j] = new Pixel(pixelMatrixR[i][j].getRed(),
-                pixelMatrixG[i][j].getGreen(),
-                pixelMatrixB[i][j].getBlue(),
-                pixelMatrixR[i][j].getAlpha());
+        argbR = rasterR.getArgb(i, j);
+        outputRaster.setArgb(i, j, PixelRaster.pack(PixelRaster.alpha(argbR),
+                PixelRaster.red(argbR),
+                PixelRaster.green(rasterG.getArgb(i, j)),
+                PixelRaster.blue(rasterB.getArgb(i, j))));
       }
     }
-    return outputPixelMatrix;
+    return outputRaster;
   }
 }
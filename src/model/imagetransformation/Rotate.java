@@ -0,0 +1,36 @@
+package model.imagetransformation;
+
+import java.util.Map;
+
+import model.image.PixelRaster;
+
+/**
+ * Transformation class that rotates an image clockwise by a multiple of 90 degrees. The rotated
+ * image is a view of the input image (see RasterView), so its pixels are only copied when they
+ * are needed.
+ */
+public class Rotate extends AbstractImageTransformation {
+
+  /**
+   * Rotates the input image.
+   *
+   * @param inputFileName       The name of the input image file.
+   * @param outputFileName      The name of the output image file after rotating.
+   * @param images              A map containing the rasters of different images.
+   * @param otherParams         Additional parameters for the transformation. Expects the angle
+   *                            in degrees, a multiple of 90; negative angles rotate
+   *                            counterclockwise.
+   * @return A raster representing the rotated image, or null if the angle is invalid.
+   */
+  @Override
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    int degrees = (int) otherParams[0];
+    if (degrees % 90 != 0) {
+      System.err.println("Images can only be rotated by multiples of 90 degrees.");
+      return null;
+    }
+    PixelRaster raster = images.get(inputFileName);
+    return RasterView.of(raster).rotate(degrees).toRaster();
+  }
+}
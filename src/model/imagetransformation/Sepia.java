@@ -2,31 +2,50 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * A class that transforms an image into a sepia-tone version.
  */
-public class Sepia extends AbstractImageTransformation {
+public class Sepia extends AbstractImageTransformation
+        implements PointTransformation {
   /**
    * Transforms the given image into a sepia-tone version.
    *
    * @param inputFileName       The input file name.
    * @param outputFileName      The output file name.
-   * @param imagesPixelMatrices A map containing images as pixel matrices.
+   * @param images              A map containing images as rasters.
    * @param otherParams         Other optional parameters.
-   * @return The transformed image as a 2D array of pixels.
+   * @return The transformed image as a raster.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    double[][] sepiaFilter = {
-            {0.393, 0.769, 0.189},
-            {0.349, 0.686, 0.168},
-            {0.272, 0.534, 0.131}
-    };
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    return TransformationHelper.applyTransformation(pixelMatrix, sepiaFilter,
-            TransformationType.TRANSFORM, (double) otherParams[0]);
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
+
+  /**
+   * Creates the per-pixel operation giving a pixel a sepia tone.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The sepia colour matrix.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
+    return ColorMatrix.SEPIA;
+  }
+
+  /**
+   * Gets the fraction of the width, from the left, to which the transformation is applied.
+   *
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The split percentage, the first parameter.
+   */
+  @Override
+  public double getSplitPercentage(Object... otherParams) {
+    return (double) otherParams[0];
   }
 }
@@ -2,7 +2,7 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * A class that sharpens an image using a predefined kernel matrix.
@@ -13,13 +13,13 @@ public class Sharpen extends AbstractImageTransformation {
    *
    * @param inputFileName       The input file name.
    * @param outputFileName      The output file name.
-   * @param imagesPixelMatrices A map containing images as pixel matrices.
+   * @param images              A map containing images as rasters.
    * @param otherParams         Other optional parameters.
-   * @return The sharpened image as a 2D array of pixels.
+   * @return The sharpened image as a raster.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
     double[][] sharpenKernelMatrix = {
             {-0.125, -0.125, -0.125, -0.125, -0.125},
             {-0.125, 0.25, 0.25, 0.25, -0.125},
@@ -27,8 +27,8 @@ public class Sharpen extends AbstractImageTransformation {
             {-0.125, 0.25, 0.25, 0.25, -0.125},
             {-0.125, -0.125, -0.125, -0.125, -0.125}
     };
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    return TransformationHelper.applyTransformation(pixelMatrix, sharpenKernelMatrix,
+    PixelRaster raster = images.get(inputFileName);
+    return TransformationHelper.applyTransformation(raster, sharpenKernelMatrix,
             TransformationType.FILTER, (double) otherParams[0]);
   }
 }
@@ -1,43 +1,102 @@
 package model.imagetransformation;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
+
+import static model.image.Pixel.clamp;
 
 /**
- * A helper class containing methods to apply transformations on image pixel matrices.
+ * A helper class containing methods to apply transformations on image rasters.
  */
 public class TransformationHelper {
   /**
-   * Applies the specified transformation or filtering effect to the pixel matrix.
+   * Applies the specified transformation or filtering effect to the raster. Filters are
+   * convolved with the kernel by Convolution and transformations are applied as a ColorMatrix.
+   * Large rasters are processed in parallel bands of rows, see RasterExecutor; the result is the
+   * same as when the rows are processed one after the other.
+   *
+   * @param raster          The input raster representing an image.
+   * @param filterKernel    The kernel matrix to be applied for the transformation or filtering.
+   * @param type            The type of transformation: TRANSFORM or FILTER.
+   * @param splitPercentage The fraction of the width, from the left, to which the effect is
+   *                        applied, or 0 to apply it to the whole raster.
+   * @return The transformed or filtered image as a raster.
+   */
+  public static PixelRaster applyTransformation(PixelRaster raster, double[][] filterKernel,
+                                                TransformationType type, double splitPercentage) {
+    if (type == TransformationType.FILTER) {
+      return Convolution.convolve(raster, new ConvolutionKernel(filterKernel), splitPercentage);
+    }
+    return new ColorMatrix(filterKernel).apply(raster, splitPercentage);
+  }
+
+  /**
+   * Processes a pixel based on a kernel matrix in the context of the whole raster. Kernel cells
+   * falling outside the raster are skipped.
    *
-   * @param pixelMatrix  The input pixel matrix representing an image.
-   * @param filterKernel The kernel matrix to be applied for the transformation or filtering.
-   * @param type         The type of transformation: TRANSFORM or FILTER.
-   * @return The transformed or filtered image as a 2D array of pixels.
+   * @param kernelMatrix The kernel matrix to apply to the raster.
+   * @param raster       The raster to process.
+   * @param pixelRow     The row index of the pixel.
+   * @param pixelColumn  The column index of the pixel.
+   * @return The packed ARGB value resulting from applying the kernel matrix to the raster.
    */
-  public static Pixel[][] applyTransformation(Pixel[][] pixelMatrix, double[][] filterKernel,
-                                              TransformationType type, double splitPercentage) {
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    double splitViewWidth = (splitPercentage > 0) ?
-            pixelMatrixCols * splitPercentage : pixelMatrixCols;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    Pixel pixel;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        // process pixel
-        pixel = pixelMatrix[i][j];
-        if (j < splitViewWidth) {
-          if (type == TransformationType.TRANSFORM) {
-            outputPixelMatrix[i][j] = Pixel.processPixel(filterKernel, pixel);
-          } else {
-            outputPixelMatrix[i][j] = Pixel.processPixel(filterKernel, pixelMatrix, i, j);
-          }
-        } else {
-          outputPixelMatrix[i][j] = new Pixel(pixel.getRed(), pixel.getGreen(),
-                  pixel.getBlue(), pixel.getAlpha());
+  static int processPixel(double[][] kernelMatrix, PixelRaster raster,
+                          int pixelRow, int pixelColumn) {
+    int rasterRows = raster.getHeight();
+    int rasterCols = raster.getWidth();
+    int kernelSize = kernelMatrix.length;
+    int kernelCenter = (kernelSize - 1) / 2;
+    int sumR = 0;
+    int sumG = 0;
+    int sumB = 0;
+    int mappedRow;
+    int mappedCol;
+    for (int s = 0; s < kernelSize; s++) {
+      for (int t = 0; t < kernelSize; t++) {
+        // find mapped cell position of raster as per current kernel cell
+        mappedRow = pixelRow + s - kernelCenter;
+        mappedCol = pixelColumn + t - kernelCenter;
+
+        // check if position is going out of raster boundaries
+        if ((mappedRow < 0 || mappedRow >= rasterRows)
+                || (mappedCol < 0 || mappedCol >= rasterCols)) {
+          continue;
         }
+        int argb = raster.getArgb(mappedRow, mappedCol);
+        sumR += (int) (kernelMatrix[s][t] * PixelRaster.red(argb));
+        sumG += (int) (kernelMatrix[s][t] * PixelRaster.green(argb));
+        sumB += (int) (kernelMatrix[s][t] * PixelRaster.blue(argb));
       }
     }
-    return outputPixelMatrix;
+    return PixelRaster.pack(PixelRaster.alpha(raster.getArgb(pixelRow, pixelColumn)),
+            clamp(sumR), clamp(sumG), clamp(sumB));
+  }
+
+  /**
+   * Computes the number of columns, from the left, that a split view applies an effect to.
+   *
+   * @param columns         The number of columns of the image.
+   * @param splitPercentage The split fraction, or 0 if the effect applies to the whole image.
+   * @return The number of columns the effect applies to.
+   */
+  static int splitColumns(int columns, double splitPercentage) {
+    double splitViewWidth = (splitPercentage > 0) ? columns * splitPercentage : columns;
+    return (int) Math.min(columns, Math.ceil(splitViewWidth));
+  }
+
+  /**
+   * Copies the pixels of a row, from the given column onwards, from one raster to another.
+   *
+   * @param source      The raster to copy from.
+   * @param destination The raster to copy to.
+   * @param row         The row to copy.
+   * @param startColumn The first column to copy.
+   */
+  static void copyRemainingColumns(PixelRaster source, PixelRaster destination, int row,
+                                   int startColumn) {
+    int count = source.getWidth() - startColumn;
+    if (count > 0) {
+      System.arraycopy(source.getData(), source.rowOffset(row) + startColumn,
+              destination.getData(), destination.rowOffset(row) + startColumn, count);
+    }
   }
 }
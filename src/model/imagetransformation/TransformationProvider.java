@@ -0,0 +1,16 @@
+package model.imagetransformation;
+
+/**
+ * A service that contributes transformations to the TransformationRegistry. Implementations are
+ * discovered with java.util.ServiceLoader when the default registry is created, so a
+ * transformation can be added, or a built-in one replaced, by putting a jar on the class path
+ * that lists its provider in META-INF/services/model.imagetransformation.TransformationProvider.
+ */
+public interface TransformationProvider {
+  /**
+   * Registers the transformations of this provider.
+   *
+   * @param registry The registry to add the transformations to.
+   */
+  void registerTransformations(TransformationRegistry registry);
+}
@@ -0,0 +1,98 @@
+package model.imagetransformation;
+
+import java.util.EnumMap;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Maps every transformation method to the transformation that implements it. Transformations
+ * are stateless, so a single instance of each is created when the registry is built and shared
+ * by all callers; looking a transformation up is a single array access.
+ * The default registry holds the built-in transformations followed by those of the
+ * TransformationProvider services found on the class path, which may replace built-in ones.
+ */
+public class TransformationRegistry {
+  private static TransformationRegistry defaultRegistry;
+
+  // replaced as a whole on every registration, so lookups need no locking
+  private volatile EnumMap<Methods, AbstractImageTransformation> transformations;
+
+  /**
+   * Constructs an empty registry.
+   */
+  public TransformationRegistry() {
+    transformations = new EnumMap<>(Methods.class);
+  }
+
+  /**
+   * Gets the default registry, creating it the first time.
+   *
+   * @return The registry with the built-in transformations and those of the providers.
+   */
+  public static synchronized TransformationRegistry getDefault() {
+    if (defaultRegistry == null) {
+      TransformationRegistry registry = new TransformationRegistry();
+      registry.registerBuiltInTransformations();
+      try {
+        for (TransformationProvider provider : ServiceLoader.load(TransformationProvider.class)) {
+          provider.registerTransformations(registry);
+        }
+      } catch (ServiceConfigurationError e) {
+        System.err.println("Could not load the transformation providers: " + e.getMessage());
+      }
+      defaultRegistry = registry;
+    }
+    return defaultRegistry;
+  }
+
+  /**
+   * Registers the transformation implementing a method, replacing any previous one.
+   *
+   * @param method         The method.
+   * @param transformation The stateless transformation implementing the method.
+   */
+  public synchronized void register(Methods method, AbstractImageTransformation transformation) {
+    EnumMap<Methods, AbstractImageTransformation> updated = new EnumMap<>(transformations);
+    updated.put(method, transformation);
+    transformations = updated;
+  }
+
+  /**
+   * Gets the transformation implementing a method.
+   *
+   * @param method The method.
+   * @return The transformation, or null if none is registered for the method.
+   */
+  public AbstractImageTransformation get(Methods method) {
+    return transformations.get(method);
+  }
+
+  /**
+   * Registers the transformations that come with the application.
+   */
+  private void registerBuiltInTransformations() {
+    register(Methods.GREYSCALE, new Greyscale());
+    register(Methods.SEPIA, new Sepia());
+    register(Methods.BLUR, new Blur());
+    register(Methods.SHARPEN, new Sharpen());
+    register(Methods.VALUE_COMPONENT, new ValueComponent());
+    register(Methods.INTENSITY_COMPONENT, new IntensityComponent());
+    register(Methods.LUMA_COMPONENT, new LumaComponent());
+    register(Methods.RED_COMPONENT, new RedComponent());
+    register(Methods.GREEN_COMPONENT, new GreenComponent());
+    register(Methods.BLUE_COMPONENT, new BlueComponent());
+    register(Methods.BRIGHTEN, new Brighten());
+    register(Methods.HORIZONTAL_FLIP, new HorizontalFlip());
+    register(Methods.VERTICAL_FLIP, new VerticalFlip());
+    register(Methods.RGB_COMBINE, new RgbCombine());
+    register(Methods.HISTOGRAM, new Histogram());
+    register(Methods.COLOR_CORRECT, new ColorCorrect());
+    register(Methods.LEVELS_ADJUST, new LevelsAdjust());
+    register(Methods.IMAGE_COMPRESSION, new ImageCompression());
+    register(Methods.DITHER, new Dither());
+    register(Methods.GAUSSIAN_BLUR, new GaussianBlur());
+    register(Methods.ROTATE, new Rotate());
+    register(Methods.TRANSPOSE, new Transpose());
+    register(Methods.CROP, new Crop());
+  }
+}
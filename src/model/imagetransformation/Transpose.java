@@ -0,0 +1,29 @@
+package model.imagetransformation;
+
+import java.util.Map;
+
+import model.image.PixelRaster;
+
+/**
+ * Transformation class that transposes an image, mirroring it along the diagonal from its top
+ * left corner so that its rows become its columns. The transposed image is a view of the input
+ * image (see RasterView), so its pixels are only copied when they are needed.
+ */
+public class Transpose extends AbstractImageTransformation {
+
+  /**
+   * Transposes the input image.
+   *
+   * @param inputFileName       The name of the input image file.
+   * @param outputFileName      The name of the output image file after transposing.
+   * @param images              A map containing the rasters of different images.
+   * @param otherParams         Additional parameters or configurations for the transformation.
+   * @return A raster representing the transposed image.
+   */
+  @Override
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    return RasterView.of(raster).transpose().toRaster();
+  }
+}
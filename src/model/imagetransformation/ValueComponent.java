@@ -2,38 +2,44 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * Represents an image transformation that retains the maximum value of the RGB components of
  * each pixel.
  */
-public class ValueComponent extends AbstractImageTransformation {
+public class ValueComponent extends AbstractImageTransformation
+        implements PointTransformation {
   /**
-   * Applies the transformation to the provided image pixel matrix.
+   * Applies the transformation to the provided image raster.
    *
    * @param inputFileName       The input image file name.
    * @param outputFileName      The output image file name.
-   * @param imagesPixelMatrices A map containing pixel matrices of images.
+   * @param images              A map containing the rasters of images.
    * @param otherParams         Additional parameters, if required.
-   * @return The transformed pixel matrix with maximum RGB component values retained.
+   * @return The transformed raster with maximum RGB component values retained.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName,
-                            Map<String, Pixel[][]> imagesPixelMatrices, Object... otherParams) {
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    Pixel pixel;
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      for (int j = 0; j < pixelMatrixCols; j++) {
-        // process pixel
-        pixel = pixelMatrix[i][j];
-        int maxVal = Math.max(Math.max(pixel.getRed(), pixel.getGreen()), pixel.getBlue());
-        outputPixelMatrix[i][j] = new Pixel(maxVal, maxVal, maxVal, pixel.getAlpha());
-      }
-    }
-    return outputPixelMatrix;
+  public PixelRaster generate(String inputFileName, String outputFileName,
+                              Map<String, PixelRaster> images, Object... otherParams) {
+    PixelRaster raster = images.get(inputFileName);
+    return PointPipeline.apply(raster, getPointOperation(raster, otherParams),
+            getSplitPercentage(otherParams));
+  }
+
+  /**
+   * Creates the per-pixel operation setting all components of a pixel to their maximum.
+   *
+   * @param raster      The raster the operation will be applied to.
+   * @param otherParams Additional parameters for the transformation, as passed to generate.
+   * @return The value operation.
+   */
+  @Override
+  public PointOperation getPointOperation(PixelRaster raster, Object... otherParams) {
+    return argb -> {
+      int maxVal = Math.max(Math.max(PixelRaster.red(argb), PixelRaster.green(argb)),
+              PixelRaster.blue(argb));
+      return PixelRaster.pack(PixelRaster.alpha(argb), maxVal, maxVal, maxVal);
+    };
   }
 }
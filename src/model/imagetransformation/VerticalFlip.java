@@ -2,33 +2,27 @@ package model.imagetransformation;
 
 import java.util.Map;
 
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
- * Represents an image transformation that flips the image vertically.
+ * Represents an image transformation that flips the image vertically. The flipped image is a
+ * view of the input image (see RasterView), so its pixels are only copied when they are needed.
  */
 public class VerticalFlip extends AbstractImageTransformation {
   /**
-   * Applies the vertical flip transformation to the provided image pixel matrix.
+   * Applies the vertical flip transformation to the provided image raster.
    *
    * @param inputFileName       The input image file name.
    * @param outputFileName      The output image file name.
-   * @param imagesPixelMatrices A map containing pixel matrices of images.
+   * @param images              A map containing the rasters of images.
    * @param otherParams         Additional parameters, if required.
-   * @return The transformed pixel matrix flipped vertically.
+   * @return The transformed raster flipped vertically.
    */
   @Override
-  public Pixel[][] generate(String inputFileName, String outputFileName, Map<String,
-          Pixel[][]> imagesPixelMatrices, Object... otherParams) {
+  public PixelRaster generate(String inputFileName, String outputFileName, Map<String,
+          PixelRaster> images, Object... otherParams) {
 
-    Pixel[][] pixelMatrix = imagesPixelMatrices.get(inputFileName);
-    int pixelMatrixRows = pixelMatrix.length;
-    int pixelMatrixCols = pixelMatrix[0].length;
-    Pixel[][] outputPixelMatrix = new Pixel[pixelMatrixRows][pixelMatrixCols];
-    for (int i = 0; i < pixelMatrixRows; i++) {
-      System.arraycopy(pixelMatrix[i], 0, outputPixelMatrix[pixelMatrixRows - 1 - i],
-              0, pixelMatrixCols);
-    }
-    return outputPixelMatrix;
+    PixelRaster raster = images.get(inputFileName);
+    return RasterView.of(raster).flipVertical().toRaster();
   }
 }
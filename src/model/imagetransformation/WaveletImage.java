@@ -0,0 +1,367 @@
+package model.imagetransformation;
+
+import model.image.PixelRaster;
+
+/**
+ * The Haar wavelet coefficients of an image as computed by image compression: the red, green and
+ * blue planes of the image, padded with black to the next power of two along each axis,
+ * transformed for a number of cycles and thresholded.
+ * The coefficients are divided into levels. Level 0 holds the averages left in the top left
+ * region after the last cycle, which on their own give a preview of the image reduced by half
+ * for every cycle. Level k holds the differences the k-th cycle from the end added, so decoding
+ * the levels 0 to k gives a preview at twice the size of the one from the levels 0 to k - 1, and
+ * decoding all of them gives the compressed image. This is what lets the HWC file format store
+ * the levels one after the other and load a preview by reading only the first ones.
+ * The coefficients of a lossless image are those of the reversible transformation (see
+ * HaarWavelet) instead: nothing is clamped or thresholded, the differences range from -255 to
+ * 255, and decoding all the levels gives back the image exactly.
+ */
+public final class WaveletImage {
+  private final int width;
+  private final int height;
+  private final int fullWidth;
+  private final int fullHeight;
+  private final int cycles;
+  private final int levels;
+  private final boolean lossless;
+  private final int planeWidth;
+  private final int planeHeight;
+  private final int[][] planes;
+
+  /**
+   * Constructs an image without coefficients, to be set level by level with setLevel.
+   *
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @param cycles The number of cycles the image is transformed with.
+   * @param levels The number of levels after level 0 to be set, at most the number of cycles;
+   *               only the coefficients these levels need are kept.
+   */
+  public WaveletImage(int width, int height, int cycles, int levels) {
+    this(width, height, cycles, levels, false);
+  }
+
+  /**
+   * Constructs an image without coefficients, to be set level by level with setLevel.
+   *
+   * @param width    The width of the image.
+   * @param height   The height of the image.
+   * @param cycles   The number of cycles the image is transformed with.
+   * @param levels   The number of levels after level 0 to be set, at most the number of
+   *                 cycles; only the coefficients these levels need are kept.
+   * @param lossless Whether the coefficients are those of the reversible transformation.
+   */
+  public WaveletImage(int width, int height, int cycles, int levels, boolean lossless) {
+    this.lossless = lossless;
+    this.width = width;
+    this.height = height;
+    this.fullWidth = calculateNewSize(width);
+    this.fullHeight = calculateNewSize(height);
+    this.cycles = cycles;
+    this.levels = levels;
+    planeWidth = regionWidth(cycles - levels);
+    planeHeight = regionHeight(cycles - levels);
+    planes = new int[3][planeWidth * planeHeight];
+  }
+
+  /**
+   * Transforms and thresholds an image as image compression does.
+   *
+   * @param raster     The image.
+   * @param percentage The compression percentage, which gives both the number of cycles and the
+   *                   share of the coefficients set to zero.
+   * @return The coefficients of the image.
+   */
+  public static WaveletImage compress(PixelRaster raster, double percentage) {
+    int width = raster.getWidth();
+    int height = raster.getHeight();
+    int maxCycles = getHaarMaxCycles(Math.max(calculateNewSize(width), calculateNewSize(height)));
+    return transform(raster, calculateCycles(maxCycles, percentage), percentage);
+  }
+
+  /**
+   * Transforms an image losslessly for as many cycles as possible, with the reversible
+   * transformation and without setting any coefficient to zero.
+   *
+   * @param raster The image.
+   * @return The coefficients of the image, which decode to the opaque image exactly.
+   */
+  public static WaveletImage transform(PixelRaster raster) {
+    int width = raster.getWidth();
+    int height = raster.getHeight();
+    int maxCycles = getHaarMaxCycles(Math.max(calculateNewSize(width), calculateNewSize(height)));
+    WaveletImage image = new WaveletImage(width, height, maxCycles, maxCycles, true);
+    image.toPlanes(raster);
+    HaarWavelet wavelet = new HaarWavelet(image.planeWidth, image.planeHeight, true);
+    for (int[] plane : image.planes) {
+      wavelet.forward(plane, maxCycles);
+    }
+    return image;
+  }
+
+  // function to transform the planes of an image and apply the threshold of the percentage
+  private static WaveletImage transform(PixelRaster raster, int cycles, double percentage) {
+    WaveletImage image = new WaveletImage(raster.getWidth(), raster.getHeight(), cycles, cycles);
+    image.toPlanes(raster);
+
+    //Haar wave transformation logic
+    HaarWavelet wavelet = new HaarWavelet(image.planeWidth, image.planeHeight);
+    for (int[] plane : image.planes) {
+      wavelet.forward(plane, cycles);
+    }
+    // calculate threshold to replace min values with zeros
+    int threshold = image.calculateThreshold(percentage);
+    // apply threshold to replace min values with zeros
+    image.applyThreshold(threshold);
+    return image;
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return The width.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return The height.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the number of cycles the image is transformed with, which is also the number of levels
+   * after level 0.
+   *
+   * @return The number of cycles.
+   */
+  public int getCycles() {
+    return cycles;
+  }
+
+  /**
+   * Checks whether the coefficients are those of the reversible transformation.
+   *
+   * @return true if decoding all the levels gives back the image exactly.
+   */
+  public boolean isLossless() {
+    return lossless;
+  }
+
+  /**
+   * Gets the coefficients of a level, those of the red plane followed by those of the green and
+   * the blue plane, each row by row.
+   *
+   * @param level The level, from 0 to the number of levels the image was constructed with.
+   * @return The coefficients.
+   */
+  public int[] getLevel(int level) {
+    int[] values = new int[3 * levelSize(level)];
+    int index = 0;
+    for (int[] plane : planes) {
+      index = copyLevel(plane, level, values, index, true);
+    }
+    return values;
+  }
+
+  /**
+   * Sets the coefficients of a level, in the order getLevel returns them.
+   *
+   * @param level  The level, from 0 to the number of levels the image was constructed with.
+   * @param values The coefficients.
+   */
+  public void setLevel(int level, int[] values) {
+    int index = 0;
+    for (int[] plane : planes) {
+      index = copyLevel(plane, level, values, index, false);
+    }
+  }
+
+  /**
+   * Gets the number of coefficients of a level in each plane.
+   *
+   * @param level The level.
+   * @return The number of coefficients.
+   */
+  public int levelSize(int level) {
+    int step = cycles - level;
+    int size = regionWidth(step) * regionHeight(step);
+    if (level > 0) {
+      size -= regionWidth(step + 1) * regionHeight(step + 1);
+    }
+    return size;
+  }
+
+  /**
+   * Transforms the coefficients back into an image, the compressed image if all levels are kept
+   * or a preview otherwise. The coefficients are left unchanged.
+   *
+   * @return The image, opaque.
+   */
+  public PixelRaster toRaster() {
+    int[][] values = new int[3][];
+    for (int k = 0; k < planes.length; k++) {
+      values[k] = planes[k].clone();
+    }
+    //Haar wave invert transformation logic
+    HaarWavelet wavelet = new HaarWavelet(planeWidth, planeHeight, lossless);
+    for (int[] plane : values) {
+      wavelet.inverse(plane, levels);
+    }
+    //Unpad the planes to get the original image, reduced for a preview
+    int rowSteps = Integer.numberOfTrailingZeros(fullWidth / planeWidth);
+    int columnSteps = Integer.numberOfTrailingZeros(fullHeight / planeHeight);
+    return fromPlanes(values, planeWidth, reduce(width, rowSteps), reduce(height, columnSteps));
+  }
+
+  // function to copy the coefficients of a level between a plane and an array, the region
+  // the level adds around the region of the coarser levels row by row
+  private int copyLevel(int[] plane, int level, int[] values, int index, boolean fromPlane) {
+    int step = cycles - level;
+    int columns = regionWidth(step);
+    int rows = regionHeight(step);
+    int innerColumns = level > 0 ? regionWidth(step + 1) : 0;
+    int innerRows = level > 0 ? regionHeight(step + 1) : 0;
+    for (int i = 0; i < rows; i++) {
+      int start = i < innerRows ? innerColumns : 0;
+      int length = columns - start;
+      if (fromPlane) {
+        System.arraycopy(plane, i * planeWidth + start, values, index, length);
+      } else {
+        System.arraycopy(values, index, plane, i * planeWidth + start, length);
+      }
+      index += length;
+    }
+    return index;
+  }
+
+  // function to calculate the width of the region left after the given number of cycles
+  private int regionWidth(int step) {
+    return fullWidth >> Math.min(step, Integer.numberOfTrailingZeros(fullWidth));
+  }
+
+  // function to calculate the height of the region left after the given number of cycles
+  private int regionHeight(int step) {
+    return fullHeight >> Math.min(step, Integer.numberOfTrailingZeros(fullHeight));
+  }
+
+  // function to calculate the size of the image in a region halved the given number of times
+  private static int reduce(int size, int steps) {
+    return (size + (1 << steps) - 1) >> steps;
+  }
+
+  // function to split the image into red, green and blue planes, padding them with black
+  private void toPlanes(PixelRaster raster) {
+    int[] data = raster.getData();
+    for (int i = 0; i < height; i++) {
+      int index = raster.rowOffset(i);
+      int planeIndex = i * planeWidth;
+      for (int j = 0; j < width; j++) {
+        int argb = data[index++];
+        planes[0][planeIndex] = PixelRaster.red(argb);
+        planes[1][planeIndex] = PixelRaster.green(argb);
+        planes[2][planeIndex] = PixelRaster.blue(argb);
+        planeIndex++;
+      }
+    }
+  }
+
+  // function to combine the top left region of the planes into an opaque image
+  private static PixelRaster fromPlanes(int[][] planes, int planeWidth, int width, int height) {
+    PixelRaster raster = new PixelRaster(width, height);
+    int[] data = raster.getData();
+    for (int i = 0; i < height; i++) {
+      int index = i * width;
+      int planeIndex = i * planeWidth;
+      for (int j = 0; j < width; j++) {
+        data[index++] = PixelRaster.pack(255, planes[0][planeIndex], planes[1][planeIndex],
+                planes[2][planeIndex]);
+        planeIndex++;
+      }
+    }
+    return raster;
+  }
+
+  // function to calculate the new size of power 2
+  private static int calculateNewSize(int size) {
+    int newSize = 1;
+    while (newSize < size) {
+      newSize *= 2; // return the new size of power 2
+    }
+    return newSize;
+  }
+
+  // function to calculate the number of cycles for compression
+  private static int calculateCycles(int maxCycle, double percentage) {
+    return (int) Math.ceil(maxCycle * (percentage / 100.0));
+  }
+
+  private static int getHaarMaxCycles(int hw) {
+    int cycles = 0;
+    while (hw > 1) {
+      cycles++;
+      hw /= 2;
+    }
+    return cycles;
+  }
+
+  // Thresholding: find the non-zero values of all three channels, use the percentage to find
+  // the threshold and use the threshold for all three channels.
+  // The coefficients are clamped to 0..255, so instead of sorting them their values are counted,
+  // and the threshold is the value found at the percentile of the sorted non-zero values.
+  private int calculateThreshold(double percentage) {
+    long[] counts = countValues();
+    long total = 0;
+    for (int value = 1; value < counts.length; value++) {
+      total += counts[value];
+    }
+    if (total == 0) {
+      // a black image has no values to threshold
+      return 0;
+    }
+    long thresholdIndex = (long) (percentage / 100.0 * total);
+    long seen = 0;
+    for (int value = 1; value < counts.length; value++) {
+      seen += counts[value];
+      if (seen > thresholdIndex) {
+        return value;
+      }
+    }
+    return counts.length - 1;
+  }
+
+  // function to count how often each value occurs in the planes, counting bands of rows in
+  // parallel
+  private long[] countValues() {
+    long[] counts = new long[256];
+    RasterExecutor.forEachRowBand(planeHeight, planeWidth, (startRow, endRow) -> {
+      long[] bandCounts = new long[counts.length];
+      for (int[] plane : planes) {
+        for (int i = startRow * planeWidth; i < endRow * planeWidth; i++) {
+          bandCounts[plane[i]]++;
+        }
+      }
+      synchronized (counts) {
+        for (int value = 0; value < counts.length; value++) {
+          counts[value] += bandCounts[value];
+        }
+      }
+    });
+    return counts;
+  }
+
+  private void applyThreshold(int threshold) {
+    for (int[] plane : planes) {
+      for (int i = 0; i < plane.length; i++) {
+        if (plane[i] < threshold) {
+          plane[i] = 0;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package model.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds that can be updated from several threads. Every power
+ * of two is split into four buckets, so a percentile is known to within 25% whatever the scale of
+ * the durations, with a fixed 256 counters.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong count;
+  private final AtomicLong totalNanos;
+  private final AtomicLong maxNanos;
+
+  /**
+   * Constructs an empty histogram.
+   */
+  public LatencyHistogram() {
+    counts = new AtomicLongArray(64 * SUB_BUCKETS);
+    count = new AtomicLong();
+    totalNanos = new AtomicLong();
+    maxNanos = new AtomicLong();
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos The duration in nanoseconds; negative durations count as 0.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(bucketOf(value));
+    count.incrementAndGet();
+    totalNanos.addAndGet(value);
+    maxNanos.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Gets the number of durations recorded.
+   *
+   * @return The number of durations.
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Gets the sum of the durations recorded.
+   *
+   * @return The sum in nanoseconds.
+   */
+  public long getTotalNanos() {
+    return totalNanos.get();
+  }
+
+  /**
+   * Gets the longest duration recorded.
+   *
+   * @return The duration in nanoseconds, or 0 if nothing has been recorded.
+   */
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  /**
+   * Gets an upper bound of the given percentile of the durations: the upper end of the bucket
+   * holding it, but no more than the longest duration.
+   *
+   * @param percentile The percentile, between 0 and 100.
+   * @return The duration in nanoseconds, or 0 if nothing has been recorded.
+   */
+  public long getPercentileNanos(double percentile) {
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < counts.length(); bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(bucket), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  /**
+   * Forgets all the durations recorded.
+   */
+  public void reset() {
+    for (int bucket = 0; bucket < counts.length(); bucket++) {
+      counts.set(bucket, 0);
+    }
+    count.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  /**
+   * Gets the bucket of a duration. Durations below 4 ns have a bucket each; above, the bucket is
+   * given by the position of the highest bit and the two bits following it.
+   *
+   * @param value The duration, not negative.
+   * @return The index of the bucket.
+   */
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Gets the largest duration falling into a bucket.
+   *
+   * @param bucket The index of the bucket.
+   * @return The duration in nanoseconds.
+   */
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+    return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
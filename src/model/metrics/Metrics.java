@@ -0,0 +1,226 @@
+package model.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import model.image.ImageModelInterface;
+import model.image.ImageStore;
+import model.image.PixelRaster;
+
+/**
+ * Records how long the operations of the application take, how many pixels they process and how
+ * many bytes they allocate. The image model records every image transformation under the name of
+ * its Methods constant; the commands record "load", "save" and "run", and deferred rasters
+ * record the computation of their pixels as "point-pipeline" for point operations and as "view"
+ * for flips, rotations, transposes and crops. Each deferred raster is recorded only for its own
+ * pixels, not for those of a deferred raster it reads from.
+ * The default metrics are published through JMX, every operation as
+ * imageprocessing:type=Operation,name=[operation] and the shared image store as
+ * imageprocessing:type=ImageStore,name=shared, and printed by the stats command.
+ * The allocated bytes are those of the thread running the operation, as reported by the JVM;
+ * work done for it on the threads of RasterExecutor is not included.
+ */
+public class Metrics {
+  private static Metrics defaultMetrics;
+
+  private final Map<String, OperationMetrics> operations;
+  private final MBeanServer server;
+  private final com.sun.management.ThreadMXBean allocationCounter;
+
+  /**
+   * Constructs empty metrics, not published through JMX.
+   */
+  public Metrics() {
+    this(null);
+  }
+
+  /**
+   * Constructs empty metrics.
+   *
+   * @param server The server the metrics of every operation are registered with, or null.
+   */
+  private Metrics(MBeanServer server) {
+    this.server = server;
+    operations = new ConcurrentHashMap<>();
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+      allocationCounter = (com.sun.management.ThreadMXBean) threads;
+    } else {
+      allocationCounter = null;
+    }
+  }
+
+  /**
+   * Gets the metrics of the application, creating and publishing them on first use.
+   *
+   * @return The default metrics.
+   */
+  public static synchronized Metrics getDefault() {
+    if (defaultMetrics == null) {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      defaultMetrics = new Metrics(server);
+      register(server, ImageModelInterface.IMAGES, "imageprocessing:type=ImageStore,name=shared");
+    }
+    return defaultMetrics;
+  }
+
+  /**
+   * Starts timing a run of an operation.
+   *
+   * @param operation The name of the operation.
+   * @return The timer, to be stopped when the operation has finished.
+   */
+  public OperationTimer start(String operation) {
+    return new OperationTimer(operation);
+  }
+
+  /**
+   * Records a run of an operation.
+   *
+   * @param operation The name of the operation.
+   * @param nanos     The duration of the run in nanoseconds.
+   * @param pixels    The number of pixels processed.
+   * @param bytes     The number of bytes allocated.
+   */
+  public void record(String operation, long nanos, long pixels, long bytes) {
+    getOperation(operation).record(nanos, pixels, bytes);
+  }
+
+  /**
+   * Gets the metrics of an operation, creating them if the operation has not run yet.
+   *
+   * @param operation The name of the operation.
+   * @return The metrics of the operation.
+   */
+  public OperationMetrics getOperation(String operation) {
+    OperationMetrics metrics = operations.get(operation);
+    if (metrics == null) {
+      OperationMetrics created = new OperationMetrics(operation);
+      metrics = operations.putIfAbsent(operation, created);
+      if (metrics == null) {
+        metrics = created;
+        if (server != null) {
+          register(server, created, "imageprocessing:type=Operation,name=" + operation);
+        }
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Gets the metrics of all the operations that have run.
+   *
+   * @return The metrics by operation name, sorted by name.
+   */
+  public Map<String, OperationMetrics> getOperations() {
+    return new TreeMap<>(operations);
+  }
+
+  /**
+   * Forgets everything recorded.
+   */
+  public void reset() {
+    for (OperationMetrics metrics : operations.values()) {
+      metrics.reset();
+    }
+  }
+
+  /**
+   * Prints a table with the metrics of every operation that has run, followed by the state of
+   * the given image store.
+   *
+   * @param out   The stream to print to.
+   * @param store The image store, or null to leave it out.
+   */
+  public void printSummary(PrintStream out, ImageStore store) {
+    out.println(String.format("%-20s %7s %10s %10s %10s %10s %12s %12s", "operation", "count",
+            "mean ms", "median ms", "p99 ms", "max ms", "Mpixels/s", "MB allocated"));
+    for (OperationMetrics metrics : getOperations().values()) {
+      if (metrics.getCount() == 0) {
+        continue;
+      }
+      out.println(String.format("%-20s %7d %10.2f %10.2f %10.2f %10.2f %12.2f %12.2f",
+              metrics.getName(), metrics.getCount(), metrics.getMeanMillis(),
+              metrics.getMedianMillis(), metrics.getP99Millis(), metrics.getMaxMillis(),
+              metrics.getPixelsPerSecond() / 1e6, metrics.getBytesAllocated() / 1e6));
+    }
+    if (store != null) {
+      out.println(String.format("Image store: %d images, %.2f MB in memory, %d spilled to disk",
+              store.getImageCount(), store.getResidentBytes() / 1e6, store.getSpillCount()));
+    }
+  }
+
+  /**
+   * Gets the number of bytes allocated so far by the current thread.
+   *
+   * @return The number of bytes, or 0 if the JVM does not count them.
+   */
+  private long allocatedBytes() {
+    return allocationCounter == null ? 0
+            : allocationCounter.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Registers an MBean, leaving it out if the name is taken. The metrics are still printed by
+   * the stats command then.
+   *
+   * @param server The server.
+   * @param bean   The MBean.
+   * @param name   The object name.
+   */
+  private static void register(MBeanServer server, Object bean, String name) {
+    try {
+      server.registerMBean(bean, new ObjectName(name));
+    } catch (JMException e) {
+      // the bean is not published
+    }
+  }
+
+  /**
+   * Times one run of an operation on the current thread.
+   */
+  public class OperationTimer {
+    private final String operation;
+    private final long startNanos;
+    private final long startBytes;
+
+    /**
+     * Starts the timer.
+     *
+     * @param operation The name of the operation.
+     */
+    private OperationTimer(String operation) {
+      this.operation = operation;
+      startBytes = allocatedBytes();
+      startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops the timer and records the run.
+     *
+     * @param pixels The number of pixels processed.
+     */
+    public void stop(long pixels) {
+      long nanos = System.nanoTime() - startNanos;
+      record(operation, nanos, pixels, allocatedBytes() - startBytes);
+    }
+
+    /**
+     * Stops the timer and records the run, counting the pixels of the given image.
+     *
+     * @param raster The image processed, or null if there was none.
+     */
+    public void stop(PixelRaster raster) {
+      stop(raster == null ? 0 : (long) raster.getWidth() * raster.getHeight());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package model.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of one operation: a histogram of its durations, the number of pixels it processed
+ * and the number of bytes it allocated.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  private final String name;
+  private final LatencyHistogram latencies;
+  private final AtomicLong pixels;
+  private final AtomicLong bytesAllocated;
+
+  /**
+   * Constructs the empty metrics of an operation.
+   *
+   * @param name The name of the operation.
+   */
+  public OperationMetrics(String name) {
+    this.name = name;
+    latencies = new LatencyHistogram();
+    pixels = new AtomicLong();
+    bytesAllocated = new AtomicLong();
+  }
+
+  /**
+   * Records a run of the operation.
+   *
+   * @param nanos      The duration of the run in nanoseconds.
+   * @param pixelCount The number of pixels processed.
+   * @param bytes      The number of bytes allocated.
+   */
+  public void record(long nanos, long pixelCount, long bytes) {
+    latencies.record(nanos);
+    pixels.addAndGet(pixelCount);
+    bytesAllocated.addAndGet(Math.max(0, bytes));
+  }
+
+  /**
+   * Gets the name of the operation.
+   *
+   * @return The name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the histogram of the durations of the operation.
+   *
+   * @return The histogram.
+   */
+  public LatencyHistogram getLatencies() {
+    return latencies;
+  }
+
+  /**
+   * Gets the number of pixels processed by the operation.
+   *
+   * @return The number of pixels.
+   */
+  public long getPixels() {
+    return pixels.get();
+  }
+
+  @Override
+  public long getCount() {
+    return latencies.getCount();
+  }
+
+  @Override
+  public double getMeanMillis() {
+    long count = latencies.getCount();
+    return count == 0 ? 0 : latencies.getTotalNanos() / NANOS_PER_MILLI / count;
+  }
+
+  @Override
+  public double getMedianMillis() {
+    return latencies.getPercentileNanos(50) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP99Millis() {
+    return latencies.getPercentileNanos(99) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return latencies.getMaxNanos() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getPixelsPerSecond() {
+    long totalNanos = latencies.getTotalNanos();
+    return totalNanos == 0 ? 0 : pixels.get() * 1e9 / totalNanos;
+  }
+
+  @Override
+  public long getBytesAllocated() {
+    return bytesAllocated.get();
+  }
+
+  @Override
+  public void reset() {
+    latencies.reset();
+    pixels.set(0);
+    bytesAllocated.set(0);
+  }
+}
@@ -0,0 +1,61 @@
+package model.metrics;
+
+/**
+ * The management interface of the metrics of an operation, as shown by JMX consoles such as
+ * JConsole under imageprocessing:type=Operation.
+ */
+public interface OperationMetricsMXBean {
+  /**
+   * Gets the number of times the operation has run.
+   *
+   * @return The number of runs.
+   */
+  long getCount();
+
+  /**
+   * Gets the mean duration of the operation.
+   *
+   * @return The duration in milliseconds.
+   */
+  double getMeanMillis();
+
+  /**
+   * Gets the median duration of the operation.
+   *
+   * @return The duration in milliseconds.
+   */
+  double getMedianMillis();
+
+  /**
+   * Gets the 99th percentile of the durations of the operation.
+   *
+   * @return The duration in milliseconds.
+   */
+  double getP99Millis();
+
+  /**
+   * Gets the longest duration of the operation.
+   *
+   * @return The duration in milliseconds.
+   */
+  double getMaxMillis();
+
+  /**
+   * Gets the number of pixels processed per second while the operation was running.
+   *
+   * @return The number of pixels per second.
+   */
+  double getPixelsPerSecond();
+
+  /**
+   * Gets the number of bytes allocated by the threads running the operation.
+   *
+   * @return The number of bytes.
+   */
+  long getBytesAllocated();
+
+  /**
+   * Forgets everything recorded.
+   */
+  void reset();
+}
@@ -33,7 +33,7 @@ import java.io.File;
 import java.util.Objects;
 
 import controller.Features;
-import model.image.Pixel;
+import model.image.PixelRaster;
 
 /**
  * The ImageProcessingView class extends JFrame and implements the ViewInterface.
@@ -64,6 +64,12 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
   private Features features;
   private boolean isOriginalImage = false;
   private String blackValue, midValue, whiteValue;
+  private String ditherOption, ditherLevels;
+
+  // the dithering modes offered, each with its name and the size of its matrix
+  private static final String[][] DITHER_OPTIONS = {{"Error diffusion", "error-diffusion", "4"},
+      {"Bayer 2x2", "bayer", "2"}, {"Bayer 4x4", "bayer", "4"}, {"Bayer 8x8", "bayer", "8"},
+      {"Bayer 16x16", "bayer", "16"}, {"Blue noise", "blue-noise", "4"}};
 
   /**
    * Constructs an instance of the ImageProcessingView.
@@ -109,7 +115,7 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
         "LUMA_COMPONENT", "SEPIA", "BLUR", "SHARPEN", "VALUE_COMPONENT",
         "INTENSITY_COMPONENT", "RED_COMPONENT", "GREEN_COMPONENT",
         "BLUE_COMPONENT", "BRIGHTEN", "HORIZONTAL_FLIP", "VERTICAL_FLIP",
-        "COLOR_CORRECT", "LEVELS_ADJUST", "IMAGE_COMPRESSION","DITHER"};
+        "COLOR_CORRECT", "LEVELS_ADJUST", "IMAGE_COMPRESSION","DITHER", "GAUSSIAN_BLUR"};
     filterComboBox = new JComboBox<>(options);
   }
 
@@ -334,7 +340,7 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
 
     JFileChooser fileChooser = new JFileChooser();
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-        "Image Files", "jpg", "ppm", "png");
+        "Image Files", "jpg", "ppm", "png", "hwc");
     fileChooser.setFileFilter(filter);
 
     fileChooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
@@ -349,8 +355,8 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
         String[] commandParams = {"load", selectedFile.toString(), "image"};
         features.load(commandParams);
         isOriginalImage = true;
-        Pixel[][] pixelMatrix = features.getPixelMatrixForImage("image");
-        originalImage = features.createImageFromPixels(pixelMatrix);
+        PixelRaster raster = features.getRasterForImage("image");
+        originalImage = features.createImageFromRaster(raster);
         fileExtension = getFileExtension(selectedFile.getName());
         processedImage = originalImage;
         isImageChanged = false;
@@ -588,7 +594,7 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
    * @return The processed image.
    */
   private BufferedImage applyFilter(String filter, String inputFileName, String outputFileName) {
-    Pixel[][] pixelMatrix;
+    PixelRaster raster;
     String userInput;
     Double splitPercentage = getSplitPercentage();
     boolean checkValid;
@@ -603,8 +609,8 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
 
           features.processImage(inputFileName, outputFileName, filter,
             Integer.parseInt(userInput.split("\\.")[0]));
-          pixelMatrix = features.getPixelMatrixForImage(outputFileName);
-          return features.createImageFromPixels(pixelMatrix);
+          raster = features.getRasterForImage(outputFileName);
+          return features.createImageFromRaster(raster);
       case "IMAGE_COMPRESSION":
           do {
             userInput = openDialogBox("Enter the compression factor:");
@@ -615,8 +621,20 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
 
           features.processImage(inputFileName, outputFileName, filter,
             Integer.parseInt(userInput.split("\\.")[0]));
-          pixelMatrix = features.getPixelMatrixForImage(outputFileName);
-          return features.createImageFromPixels(pixelMatrix);
+          raster = features.getRasterForImage(outputFileName);
+          return features.createImageFromRaster(raster);
+      case "GAUSSIAN_BLUR":
+          do {
+            userInput = openDialogBox("Enter the blur radius:");
+            if ((Integer.parseInt(userInput) < 1 || Integer.parseInt(userInput) > 100)) {
+              showDialog("Please enter values between 1 and 100", "errorMessage");
+            }
+          } while (Integer.parseInt(userInput) < 1 || Integer.parseInt(userInput) > 100);
+
+          features.processImage(inputFileName, outputFileName, filter,
+            Integer.parseInt(userInput), splitPercentage);
+          raster = features.getRasterForImage(outputFileName);
+          return features.createImageFromRaster(raster);
       case "LEVELS_ADJUST":
 
         if (checkValuesEmpty(blackValue, midValue, whiteValue)) {
@@ -633,13 +651,25 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
             midValue,
             whiteValue, splitPercentage);
 
-        pixelMatrix = features.getPixelMatrixForImage(outputFileName);
-        return features.createImageFromPixels(pixelMatrix);
+        raster = features.getRasterForImage(outputFileName);
+        return features.createImageFromRaster(raster);
+      case "DITHER":
+        if (ditherOption == null || ditherOption.isEmpty()) {
+          chooseDitherOptions();
+        }
+        for (String[] option : DITHER_OPTIONS) {
+          if (option[0].equals(ditherOption)) {
+            features.processImage(inputFileName, outputFileName, filter, splitPercentage,
+                option[1], Integer.parseInt(option[2]), Integer.parseInt(ditherLevels));
+          }
+        }
+        raster = features.getRasterForImage(outputFileName);
+        return features.createImageFromRaster(raster);
       default:
         features.processImage(inputFileName, outputFileName, filter,
             splitPercentage);
-        pixelMatrix = features.getPixelMatrixForImage(outputFileName);
-        return features.createImageFromPixels(pixelMatrix);
+        raster = features.getRasterForImage(outputFileName);
+        return features.createImageFromRaster(raster);
     }
   }
 
@@ -656,6 +686,28 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
     return isEmpty;
   }
 
+  /**
+   * Asks for the dithering mode and the number of levels of every colour channel.
+   */
+  private void chooseDitherOptions() {
+    String[] labels = new String[DITHER_OPTIONS.length];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = DITHER_OPTIONS[i][0];
+    }
+    Object choice = JOptionPane.showInputDialog(this, "Choose the dithering mode:", "Dither",
+        JOptionPane.QUESTION_MESSAGE, null, labels, labels[0]);
+    ditherOption = choice == null ? labels[0] : (String) choice;
+    int levels;
+    do {
+      ditherLevels = openDialogBox(
+          "Enter the number of levels of every colour channel (0 for black and white):");
+      levels = Integer.parseInt(ditherLevels);
+      if (levels != 0 && (levels < 2 || levels > 256)) {
+        showDialog("Please enter 0 or values between 2 and 256", "errorMessage");
+      }
+    } while (levels != 0 && (levels < 2 || levels > 256));
+  }
+
   /**
    * Resets the values of input parameters.
    */
@@ -663,6 +715,8 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
     blackValue = "";
     whiteValue = "";
     midValue = "";
+    ditherOption = "";
+    ditherLevels = "";
   }
 
   /**
@@ -695,7 +749,7 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
   private void enableSplitToggleButton(String selectedFilter) {
     splitPercentageField.setText("0");
 
-    String[] filtersToEnableSplitButton = {"SEPIA", "BLUR", "LUMA_COMPONENT", "SHARPEN", "LEVELS_ADJUST","COLOR_CORRECT","DITHER"};
+    String[] filtersToEnableSplitButton = {"SEPIA", "BLUR", "LUMA_COMPONENT", "SHARPEN", "LEVELS_ADJUST","COLOR_CORRECT","DITHER", "GAUSSIAN_BLUR"};
     boolean enableView = false;
 
     for (String filter : filtersToEnableSplitButton) {
@@ -741,4 +795,4 @@ public class ImageProcessingView extends JFrame implements ViewInterface {
   public void addFeatures(Features features) {
     this.features = features;
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -8,25 +8,56 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
 
 import javax.imageio.ImageIO;
 
+import controller.BatchReport;
+import controller.BatchRunner;
 import controller.ImageIOHelper;
 import controller.ImageProcessingCommandHelper;
 import controller.InputStreamController;
+import model.image.BufferedImageConverter;
 import model.image.ImageModel;
+import model.image.ImageStore;
 import model.image.JPGImage;
 import model.image.PNGImage;
 import model.image.PPMImage;
 import model.image.Pixel;
-
+import model.image.PixelRaster;
+import model.imagetransformation.AbstractImageTransformation;
+import model.imagetransformation.Brighten;
+import model.imagetransformation.ChannelHistogram;
+import model.imagetransformation.ChannelLut;
+import model.imagetransformation.HistogramHelper;
+import model.imagetransformation.LevelsAdjust;
+import model.imagetransformation.Methods;
+import model.imagetransformation.PointOperation;
+import model.imagetransformation.PointPipeline;
+import model.imagetransformation.RasterExecutor;
+import model.imagetransformation.RasterView;
+import model.imagetransformation.TransformationRegistry;
+import model.metrics.Metrics;
+import model.metrics.OperationMetrics;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -2938,5 +2969,893 @@ public class ImageUtilTest {
     }
   }
 
-}
+  @Test
+  public void testParallelBlurMatchesSequential() {
+    String commands = "load res/galaxy.png galaxy\nblur galaxy galaxy-blur\n"
+            + "sharpen galaxy galaxy-sharpen split 40";
+    int parallelism = RasterExecutor.getParallelism();
+    try {
+      RasterExecutor.setParallelism(1);
+      ImageModel model = new ImageModel();
+      new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+              commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+      Pixel[][] sequentialBlur = model.IMAGES_PIXEL_MATRICES.get("galaxy-blur");
+      Pixel[][] sequentialSharpen = model.IMAGES_PIXEL_MATRICES.get("galaxy-sharpen");
+
+      RasterExecutor.setParallelism(4);
+      new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+              commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+      Pixel[][] parallelBlur = model.IMAGES_PIXEL_MATRICES.get("galaxy-blur");
+      Pixel[][] parallelSharpen = model.IMAGES_PIXEL_MATRICES.get("galaxy-sharpen");
+
+      for (int i = 0; i < sequentialBlur.length; i++) {
+        for (int j = 0; j < sequentialBlur[0].length; j++) {
+          assertEquals("Blurred pixel did not match! " + i + " " + j,
+                  sequentialBlur[i][j].toString(), parallelBlur[i][j].toString());
+          assertEquals("Sharpened pixel did not match! " + i + " " + j,
+                  sequentialSharpen[i][j].toString(), parallelSharpen[i][j].toString());
+        }
+      }
+    } finally {
+      RasterExecutor.setParallelism(parallelism);
+    }
+  }
+
+  @Test
+  public void testGaussianBlurKeepsUniformImage() {
+    Pixel p = new Pixel(150, 220, 40);
+    Pixel[][] pixelMatrix = new Pixel[20][30];
+    for (Pixel[] row : pixelMatrix) {
+      Arrays.fill(row, p);
+    }
+    ImageModel model = new ImageModel();
+    model.IMAGES_PIXEL_MATRICES.put("uniform", pixelMatrix);
+    String commands = "gaussian-blur 5 uniform uniform-blur\n"
+            + "gaussian-blur 0 uniform uniform-invalid";
+    new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+            commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+
+    Pixel[][] blurred = model.IMAGES_PIXEL_MATRICES.get("uniform-blur");
+    for (int i = 0; i < pixelMatrix.length; i++) {
+      for (int j = 0; j < pixelMatrix[0].length; j++) {
+        assertEquals("Pixel did not match for gaussian blur! " + i + " " + j,
+                p.toString(), blurred[i][j].toString());
+      }
+    }
+    assertNull(model.IMAGES_PIXEL_MATRICES.get("uniform-invalid"));
+    assertEquals("The radius should be a positive number. Please enter a valid radius.",
+            errContent.toString().trim());
+  }
+
+  @Test
+  public void testColorMatrixCommands() {
+    Pixel p = new Pixel(150, 220, 40);
+    Pixel[][] pixelMatrix = {{p, p, p}, {p, p, p}};
+    ImageModel model = new ImageModel();
+    model.IMAGES_PIXEL_MATRICES.put("dummy", pixelMatrix);
+    String commands = "luma-component dummy dummy-luma\nsepia dummy dummy-sepia split 50\n"
+            + "green-component dummy dummy-green";
+    new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+            commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+
+    Pixel[][] luma = model.IMAGES_PIXEL_MATRICES.get("dummy-luma");
+    Pixel[][] sepia = model.IMAGES_PIXEL_MATRICES.get("dummy-sepia");
+    Pixel[][] green = model.IMAGES_PIXEL_MATRICES.get("dummy-green");
+    for (int i = 0; i < pixelMatrix.length; i++) {
+      for (int j = 0; j < pixelMatrix[0].length; j++) {
+        assertEquals("190 190 190", luma[i][j].toString());
+        assertEquals(j < 2 ? "234 208 162" : "150 220 40", sepia[i][j].toString());
+        assertEquals("0 220 0", green[i][j].toString());
+      }
+    }
+  }
+
+  @Test
+  public void testPointOperationsAreFused() {
+    Pixel p = new Pixel(150, 220, 40);
+    Pixel[][] pixelMatrix = {{p, p, p}, {p, p, p}};
+    ImageModel model = new ImageModel();
+    model.IMAGES_PIXEL_MATRICES.put("dummy", pixelMatrix);
+    String commands = "brighten 10 dummy dummy-bright\nsepia dummy-bright dummy-sepia\n"
+            + "intensity-component dummy-sepia dummy-intensity";
+    new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+            commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+
+    assertFalse(model.getImage("dummy-bright").isMaterialized());
+    assertFalse(model.getImage("dummy-sepia").isMaterialized());
+    Pixel[][] intensity = model.IMAGES_PIXEL_MATRICES.get("dummy-intensity");
+    Pixel[][] sepia = model.IMAGES_PIXEL_MATRICES.get("dummy-sepia");
+    for (int i = 0; i < pixelMatrix.length; i++) {
+      for (int j = 0; j < pixelMatrix[0].length; j++) {
+        assertEquals("212 212 212", intensity[i][j].toString());
+        assertEquals("247 220 171", sepia[i][j].toString());
+      }
+    }
+    assertFalse(model.getImage("dummy-bright").isMaterialized());
+  }
+
+  @Test
+  public void testChannelLutCompositionIsExact() {
+    ChannelLut brighten = ChannelLut.ofRgb(value -> value + 40);
+    ChannelLut curve = ChannelLut.ofChannels(value -> 255, value -> value * value / 200,
+            value -> 255 - value, value -> value / 2);
+    ChannelLut composed = brighten.then(curve);
+    for (int value = 0; value < 256; value++) {
+      int argb = (value << 24) | (value << 16) | ((255 - value) << 8) | (value * 7 % 256);
+      assertEquals(curve.apply(brighten.apply(argb)), composed.apply(argb));
+    }
+    assertEquals(255, brighten.get(1, 230));
+    assertEquals(230, brighten.get(0, 230));
+  }
+
+  @Test
+  public void testLookupTablesGiveTheSamePixelsAsTheDirectFormulas() {
+    Random random = new Random(42);
+    PixelRaster raster = new PixelRaster(64, 48);
+    int[] data = raster.getData();
+    for (int i = 0; i < data.length; i++) {
+      data[i] = random.nextInt();
+    }
+    // the curve of levels-adjust 20 100 255 and some color correct offsets
+    double a = -0.003321894303363075;
+    double b = 1.998627316403569;
+    double c = -38.64378860672615;
+    IntUnaryOperator curve = x -> (int) Math.round((a * x * x) + (b * x) + c);
+    int[] offsets = {12, -7, 4};
+
+    PointOperation directBrighten = argb -> PixelRaster.pack(PixelRaster.alpha(argb),
+            Pixel.clamp(PixelRaster.red(argb) + 30),
+            Pixel.clamp(PixelRaster.green(argb) + 30),
+            Pixel.clamp(PixelRaster.blue(argb) + 30));
+    PointOperation directLevels = argb -> PixelRaster.pack(255,
+            Pixel.clamp(curve.applyAsInt(PixelRaster.red(argb))),
+            Pixel.clamp(curve.applyAsInt(PixelRaster.green(argb))),
+            Pixel.clamp(curve.applyAsInt(PixelRaster.blue(argb))));
+    PointOperation directCorrect = argb -> PixelRaster.pack(255,
+            Pixel.clamp(PixelRaster.red(argb) + offsets[0]),
+            Pixel.clamp(PixelRaster.green(argb) + offsets[1]),
+            Pixel.clamp(PixelRaster.blue(argb) + offsets[2]));
+
+    PointOperation lutBrighten = new Brighten().getPointOperation(raster, 30);
+    PointOperation lutLevels = new LevelsAdjust().getPointOperation(raster, "20", "100", "255",
+            0.0);
+    PointOperation lutCorrect = ChannelLut.ofChannels(value -> 255, value -> value + offsets[0],
+            value -> value + offsets[1], value -> value + offsets[2]);
+
+    assertArrayEquals(PointPipeline.apply(raster, directBrighten, 0).getData(),
+            PointPipeline.apply(raster, lutBrighten, 0).getData());
+    assertArrayEquals(PointPipeline.apply(raster, directLevels, 0).getData(),
+            PointPipeline.apply(raster, lutLevels, 0).getData());
+    assertArrayEquals(PointPipeline.apply(raster, directCorrect, 0).getData(),
+            PointPipeline.apply(raster, lutCorrect, 0).getData());
+    assertArrayEquals(PointPipeline.apply(raster,
+                    directBrighten.then(directLevels).then(directCorrect), 0).getData(),
+            PointPipeline.of(raster).then(lutBrighten, 0).then(lutLevels, 0)
+                    .then(lutCorrect, 0).materialize().getData());
+  }
+
+  @Test
+  public void testBinaryPPMRoundTrip() throws IOException {
+    Pixel[][] pixelMatrix = {{new Pixel(1, 2, 3), new Pixel(250, 128, 0)},
+        {new Pixel(9, 99, 199), new Pixel(255, 255, 255)}};
+    ImageModel model = new ImageModel();
+    model.IMAGES_PIXEL_MATRICES.put("dummy", pixelMatrix);
+    File file = File.createTempFile("binary", ".ppm");
+    String commands = "save " + file.getPath() + " dummy binary\nload " + file.getPath()
+            + " dummy-loaded";
+    new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+            commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+
+    try (FileInputStream in = new FileInputStream(file)) {
+      assertEquals('P', in.read());
+      assertEquals('6', in.read());
+    }
+    assertEquals("P6\n2 2\n255\n".length() + 12, file.length());
+    Pixel[][] loaded = model.IMAGES_PIXEL_MATRICES.get("dummy-loaded");
+    for (int i = 0; i < pixelMatrix.length; i++) {
+      for (int j = 0; j < pixelMatrix[0].length; j++) {
+        assertEquals(pixelMatrix[i][j].toString(), loaded[i][j].toString());
+      }
+    }
+    file.delete();
+  }
+
+  @Test
+  public void testBinaryPPMScalesSamplesToTheChannelRange() throws IOException {
+    File file = File.createTempFile("maxval", ".ppm");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write("P6\n2 1\n15\n".getBytes(StandardCharsets.US_ASCII));
+      out.write(new byte[]{0, 15, 7, 15, 15, 15});
+    }
+    Pixel[][] pixelMatrix = ImageIOHelper.readPPM(file.getPath());
+    assertEquals("0 255 119", pixelMatrix[0][0].toString());
+    assertEquals("255 255 255", pixelMatrix[0][1].toString());
+
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write("P6\n1 1\n1023\n".getBytes(StandardCharsets.US_ASCII));
+      out.write(new byte[]{0, 0, 2, 0, 3, -1});
+    }
+    pixelMatrix = ImageIOHelper.readPPM(file.getPath());
+    assertEquals("0 128 255", pixelMatrix[0][0].toString());
+
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write("P6\n1 1\n0\n".getBytes(StandardCharsets.US_ASCII));
+      out.write(new byte[]{0, 0, 0});
+    }
+    assertNull(ImageIOHelper.readPPM(file.getPath()));
+    file.delete();
+  }
+
+  @Test
+  public void testPlainPPMWithComments() throws IOException {
+    File file = File.createTempFile("comments", ".ppm");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write("P3\n# a comment\n2 1 # size\n255\n1 2 3\t4 5\r\n6 # trailing\n"
+              .getBytes(StandardCharsets.US_ASCII));
+    }
+    Pixel[][] pixelMatrix = ImageIOHelper.readPPM(file.getPath());
+    assertEquals("1 2 3", pixelMatrix[0][0].toString());
+    assertEquals("4 5 6", pixelMatrix[0][1].toString());
+    file.delete();
+  }
+
+  @Test
+  public void testBufferedImageConverterMatchesGetRGB() {
+    int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY};
+    for (int type : types) {
+      BufferedImage image = new BufferedImage(5, 3, type);
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 5; j++) {
+          image.setRGB(j, i, (i * 60 << 24) | (j * 50 << 16) | ((i + j) * 30 << 8) | 7);
+        }
+      }
+      PixelRaster raster = BufferedImageConverter.toRaster(image);
+      BufferedImage copy = BufferedImageConverter.toBufferedImage(raster, type);
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 5; j++) {
+          assertEquals(image.getRGB(j, i), raster.getArgb(i, j));
+          assertEquals(image.getRGB(j, i), copy.getRGB(j, i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testImageStoreSpillsLeastRecentlyUsedImages() throws IOException {
+    File spillDirectory = Files.createTempDirectory("spill").toFile();
+    // room for two 10x10 images
+    ImageStore store = new ImageStore(800, spillDirectory);
+    ImageModel model = new ImageModel(store);
+    PixelRaster first = new PixelRaster(10, 10);
+    Arrays.fill(first.getData(), 0xFF102030);
+    model.putImage("first", first);
+    model.putImage("second", new PixelRaster(10, 10));
+    model.processImage("first", "brighter", Methods.BRIGHTEN, 10);
+
+    assertFalse(store.isResident("second"));
+    assertTrue(store.isResident("first"));
+    assertEquals(800, store.getResidentBytes());
+    assertEquals(1, spillDirectory.listFiles().length);
+    assertNotNull(model.getImage("second"));
+    assertFalse(store.isResident("first"));
+    assertEquals("26 42 58", model.getImage("brighter").getPixel(9, 9).toString());
+    assertEquals("16 32 48", model.getImage("first").getPixel(5, 5).toString());
+    assertEquals(3, store.size());
+
+    store.clear();
+    assertEquals(0, spillDirectory.listFiles().length);
+    ImageStore forgetful = new ImageStore(400, null);
+    forgetful.put("first", first);
+    forgetful.put("second", first.copy());
+    assertFalse(forgetful.containsKey("first"));
+    assertNull(forgetful.get("first"));
+    assertEquals(first.getArgb(0, 0), forgetful.get("second").getArgb(0, 0));
+    spillDirectory.delete();
+  }
+
+  @Test
+  public void testConcurrentSessionsKeepTheirOwnImages() throws InterruptedException {
+    int sessions = 4;
+    String[] results = new String[sessions];
+    Thread[] threads = new Thread[sessions];
+    for (int k = 0; k < sessions; k++) {
+      int session = k;
+      threads[k] = new Thread(() -> {
+        ImageModel model = ImageModel.newSession();
+        Pixel p = new Pixel(10 * session, 20, 30);
+        model.putImage("img", PixelRaster.fromPixels(new Pixel[][]{{p, p}, {p, p}}));
+        StringBuilder commands = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+          commands.append("brighten 1 img img\nblur img blurred\n");
+        }
+        new InputStreamController(new StringReader(commands.toString())).start(model);
+        results[session] = model.getImage("img").getPixel(1, 1).toString();
+      });
+      threads[k].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int k = 0; k < sessions; k++) {
+      assertEquals((10 * k + 50) + " 70 80", results[k]);
+    }
+  }
+
+  @Test
+  public void testImageStoreIsThreadSafe() throws Exception {
+    File spillDirectory = Files.createTempDirectory("spill").toFile();
+    ImageStore store = new ImageStore(3 * 400, spillDirectory);
+    Thread[] threads = new Thread[4];
+    boolean[] failed = new boolean[1];
+    for (int k = 0; k < threads.length; k++) {
+      int thread = k;
+      threads[k] = new Thread(() -> {
+        for (int i = 0; i < 200; i++) {
+          String name = "image" + thread + "-" + (i % 5);
+          PixelRaster raster = new PixelRaster(10, 10);
+          Arrays.fill(raster.getData(), thread * 1000 + i);
+          store.put(name, raster);
+          PixelRaster stored = store.get("image" + thread + "-" + ((i + 3) % 5));
+          if (stored != null && stored.getArgb(9, 9) / 1000 != thread) {
+            failed[0] = true;
+          }
+        }
+      });
+      threads[k].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse(failed[0]);
+    assertEquals(20, store.size());
+    assertTrue(store.getResidentBytes() <= 3 * 400);
+    for (int k = 0; k < threads.length; k++) {
+      assertEquals(k * 1000 + 199, store.get("image" + k + "-4").getArgb(0, 0));
+    }
+    store.clear();
+    assertEquals(0, store.getResidentBytes());
+    assertEquals(0, spillDirectory.listFiles().length);
+    spillDirectory.delete();
+  }
+
+  @Test
+  public void testTransformationRegistry() {
+    TransformationRegistry defaults = TransformationRegistry.getDefault();
+    for (Methods method : Methods.values()) {
+      assertNotNull(defaults.get(method));
+    }
+    assertSame(defaults.get(Methods.BLUR), TransformationRegistry.getDefault().get(Methods.BLUR));
+
+    TransformationRegistry registry = new TransformationRegistry();
+    registry.register(Methods.GREYSCALE, new AbstractImageTransformation() {
+      @Override
+      public PixelRaster generate(String inputFileName, String outputFileName,
+                                  Map<String, PixelRaster> images, Object... otherParams) {
+        return new PixelRaster(1, 1);
+      }
+    });
+    ImageModel model = new ImageModel(new ImageStore(), registry);
+    model.putImage("img", new PixelRaster(3, 3));
+    model.processImage("img", "grey", Methods.GREYSCALE, 0.0);
+    model.processImage("img", "sepia", Methods.SEPIA, 0.0);
+    assertEquals(1, model.getImage("grey").getWidth());
+    assertNull(model.getImage("sepia"));
+  }
+
+  @Test
+  public void testBatchRunnerProcessesEveryImageInItsOwnSession() throws IOException {
+    File directory = Files.createTempDirectory("batch").toFile();
+    for (int k = 0; k < 3; k++) {
+      Pixel p = new Pixel(10 * k, 20, 30);
+      ImageIOHelper.writePPM(new File(directory, "image" + k + ".ppm").getPath(),
+              PixelRaster.fromPixels(new Pixel[][]{{p, p}, {p, p}}));
+    }
+    Files.write(new File(directory, "broken.ppm").toPath(),
+            "P3 2 2 255 1 2 3".getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(directory, "notes.txt").toPath(),
+            "not an image".getBytes(StandardCharsets.UTF_8));
+    File output = new File(directory, "out");
+    assertTrue(output.mkdir());
+
+    List<Path> inputs = BatchRunner.findInputs(directory.getPath());
+    assertEquals(4, inputs.size());
+    assertEquals(3, BatchRunner.findInputs(directory.getPath() + "/image*.ppm").size());
+
+    BatchRunner runner = new BatchRunner(Arrays.asList("load ${input} img",
+            "brighten 5 img img", "save " + output.getPath() + "/${name}-bright.ppm img"), 3);
+    BatchReport report = runner.run(inputs);
+    assertEquals(3, report.getSuccesses().size());
+    assertEquals(1, report.getFailures().size());
+    assertTrue(report.getFailures().containsKey(new File(directory, "broken.ppm").toPath()));
+    for (int k = 0; k < 3; k++) {
+      PixelRaster result = ImageIOHelper.readPPMRaster(
+              new File(output, "image" + k + "-bright.ppm").getPath());
+      assertEquals((10 * k + 5) + " 25 35", result.getPixel(1, 1).toString());
+    }
+  }
+
+  @Test
+  public void testScriptSchedulerMatchesLineByLineExecution() throws IOException {
+    String saved = Files.createTempFile("scheduled", ".ppm").toString();
+    List<String> script = Arrays.asList("# split, process the channels, combine",
+            "rgb-split img r g b", "brighten 10 r r", "blur g g-blur", "sharpen b b-sharp",
+            "rgb-combine out r g-blur b-sharp", "save " + saved + " out",
+            "load " + saved + " reloaded", "vertical-flip reloaded flipped",
+            "greyscale out out", "", "sepia img img-sepia");
+    PixelRaster[] results = new PixelRaster[4];
+    for (int k = 0; k < 2; k++) {
+      ImageModel model = new ImageModel(new ImageStore());
+      PixelRaster raster = new PixelRaster(7, 5);
+      for (int i = 0; i < raster.getData().length; i++) {
+        raster.getData()[i] = 0xFF000000 | (i * 40503 & 0xFFFFFF);
+      }
+      model.putImage("img", raster);
+      ImageProcessingCommandHelper helper = new ImageProcessingCommandHelper();
+      helper.create(model);
+      helper.runScript(script, k == 0 ? 1 : 4, false);
+      results[2 * k] = model.getImage("flipped");
+      results[2 * k + 1] = model.getImage("out");
+      assertNotNull(model.getImage("img-sepia"));
+      assertNotNull(model.getImage("g-blur"));
+    }
+    assertArrayEquals(results[0].getData(), results[2].getData());
+    assertArrayEquals(results[1].getData(), results[3].getData());
+  }
+
+  @Test
+  public void testScriptSchedulerReleasesIntermediateImages() {
+    ImageModel model = new ImageModel(new ImageStore());
+    Pixel p = new Pixel(10, 20, 30);
+    model.putImage("img", PixelRaster.fromPixels(new Pixel[][]{{p, p}, {p, p}}));
+    ImageProcessingCommandHelper helper = new ImageProcessingCommandHelper();
+    helper.create(model);
+    helper.runScript(Arrays.asList("rgb-split img r g b", "brighten 5 r r",
+            "rgb-combine out r g b", "blur out blurred"), 4, true);
+    // images created by the script and read afterwards are gone, the rest is kept
+    assertNull(model.getImage("r"));
+    assertNull(model.getImage("g"));
+    assertNull(model.getImage("out"));
+    assertNotNull(model.getImage("img"));
+    assertNotNull(model.getImage("blurred"));
+  }
+
+  @Test
+  public void testMetricsRecordOperationsAndPrintStats() {
+    Metrics metrics = new Metrics();
+    for (int i = 1; i <= 100; i++) {
+      metrics.record("BLUR", i * 1000000L, 1000, 64);
+    }
+    OperationMetrics blur = metrics.getOperation("BLUR");
+    assertEquals(100, blur.getCount());
+    assertEquals(50.5, blur.getMeanMillis(), 1e-9);
+    assertEquals(100.0, blur.getMaxMillis(), 1e-9);
+    // percentiles are bucketed to within 25%
+    assertTrue(blur.getMedianMillis() >= 50 && blur.getMedianMillis() <= 50 * 1.25);
+    assertTrue(blur.getP99Millis() >= 99 && blur.getP99Millis() <= 100);
+    assertEquals(100 * 1000 / 5.05, blur.getPixelsPerSecond(), 1e-6);
+    assertEquals(6400, blur.getBytesAllocated());
+
+    ImageModel model = new ImageModel(new ImageStore());
+    Pixel p = new Pixel(10, 20, 30);
+    model.putImage("img", PixelRaster.fromPixels(new Pixel[][]{{p, p}, {p, p}}));
+    long sharpened = Metrics.getDefault().getOperation("SHARPEN").getCount();
+    model.processImage("img", "sharp", Methods.SHARPEN, 0.0);
+    assertEquals(sharpened + 1, Metrics.getDefault().getOperation("SHARPEN").getCount());
+
+    // a view of a deferred point operation records each computation once under its own name
+    PixelRaster brightened = PointPipeline.of(model.getImage("img"))
+            .then(ChannelLut.ofRgb(value -> value + 10), 0).toRaster();
+    PixelRaster flipped = RasterView.of(brightened).flipHorizontal().toRaster();
+    long pipelinePixels = Metrics.getDefault().getOperation("point-pipeline").getPixels();
+    long viewPixels = Metrics.getDefault().getOperation("view").getPixels();
+    assertEquals(PixelRaster.pack(255, 20, 30, 40), flipped.getArgb(0, 0));
+    assertEquals(pipelinePixels + 4,
+            Metrics.getDefault().getOperation("point-pipeline").getPixels());
+    assertEquals(viewPixels + 4, Metrics.getDefault().getOperation("view").getPixels());
+
+    outContent.reset();
+    new InputStreamController(new StringReader("stats")).start(model);
+    String stats = outContent.toString();
+    assertTrue(stats.startsWith("operation"));
+    assertTrue(stats.contains("SHARPEN"));
+    assertTrue(stats.contains("Image store: 2 images"));
+  }
+
+  @Test
+  public void testPlanarHaarCompressionKeepsPixelMatrixResults() {
+    // the expected pixels are those of the pixel matrix based compression
+    int[][] pixels = {{200, 10, 30}, {90, 180, 60}, {15, 250, 128}, {77, 77, 77},
+        {240, 20, 100}, {5, 160, 220}};
+    PixelRaster raster = new PixelRaster(3, 2);
+    for (int i = 0; i < pixels.length; i++) {
+      raster.getData()[i] = PixelRaster.pack(255, pixels[i][0], pixels[i][1], pixels[i][2]);
+    }
+    String[][] expected = {
+        {"206 94 66", "96 94 66", "13 249 151", "151 76 66", "151 20 66", "4 160 197"},
+        {"151 71 66", "151 71 66", "0 227 151", "151 71 66", "151 71 66", "0 182 197"},
+        {"0 0 0", "0 0 0", "0 125 0", "0 0 0", "0 0 0", "0 0 110"}};
+    int[] percentages = {10, 50, 90};
+    for (int k = 0; k < percentages.length; k++) {
+      ImageModel model = new ImageModel(new ImageStore());
+      model.putImage("img", raster);
+      model.processImage("img", "compressed", Methods.IMAGE_COMPRESSION, percentages[k]);
+      PixelRaster compressed = model.getImage("compressed");
+      for (int i = 0; i < 6; i++) {
+        assertEquals(expected[k][i], compressed.getPixel(i / 3, i % 3).toString());
+        assertEquals(255, PixelRaster.alpha(compressed.getArgb(i / 3, i % 3)));
+      }
+    }
+  }
+
+  @Test
+  public void testCompressingBlackImage() {
+    // there are no non-zero coefficients to pick a threshold from
+    ImageModel model = new ImageModel(new ImageStore());
+    Pixel black = new Pixel(0, 0, 0);
+    model.putImage("img", PixelRaster.fromPixels(new Pixel[][]{{black, black, black}}));
+    model.processImage("img", "compressed", Methods.IMAGE_COMPRESSION, 50);
+    PixelRaster compressed = model.getImage("compressed");
+    for (int j = 0; j < 3; j++) {
+      assertEquals("0 0 0", compressed.getPixel(0, j).toString());
+    }
+  }
+
+  @Test
+  public void testCompressingWideImagePadsEachAxis() {
+    // a 4x1 image is transformed as a 4x1 plane, so only its rows are split; padded to a 4x4
+    // square its values would be averaged with black rows
+    ImageModel model = new ImageModel(new ImageStore());
+    Pixel[][] row = {{new Pixel(100, 100, 100), new Pixel(50, 50, 50), new Pixel(20, 20, 20),
+        new Pixel(20, 20, 20)}};
+    model.putImage("img", PixelRaster.fromPixels(row));
+    model.processImage("img", "compressed", Methods.IMAGE_COMPRESSION, 50);
+    PixelRaster compressed = model.getImage("compressed");
+    assertEquals(4, compressed.getWidth());
+    assertEquals(1, compressed.getHeight());
+    String[] expected = {"100 100 100", "50 50 50", "0 0 0", "0 0 0"};
+    for (int j = 0; j < 4; j++) {
+      assertEquals(expected[j], compressed.getPixel(0, j).toString());
+    }
+  }
+
+  @Test
+  public void testHWCFileKeepsCompressedImageAndLoadsPreviews() throws IOException {
+    ImageModel model = new ImageModel(new ImageStore());
+    PixelRaster raster = new PixelRaster(37, 21);
+    int[] data = raster.getData();
+    for (int index = 0; index < data.length; index++) {
+      data[index] = PixelRaster.pack(255, index % 37 * 7, index / 37 * 12, index * 31 % 256);
+    }
+    model.putImage("img", raster);
+    File file = File.createTempFile("compressed", ".hwc");
+    String commands = "compress 50 img img-compressed\nsave " + file.getPath() + " img 50\n"
+            + "load " + file.getPath() + " img-loaded\nload " + file.getPath() + " img-coarse 0\n"
+            + "load " + file.getPath() + " img-preview 1";
+    new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+            commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+
+    // 37x21 is transformed as 64x32 for 3 cycles, so each level halves the preview
+    assertArrayEquals(model.getImage("img-compressed").getData(),
+            model.getImage("img-loaded").getData());
+    assertEquals(5, model.getImage("img-coarse").getWidth());
+    assertEquals(3, model.getImage("img-coarse").getHeight());
+    assertEquals(10, model.getImage("img-preview").getWidth());
+    assertEquals(6, model.getImage("img-preview").getHeight());
+
+    // a negative number of levels is rejected
+    commands = "load " + file.getPath() + " img-negative -1";
+    new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+            commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+    assertNull(model.getImage("img-negative"));
+    assertNull(ImageIOHelper.readHWCRaster(file.getPath(), -1));
+    assertTrue(file.length() < 37 * 21 * 3);
+    file.delete();
+  }
+
+  @Test
+  public void testHWCFileWithoutPercentageGivesBackTheImage() throws IOException {
+    ImageModel model = new ImageModel(new ImageStore());
+    Random random = new Random(12);
+    // a gradient, whose differences are negative, and noise
+    PixelRaster gradient = new PixelRaster(8, 8);
+    PixelRaster noise = new PixelRaster(37, 21);
+    for (int index = 0; index < 64; index++) {
+      gradient.getData()[index] = PixelRaster.pack(255, 30 + index * 3, 180 - index, 255 - index);
+    }
+    for (int index = 0; index < 37 * 21; index++) {
+      noise.getData()[index] = random.nextInt() | 0xFF000000;
+    }
+    model.putImage("gradient", gradient);
+    model.putImage("noise", noise);
+    File file = File.createTempFile("lossless", ".hwc");
+    for (String name : new String[]{"gradient", "noise"}) {
+      String commands = "save " + file.getPath() + " " + name + "\nload " + file.getPath()
+              + " loaded\nload " + file.getPath() + " preview 1";
+      new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+              commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+      assertArrayEquals(model.getImage(name).getData(), model.getImage("loaded").getData());
+    }
+    // the noise is transformed as 64x32 for 6 cycles, so level 1 gives a 2x1 preview
+    assertEquals(2, model.getImage("preview").getWidth());
+    assertEquals(1, model.getImage("preview").getHeight());
+    file.delete();
+  }
+
+  @Test
+  public void testParallelDitherMatchesColumnByColumnDiffusion() {
+    // large enough to be dithered by several threads
+    int rows = 300;
+    int columns = 400;
+    Random random = new Random(11);
+    PixelRaster raster = new PixelRaster(columns, rows);
+    int[] data = raster.getData();
+    for (int index = 0; index < data.length; index++) {
+      data[index] = random.nextInt();
+    }
+    // Floyd-Steinberg on the blue channel, down every column from the left
+    int[][] blue = new int[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        blue[i][j] = PixelRaster.blue(raster.getArgb(i, j));
+      }
+    }
+    int[][] expected = new int[rows][columns];
+    int[][] offsets = {{1, 0, 7}, {-1, 1, 3}, {0, 1, 5}, {1, 1, 1}};
+    for (int j = 0; j < columns; j++) {
+      for (int i = 0; i < rows; i++) {
+        int color = blue[i][j] < 128 ? 0 : 255;
+        int error = blue[i][j] - color;
+        expected[i][j] = color;
+        for (int[] offset : offsets) {
+          int row = i + offset[0];
+          int column = j + offset[1];
+          if (row >= 0 && row < rows && column < columns) {
+            blue[row][column] = Pixel.clamp(blue[row][column] + error * offset[2] / 16);
+          }
+        }
+      }
+    }
+
+    int parallelism = RasterExecutor.getParallelism();
+    try {
+      RasterExecutor.setParallelism(4);
+      ImageModel model = new ImageModel(new ImageStore());
+      model.putImage("img", raster);
+      model.processImage("img", "dithered", Methods.DITHER, 0.0);
+      model.processImage("img", "dithered-split", Methods.DITHER, 0.5);
+      PixelRaster dithered = model.getImage("dithered");
+      PixelRaster split = model.getImage("dithered-split");
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < columns; j++) {
+          int color = expected[i][j];
+          assertEquals(PixelRaster.pack(255, color, color, color), dithered.getArgb(i, j));
+          assertEquals(j < columns / 2 ? dithered.getArgb(i, j) : raster.getArgb(i, j),
+                  split.getArgb(i, j));
+        }
+      }
+    } finally {
+      RasterExecutor.setParallelism(parallelism);
+    }
+  }
+
+  @Test
+  public void testOrderedAndColorDitheringModes() {
+    ImageModel model = new ImageModel(new ImageStore());
+    PixelRaster raster = new PixelRaster(6, 4);
+    int[] data = raster.getData();
+    for (int index = 0; index < data.length; index++) {
+      data[index] = PixelRaster.pack(255, 200, 60, 128);
+    }
+    model.putImage("img", raster);
+    String commands = "dither img img-bayer bayer 2\n"
+            + "dither img img-noise blue-noise color 3 split 50";
+    new InputStreamController(new InputStreamReader(new ByteArrayInputStream(
+            commands.getBytes(StandardCharsets.UTF_8)))).start(model);
+
+    // half grey turns on the two cells of the 2x2 Bayer matrix with the highest ranks
+    PixelRaster bayer = model.getImage("img-bayer");
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 6; j++) {
+        int color = (i + j) % 2 == 1 ? 255 : 0;
+        assertEquals(PixelRaster.pack(255, color, color, color), bayer.getArgb(i, j));
+      }
+    }
+    // in colour every channel takes one of the levels 0, 127 and 255
+    PixelRaster noise = model.getImage("img-noise");
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 6; j++) {
+        int argb = noise.getArgb(i, j);
+        if (j < 3) {
+          assertTrue(PixelRaster.blue(argb) == 127 || PixelRaster.blue(argb) == 255);
+          assertTrue(PixelRaster.red(argb) == 127 || PixelRaster.red(argb) == 255);
+          assertTrue(PixelRaster.green(argb) == 0 || PixelRaster.green(argb) == 127);
+        } else {
+          assertEquals(data[i * 6 + j], argb);
+        }
+      }
+    }
+  }
 
+  @Test
+  public void testChannelHistogramCountsEveryPixelInParallel() {
+    // large enough to be counted by several threads
+    PixelRaster raster = new PixelRaster(400, 300);
+    int[] data = raster.getData();
+    Random random = new Random(5);
+    int[][] expected = new int[3][256];
+    for (int index = 0; index < data.length; index++) {
+      data[index] = random.nextInt();
+      expected[0][PixelRaster.red(data[index])]++;
+      expected[1][PixelRaster.green(data[index])]++;
+      expected[2][PixelRaster.blue(data[index])]++;
+    }
+    int parallelism = RasterExecutor.getParallelism();
+    try {
+      RasterExecutor.setParallelism(4);
+      ChannelHistogram histogram = ChannelHistogram.of(raster);
+      assertArrayEquals(expected[0], histogram.getCounts(ChannelHistogram.RED));
+      assertArrayEquals(expected[1], histogram.getCounts(ChannelHistogram.GREEN));
+      assertArrayEquals(expected[2], histogram.getCounts(ChannelHistogram.BLUE));
+      Map<String, int[]> histogramMap = HistogramHelper.prepareHistogramTableEntries(raster);
+      assertArrayEquals(expected[0], histogramMap.get("red"));
+      assertArrayEquals(expected[1], histogramMap.get("green"));
+      assertArrayEquals(expected[2], histogramMap.get("blue"));
+    } finally {
+      RasterExecutor.setParallelism(parallelism);
+    }
+  }
+
+  @Test
+  public void testStoreKeepsHistogramsOfPointTransformationsUpToDate() {
+    PixelRaster raster = new PixelRaster(400, 300);
+    int[] data = raster.getData();
+    Random random = new Random(6);
+    for (int index = 0; index < data.length; index++) {
+      data[index] = random.nextInt();
+    }
+    ImageStore store = new ImageStore();
+    ImageModel model = new ImageModel(store);
+    model.putImage("img", raster);
+    assertNull(store.getCountedHistogram("img"));
+    ChannelHistogram histogram = store.getHistogram("img");
+    assertSame(histogram, store.getCountedHistogram("img"));
+
+    // a split view only changes the left columns, a full view is counted while it is computed
+    for (double split : new double[]{0.3, 0.8, 0.0}) {
+      model.processImage("img", "sepia", Methods.SEPIA, split);
+      PixelRaster sepia = model.getImage("sepia");
+      ChannelHistogram expected = ChannelHistogram.of(PixelRaster.fromPixels(sepia.toPixels()));
+      ChannelHistogram kept = store.getHistogram("sepia");
+      for (int channel = ChannelHistogram.RED; channel <= ChannelHistogram.BLUE; channel++) {
+        assertArrayEquals(expected.getCounts(channel), kept.getCounts(channel));
+      }
+    }
+
+    // replacing an image forgets its histogram
+    model.putImage("img", new PixelRaster(2, 2));
+    assertNull(store.getCountedHistogram("img"));
+    assertEquals(4, store.getHistogram("img").getCount(ChannelHistogram.RED, 0));
+  }
+
+  @Test
+  public void testHistogramSizesAndScales() {
+    // three black pixels and a white one
+    PixelRaster raster = new PixelRaster(2, 2);
+    raster.getData()[3] = PixelRaster.pack(255, 255, 255, 255);
+    ImageModel model = new ImageModel(new ImageStore());
+    model.putImage("img", raster);
+    int blue = 0xFF0000FF;
+
+    model.processImage("img", "hist", Methods.HISTOGRAM);
+    assertEquals(256, model.getImage("hist").getWidth());
+    assertEquals(256, model.getImage("hist").getHeight());
+
+    // the count of 255 is a third of the highest count
+    model.processImage("img", "hist", Methods.HISTOGRAM, 300, 100, false, false);
+    PixelRaster histogram = model.getImage("hist");
+    assertEquals(300, histogram.getWidth());
+    assertEquals(100, histogram.getHeight());
+    assertEquals(blue, histogram.getArgb(66, 299));
+    assertEquals(0xFFFFFFFF, histogram.getArgb(0, 150));
+
+    // log(1 + 1) is half of log(1 + 3)
+    model.processImage("img", "hist", Methods.HISTOGRAM, 300, 100, true, false);
+    assertEquals(blue, model.getImage("hist").getArgb(50, 299));
+
+    // three pixels up to 128 out of four
+    model.processImage("img", "hist", Methods.HISTOGRAM, 300, 100, false, true);
+    assertEquals(blue, model.getImage("hist").getArgb(25, 150));
+    assertEquals(blue, model.getImage("hist").getArgb(0, 299));
+  }
+
+  @Test
+  public void testFlipsRotationsAndCropsAreViewsCopiedOnce() {
+    // large enough to be copied by several threads in several tiles
+    PixelRaster raster = new PixelRaster(300, 200);
+    int[] data = raster.getData();
+    for (int index = 0; index < data.length; index++) {
+      data[index] = index;
+    }
+    ImageModel model = new ImageModel(new ImageStore());
+    model.putImage("img", raster);
+    int parallelism = RasterExecutor.getParallelism();
+    try {
+      RasterExecutor.setParallelism(4);
+      model.processImage("img", "right", Methods.ROTATE, 90);
+      model.processImage("img", "left", Methods.ROTATE, -90);
+      model.processImage("img", "transposed", Methods.TRANSPOSE);
+      model.processImage("img", "mirrored", Methods.HORIZONTAL_FLIP);
+      PixelRaster right = model.getImage("right");
+      PixelRaster left = model.getImage("left");
+      PixelRaster transposed = model.getImage("transposed");
+      assertFalse(right.isMaterialized());
+      assertEquals(200, right.getWidth());
+      assertEquals(300, right.getHeight());
+      for (int i = 0; i < 300; i++) {
+        for (int j = 0; j < 200; j++) {
+          assertEquals(raster.getArgb(199 - j, i), right.getArgb(i, j));
+          assertEquals(raster.getArgb(j, 299 - i), left.getArgb(i, j));
+          assertEquals(raster.getArgb(j, i), transposed.getArgb(i, j));
+        }
+      }
+
+      // views of views map straight to the image, and back to it when the orientation is restored
+      model.processImage("mirrored", "vertical", Methods.VERTICAL_FLIP);
+      model.processImage("vertical", "turned", Methods.ROTATE, 180);
+      assertSame(raster, model.getImage("turned"));
+      model.processImage("mirrored", "mirrored", Methods.HORIZONTAL_FLIP);
+      assertSame(raster, model.getImage("mirrored"));
+
+      // a crop of most of an image in memory shares its pixels
+      model.processImage("img", "large", Methods.CROP, 0, 20, 300, 150);
+      PixelRaster large = model.getImage("large");
+      assertSame(data, large.getData());
+      assertEquals(raster.getArgb(20, 0), large.getArgb(0, 0));
+      assertEquals(raster.getArgb(169, 299), large.getArgb(149, 299));
+
+      // a small crop is copied so that it does not keep the whole image alive
+      model.processImage("img", "cropped", Methods.CROP, 10, 20, 30, 40);
+      PixelRaster cropped = model.getImage("cropped");
+      assertTrue(cropped.isMaterialized());
+      assertFalse(data == cropped.getData());
+      assertEquals(30, cropped.getWidth());
+      assertEquals(40, cropped.getHeight());
+      assertEquals(raster.getArgb(20, 10), cropped.getArgb(0, 0));
+      assertEquals(raster.getArgb(59, 39), cropped.getArgb(39, 29));
+      assertEquals(raster.getArgb(20, 39), RasterView.of(cropped).rotate(90).toRaster()
+              .getArgb(29, 39));
+
+      model.processImage("img", "invalid", Methods.CROP, 290, 0, 20, 10);
+      assertNull(model.getImage("invalid"));
+    } finally {
+      RasterExecutor.setParallelism(parallelism);
+    }
+  }
+
+  @Test
+  public void testStoreCountsSharedPixelsOnce() {
+    PixelRaster raster = new PixelRaster(300, 200);
+    ImageStore store = new ImageStore();
+    store.put("img", raster);
+    assertEquals(4L * 300 * 200, store.getResidentBytes());
+
+    // a crop sharing the pixels of the image takes no more memory
+    PixelRaster cropped = RasterView.of(raster).crop(0, 20, 300, 150).toRaster();
+    assertSame(raster.getData(), cropped.getData());
+    store.put("cropped", cropped);
+    assertEquals(4L * 300 * 200, store.getResidentBytes());
+
+    // a deferred view takes the memory of its pixels and keeps its source alive
+    PixelRaster transposed = RasterView.of(raster).transpose().toRaster();
+    assertFalse(transposed.isMaterialized());
+    store.put("transposed", transposed);
+    assertEquals(2 * 4L * 300 * 200, store.getResidentBytes());
+    store.remove("img");
+    assertEquals(2 * 4L * 300 * 200, store.getResidentBytes());
+    store.remove("transposed");
+    assertEquals(4L * 300 * 200, store.getResidentBytes());
+    store.remove("cropped");
+    assertEquals(0, store.getResidentBytes());
+  }
+}